@@ -1,5 +1,6 @@
 package edu.kit.aquaplanning;
 
+import edu.kit.aquaplanning.model.ground.State;
 import edu.kit.aquaplanning.planners.SearchStrategy;
 import edu.kit.aquaplanning.util.Logger;
 import picocli.CommandLine.Command;
@@ -75,27 +76,53 @@ public class Configuration {
 			+ "but add them as explicit atoms to the initial state")
 	public boolean keepEqualities;
 	
+	public enum GrounderType {
+		relaxedPlanningGraph, datalog;
+	}
+	@Option(paramLabel = "grounderType", names = {"-g", "--grounder"}, 
+			description = "Reachability analysis during grounding: " + USAGE_OPTIONS_AND_DEFAULT, 
+			defaultValue = "datalog")
+	public GrounderType grounder;
+	
 	
 	/* 
 	 * Planner configuration 
 	 */
 	
 	public enum PlannerType {
-		forwardSSS, satBased, hegemannSat, parallel
+		forwardSSS, satBased, hegemannSat, parallel, hdaStar, portfolio, enforcedHillClimbing, iw, bfws, anytime
 	}
 	@Option(paramLabel = "plannerType", names = {"-p", "--planner"}, 
 			description = "Planner type to use: " + USAGE_OPTIONS_AND_DEFAULT, 
 			defaultValue = "forwardSSS")
 	public PlannerType plannerType;
 	
+	@Option(paramLabel = "portfolio", names = {"--portfolio"}, 
+			description = "Members of the portfolio planner: \"key=value\" pairs separated by \",\", "
+					+ "members separated by \";\" (keys: planner, search, heuristic, weight, threads, "
+					+ "time as percentage of the search time); uses a default portfolio if omitted")
+	public String portfolio;
+	
+	@Option(paramLabel = "width", names = {"-k", "--width"}, 
+			description = "Maximum novelty of states not pruned by IW, or the novelty width of BFWS "
+					+ "(0: IW(1) followed by IW(2), or width 2 for BFWS) " + USAGE_DEFAULT, 
+			defaultValue = "0")
+	public int width;
+	
 	/* Forward search space planning */
 	
 	public enum HeuristicType {
-		manhattanGoalDistance, relaxedPathLength, actionInterferenceRelaxation;
+		manhattanGoalDistance, relaxedPathLength, actionInterferenceRelaxation, hFF, hAdd, hMax;
 	}
+	/**
+	 * The heuristic used if none is configured, except for enforced 
+	 * hill-climbing, which uses hFF by default (for its helpful actions).
+	 */
+	public static final HeuristicType DEFAULT_HEURISTIC = HeuristicType.relaxedPathLength;
 	@Option(paramLabel = "heuristicClass", names = {"-H", "--heuristic"}, 
-			description = "Heuristic for forward search: " + USAGE_OPTIONS_AND_DEFAULT, 
-			defaultValue = "relaxedPathLength")
+			description = "Heuristic for forward search: @|fg(green) ${COMPLETION-CANDIDATES}|@ "
+					+ "(default: @|fg(green) relaxedPathLength|@, or @|fg(green) hFF|@ "
+					+ "for enforced hill-climbing)")
 	public HeuristicType heuristic;
 	@Option(paramLabel = "heuristicWeight", names = {"-w", "--heuristic-weight"},
 			description = "Weight of heuristic when using a weighted search strategy " + USAGE_DEFAULT, 
@@ -107,6 +134,40 @@ public class Configuration {
 			defaultValue = "bestFirst")
 	public SearchStrategy.Mode searchStrategy;
 	
+	@Option(paramLabel = "openList", names = {"--open-list"}, 
+			description = "Open list of heuristical search strategies: " + USAGE_OPTIONS_AND_DEFAULT, 
+			defaultValue = "heap")
+	public SearchStrategy.OpenListType openList;
+	
+	@Option(paramLabel = "tieBreaking", names = {"--tie-breaking"}, 
+			description = "Tie-breaking among open nodes of equal priority: " + USAGE_OPTIONS_AND_DEFAULT, 
+			defaultValue = "none")
+	public SearchStrategy.TieBreaking tieBreaking;
+	
+	@Option(names = {"-l", "--lazy-evaluation"}, description = "Defer the heuristic "
+			+ "evaluation of a search node until it is polled from the open list")
+	public boolean lazyEvaluation;
+	
+	@Option(names = {"--helpful-actions"}, description = "Only consider helpful actions "
+			+ "(if provided by the heuristic) during enforced hill-climbing")
+	public boolean helpfulActions;
+	
+	@Option(paramLabel = "transpositionTableMb", names = {"--transposition-table"}, 
+			description = "Memory (in MB) of the transposition table of IDA* search "
+					+ "(0: no transposition table) " + USAGE_DEFAULT, 
+			defaultValue = "64")
+	public int transpositionTableMb;
+	
+	@Option(paramLabel = "snapshotDepth", names = {"--snapshot-depth"}, 
+			description = "Amount of successive successor states which are stored as deltas "
+					+ "against a common full state (0: store each state fully) " + USAGE_DEFAULT, 
+			defaultValue = "8")
+	public int snapshotDepth = State.DEFAULT_SNAPSHOT_DEPTH;
+	
+	@Option(names = {"--generate-code"}, description = "Generate and compile specialized code "
+			+ "for the applicability checks of all actions before planning (requires a JDK)")
+	public boolean generateCode;
+	
 	@Option(names = {"-r", "--revisit-states"}, description = "Re-enter a search node "
 			+ "even when the state has been reached before")
 	public boolean revisitStates;
@@ -115,6 +176,16 @@ public class Configuration {
 			defaultValue = "1337")
 	public int seed;
 	
+	@Option(names = {"--share-visited-states"}, description = "Let the planners of a parallel "
+			+ "portfolio share their visited states, so that each state is visited only once")
+	public boolean shareVisitedStates;
+	
+	@Option(paramLabel = "heuristicCacheSize", names = {"--heuristic-cache"}, 
+			description = "Amount of heuristic values which are cached and shared by the heuristic "
+					+ "forward search planners of a portfolio (0: no cache) " + USAGE_DEFAULT, 
+			defaultValue = "0")
+	public int heuristicCacheSize;
+	
 	
 	/* 
 	 * Post-processing 
@@ -144,12 +215,24 @@ public class Configuration {
 		config.numThreads = numThreads;
 		config.keepDisjunctions = keepDisjunctions;
 		config.keepEqualities = keepEqualities;
+		config.grounder = grounder;
 		config.plannerType = plannerType;
+		config.portfolio = portfolio;
+		config.width = width;
 		config.heuristic = heuristic;
 		config.heuristicWeight = heuristicWeight;
 		config.searchStrategy = searchStrategy;
+		config.openList = openList;
+		config.tieBreaking = tieBreaking;
+		config.lazyEvaluation = lazyEvaluation;
+		config.helpfulActions = helpfulActions;
+		config.transpositionTableMb = transpositionTableMb;
+		config.snapshotDepth = snapshotDepth;
+		config.generateCode = generateCode;
 		config.revisitStates = revisitStates;
 		config.seed = seed;
+		config.shareVisitedStates = shareVisitedStates;
+		config.heuristicCacheSize = heuristicCacheSize;
 		config.optimizePlan = optimizePlan;
 		config.startTimeMillis = startTimeMillis;
 		config.searchTimeSeconds = searchTimeSeconds;
@@ -3,6 +3,8 @@ package edu.kit.aquaplanning;
 import java.io.FileWriter;
 import java.io.IOException;
 
+import edu.kit.aquaplanning.Configuration.GrounderType;
+import edu.kit.aquaplanning.grounding.DatalogGrounder;
 import edu.kit.aquaplanning.grounding.Grounder;
 import edu.kit.aquaplanning.grounding.RelaxedPlanningGraphGrounder;
 import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
@@ -11,6 +13,7 @@ import edu.kit.aquaplanning.model.lifted.PlanningProblem;
 import edu.kit.aquaplanning.optimization.Clock;
 import edu.kit.aquaplanning.optimization.SimplePlanOptimizer;
 import edu.kit.aquaplanning.parsing.ProblemParser;
+import edu.kit.aquaplanning.planners.AnytimePlanner;
 import edu.kit.aquaplanning.planners.Planner;
 import edu.kit.aquaplanning.util.Logger;
 import edu.kit.aquaplanning.validate.Validator;
@@ -63,16 +66,43 @@ public class Main {
 		
 		if (config.planOutputFile != null) {
 			// Write plan to file
-			FileWriter w = new FileWriter(config.planOutputFile);
-			w.write(plan.toString());
-			w.close();
-			Logger.log(Logger.INFO, "Plan written to " + config.planOutputFile + ".");
+			writePlan(config.planOutputFile, plan);
 		} else {
 			// No output file => Always output plan to stdout
 			Logger.log(Logger.ESSENTIAL, plan.toString());
 		}
 	}
 	
+	private static void writePlan(String file, Plan plan) throws IOException {
+		
+		FileWriter w = new FileWriter(file);
+		w.write(plan.toString());
+		w.close();
+		Logger.log(Logger.INFO, "Plan written to " + file + ".");
+	}
+	
+	/**
+	 * Lets an anytime planner write each improved plan to a numbered
+	 * file (plan.1, plan.2, ...) as soon as it is found, if the config 
+	 * specifies an output file.
+	 */
+	private static void streamPlans(Configuration config, AnytimePlanner planner) {
+		
+		if (config.planOutputFile == null) {
+			return;
+		}
+		int[] numPlans = {0};
+		planner.setPlanListener(plan -> {
+			numPlans[0]++;
+			try {
+				writePlan(config.planOutputFile + "." + numPlans[0], plan);
+			} catch (IOException e) {
+				Logger.log(Logger.WARN, "Could not write plan " + numPlans[0] 
+						+ ": " + e.getMessage());
+			}
+		});
+	}
+	
 	public static void main(String[] args) throws Exception {
 				
 		// Read configuration from command line arguments
@@ -95,16 +125,37 @@ public class Main {
 			
 			// Step 2: Grounding (to get "flat" sets of actions and atoms)
 			Logger.log(Logger.INFO, "Grounding ...");
-			Grounder grounder = new RelaxedPlanningGraphGrounder(config);
+			Grounder grounder = (config.grounder == GrounderType.relaxedPlanningGraph ? 
+					new RelaxedPlanningGraphGrounder(config) : new DatalogGrounder(config));
 			GroundPlanningProblem planningProblem = grounder.ground(p);
 			// Print ground problem
 			Logger.log(Logger.INFO_V, planningProblem.toString());
 			Logger.log(Logger.INFO, "Grounding complete. " + planningProblem.getActions().size() 
 					+ " actions resulted from the grounding.\n");
 			
+			if (config.generateCode) {
+				long start = System.currentTimeMillis();
+				try {
+					if (planningProblem.getActionTable().generateCode()) {
+						Logger.log(Logger.INFO, "Generated code for all actions in " 
+								+ (System.currentTimeMillis() - start) + "ms.\n");
+					} else {
+						Logger.log(Logger.WARN, "No Java compiler available: "
+								+ "cannot generate code for the actions.\n");
+					}
+				} catch (IllegalStateException e) {
+					// Continue with the action table
+					Logger.log(Logger.WARN, e.getMessage() 
+							+ ": continuing without generated code.\n");
+				}
+			}
+			
 			// Step 3: Planning
 			Logger.log(Logger.INFO, "Planning ...");
 			Planner planner = Planner.getPlanner(config);
+			if (planner instanceof AnytimePlanner) {
+				streamPlans(config, (AnytimePlanner) planner);
+			}
 			Plan plan = planner.findPlan(planningProblem);
 			
 			// Solution found?
@@ -1,6 +1,7 @@
 package edu.kit.aquaplanning.grounding;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import edu.kit.aquaplanning.Configuration;
@@ -8,7 +9,10 @@ import edu.kit.aquaplanning.model.ground.Action;
 import edu.kit.aquaplanning.model.ground.Atom;
 import edu.kit.aquaplanning.model.ground.ConditionalEffect;
 import edu.kit.aquaplanning.model.ground.DerivedAtom;
+import edu.kit.aquaplanning.model.ground.DerivedAtomEvaluator;
 import edu.kit.aquaplanning.model.ground.Effect;
+import edu.kit.aquaplanning.model.ground.Goal;
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
 import edu.kit.aquaplanning.model.ground.GroundNumericExpression;
 import edu.kit.aquaplanning.model.ground.NumericAtom;
 import edu.kit.aquaplanning.model.ground.Effect.EffectType;
@@ -56,6 +60,76 @@ public abstract class BaseGrounder implements Grounder {
 		this.config = config;
 		this.atomTable = new AtomTable();
 	}
+
+	/**
+	 * Sets the problem to ground and preprocesses it into a standardized
+	 * structure. Initializes the sorted list of constants and, if equalities
+	 * are kept, adds the according conditions to the initial state.
+	 */
+	protected void prepareProblem(PlanningProblem problem) {
+		
+		setProblem(problem);
+		
+		// First, preprocess the problem into a standardized structure
+		new Preprocessor(config).preprocess(problem);
+		
+		// Create a sorted list of constants
+		constants = new ArrayList<>();
+		constants.addAll(problem.getConstants());
+		constants.sort((c1, c2) -> c1.getName().compareTo(c2.getName()));
+		
+		// Will equality predicates remain in the problem?
+		if (config.keepEqualities) {
+			// --yes: add equality conditions
+			Predicate pEquals = problem.getPredicate("=");
+			if (pEquals != null) {
+				// for all objects c: add the condition (= c c)
+				for (Argument constant : constants) {
+					Condition equalsCond = new Condition(pEquals);
+					equalsCond.addArgument(constant);
+					equalsCond.addArgument(constant);
+					problem.getInitialState().add(equalsCond);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Grounds the initial state, the goal and the derived predicates
+	 * of the prepared problem and assembles the ground problem
+	 * together with the actions found by the grounder.
+	 */
+	protected GroundPlanningProblem assembleProblem() {
+		
+		// Extract initial state
+		State initialState = getInitialState();
+		
+		// Extract goal
+		ConditionSet goalSet = new ConditionSet(ConditionType.conjunction);
+		problem.getGoals().forEach(c -> goalSet.add(c));
+		Goal goal;
+		Pair<List<Atom>, Precondition> splitGoal = splitAndGroundPrecondition(goalSet);
+		if (splitGoal.getRight() != null) {
+			// Complex goal: add simple AND complex parts
+			Precondition complexGoal = splitGoal.getRight();
+			splitGoal.getLeft().forEach(atom -> {
+				Precondition atomPre = new Precondition(PreconditionType.atom);
+				atomPre.setAtom(atom);
+				complexGoal.add(atomPre);
+			});
+			goal = new Goal(complexGoal);
+		} else {
+			// Simple goal
+			goal = new Goal(splitGoal.getLeft());
+		}
+		
+		// Ground derived predicates' semantics
+		groundDerivedAtoms();
+		
+		// Assemble finished problem
+		return new GroundPlanningProblem(initialState, actions, goal, 
+				problem.hasActionCosts(), extractAtomNames(), extractNumericAtomNames());
+	}
 	
 	/**
 	 * Converts the provided precondition (with all constant arguments)
@@ -621,6 +695,19 @@ public abstract class BaseGrounder implements Grounder {
 				}
 			}
 		}
+
+		// Stratify the derived atoms for evaluating them all at once
+		Collection<DerivedAtom> derivedAtoms = atomTable.getDerivedAtoms().values();
+		if (!derivedAtoms.isEmpty()) {
+			DerivedAtomEvaluator evaluator = DerivedAtomEvaluator.stratify(derivedAtoms);
+			if (evaluator != null) {
+				Logger.log(Logger.INFO_V, derivedAtoms.size() + " derived atoms in "
+						+ evaluator.getNumStrata() + " strata.");
+			} else {
+				Logger.log(Logger.WARN, "Derived predicates cannot be stratified; "
+						+ "they are evaluated lazily.");
+			}
+		}
 	}
 	
 	public void setProblem(PlanningProblem problem) {
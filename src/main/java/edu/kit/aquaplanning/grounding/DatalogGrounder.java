@@ -0,0 +1,51 @@
+package edu.kit.aquaplanning.grounding;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+
+import edu.kit.aquaplanning.Configuration;
+import edu.kit.aquaplanning.model.ground.Action;
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
+import edu.kit.aquaplanning.model.lifted.Operator;
+import edu.kit.aquaplanning.model.lifted.PlanningProblem;
+
+/**
+ * Grounder doing the same reachability analysis as the
+ * RelaxedPlanningGraphGrounder, but by a semi-naive evaluation
+ * of a Datalog program (see ReachabilityProgram) instead of
+ * recomputing each layer of a relaxed planning graph.
+ */
+public class DatalogGrounder extends BaseGrounder {
+	
+	public DatalogGrounder(Configuration config) {
+		super(config);
+	}
+	
+	/**
+	 * Grounds the entire problem.
+	 */
+	@Override
+	public GroundPlanningProblem ground(PlanningProblem problem) {
+		
+		// Preprocess the problem, set up constants and equalities
+		prepareProblem(problem);
+		
+		// Compute all reachable operators
+		ReachabilityProgram program = new ReachabilityProgram(problem);
+		program.evaluate();
+		
+		// Ground the reachable operators
+		actions = new ArrayList<>();
+		Set<Action> knownActions = new HashSet<>();
+		for (Operator op : program.getReachableOperators()) {
+			Action a = getAction(op); // actual grounding
+			if (a != null && knownActions.add(a)) {
+				actions.add(a);
+			}
+		}
+		
+		// Ground initial state, goal and derived predicates
+		return assembleProblem();
+	}
+}
@@ -0,0 +1,442 @@
+package edu.kit.aquaplanning.grounding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.kit.aquaplanning.model.lifted.Argument;
+import edu.kit.aquaplanning.model.lifted.Condition;
+
+/**
+ * A set of facts in lifted form, i.e. of atomic conditions whose arguments
+ * are all constants. Constants are identified by their index, and the facts
+ * of each predicate are stored in a Relation as tuples of constant IDs.
+ * The facts of a relation can be looked up by the constants at any subset
+ * of their argument positions, by hash indexes which are built on demand.
+ */
+public class FactTable {
+
+	private List<Argument> constants;
+	private Map<String, Integer> constantIds;
+
+	private Map<String, Relation> relations;
+	private List<Relation> relationList;
+
+	/**
+	 * Creates an empty fact table where the provided constants
+	 * are identified by their index in the list.
+	 */
+	public FactTable(List<Argument> constants) {
+
+		this.constants = new ArrayList<>(constants);
+		this.constantIds = new HashMap<>();
+		for (int c = 0; c < constants.size(); c++) {
+			constantIds.put(constants.get(c).getName(), c);
+		}
+		this.relations = new HashMap<>();
+		this.relationList = new ArrayList<>();
+	}
+
+	/**
+	 * Returns the ID of the provided constant,
+	 * assigning a new ID if the constant is unknown.
+	 */
+	public int getConstantId(Argument constant) {
+
+		Integer id = constantIds.get(constant.getName());
+		if (id == null) {
+			id = constants.size();
+			constants.add(constant);
+			constantIds.put(constant.getName(), id);
+		}
+		return id;
+	}
+
+	public Argument getConstant(int id) {
+		return constants.get(id);
+	}
+
+	public int getNumConstants() {
+		return constants.size();
+	}
+
+	/**
+	 * Returns the relation of the predicate of the provided condition,
+	 * creating it if necessary.
+	 */
+	public Relation getRelation(Condition cond) {
+
+		String name = cond.getPredicate().getName();
+		Relation relation = relations.get(name);
+		if (relation == null) {
+			relation = newRelation(cond.getNumArgs());
+			relations.put(name, relation);
+		}
+		return relation;
+	}
+
+	/**
+	 * Returns the relation of the predicate of the provided name,
+	 * or null if there is no such relation.
+	 */
+	public Relation findRelation(String predicateName) {
+		return relations.get(predicateName);
+	}
+
+	/**
+	 * Creates a relation which does not belong to any predicate.
+	 */
+	public Relation newRelation(int arity) {
+
+		Relation relation = new Relation(relationList.size(), arity);
+		relationList.add(relation);
+		return relation;
+	}
+
+	/**
+	 * Returns the relation of the provided ID.
+	 */
+	public Relation getRelation(int id) {
+		return relationList.get(id);
+	}
+
+	/**
+	 * Returns the relations of all predicates.
+	 */
+	public Collection<Relation> getRelations() {
+		return relations.values();
+	}
+
+	/**
+	 * Adds the provided condition (with constant arguments) as a fact.
+	 * Returns false if the fact is already contained.
+	 */
+	public boolean add(Condition cond, int layer) {
+
+		int[] values = new int[cond.getNumArgs()];
+		for (int pos = 0; pos < values.length; pos++) {
+			values[pos] = getConstantId(cond.getArguments().get(pos));
+		}
+		return getRelation(cond).add(values, layer);
+	}
+
+	/**
+	 * Marks all facts of all relations as processed.
+	 */
+	public void processAll() {
+
+		for (Relation relation : relationList) {
+			while (relation.processed < relation.size) {
+				relation.process(relation.processed);
+			}
+		}
+	}
+
+	/**
+	 * The facts of a single predicate. The facts are stored as tuples of
+	 * constant IDs in a flat array, with an open-addressing hash table over
+	 * their indices. Facts are processed in the order of their addition,
+	 * and only processed facts are found by contains(...) and by the indexes.
+	 */
+	public static class Relation {
+
+		private final int id;
+		private final int arity;
+
+		private int[] tuples;
+		private int[] layers;
+		private int size;
+		private int processed;
+
+		// Fact index + 1 at each slot, or 0 if empty
+		private int[] table;
+
+		// Indexes over the processed facts, by the mask of their positions
+		private List<Index> indexes;
+
+		private Relation(int id, int arity) {
+			this.id = id;
+			this.arity = arity;
+			this.tuples = new int[16 * arity];
+			this.layers = new int[16];
+			this.table = new int[32];
+			this.indexes = new ArrayList<>();
+		}
+
+		public int getId() {
+			return id;
+		}
+
+		public int getArity() {
+			return arity;
+		}
+
+		/**
+		 * The amount of facts, processed or not.
+		 */
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * The amount of processed facts: the facts 0, ..., n-1.
+		 */
+		public int getNumProcessed() {
+			return processed;
+		}
+
+		/**
+		 * Returns the constant ID at the provided position of the fact.
+		 */
+		public int get(int fact, int pos) {
+			return tuples[fact * arity + pos];
+		}
+
+		/**
+		 * Returns the layer of the fact as provided when it was added.
+		 */
+		public int getLayer(int fact) {
+			return layers[fact];
+		}
+
+		/**
+		 * True iff the fact with the provided constant IDs
+		 * has been processed.
+		 */
+		public boolean contains(int[] values) {
+
+			int fact = find(values);
+			return fact >= 0 && fact < processed;
+		}
+
+		/**
+		 * Adds the fact with the provided constant IDs, reached at the
+		 * provided layer. Returns false if the fact is already contained.
+		 */
+		public boolean add(int[] values, int layer) {
+
+			if (find(values) >= 0) {
+				return false;
+			}
+			if (4 * (size+1) > 3 * table.length) {
+				table = new int[2 * table.length];
+				for (int fact = 0; fact < size; fact++) {
+					insert(fact);
+				}
+			}
+			if (size == layers.length) {
+				tuples = Arrays.copyOf(tuples, 2 * tuples.length);
+				layers = Arrays.copyOf(layers, 2 * layers.length);
+			}
+			System.arraycopy(values, 0, tuples, size * arity, arity);
+			layers[size] = layer;
+			insert(size);
+			size++;
+			return true;
+		}
+
+		/**
+		 * Marks the provided fact, which must be the first
+		 * unprocessed fact, as processed.
+		 */
+		public void process(int fact) {
+
+			for (Index index : indexes) {
+				index.add(fact);
+			}
+			processed = fact+1;
+		}
+
+		/**
+		 * Returns the index of the processed facts by their constants
+		 * at the positions of the provided bit mask (bit i: position i).
+		 */
+		public Index getIndex(int mask) {
+
+			for (Index index : indexes) {
+				if (index.mask == mask) {
+					return index;
+				}
+			}
+			Index index = new Index(this, mask);
+			for (int fact = 0; fact < processed; fact++) {
+				index.add(fact);
+			}
+			indexes.add(index);
+			return index;
+		}
+
+		/**
+		 * Returns the index of the fact with the provided constant IDs,
+		 * processed or not, or -1 if there is no such fact.
+		 */
+		public int find(int[] values) {
+
+			int mask = table.length - 1;
+			int slot = hash(values, 0, null) & mask;
+			while (table[slot] != 0) {
+				int fact = table[slot] - 1;
+				if (equals(fact, values)) {
+					return fact;
+				}
+				slot = (slot + 1) & mask;
+			}
+			return -1;
+		}
+
+		private void insert(int fact) {
+
+			int mask = table.length - 1;
+			int slot = hash(tuples, fact * arity, null) & mask;
+			while (table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = fact + 1;
+		}
+
+		/**
+		 * Hash of the values at the provided positions (or at all positions,
+		 * if positions is null) of the tuple at the provided offset.
+		 */
+		private int hash(int[] values, int offset, int[] positions) {
+
+			int hash = arity;
+			int length = (positions == null ? arity : positions.length);
+			for (int i = 0; i < length; i++) {
+				hash = 31 * hash + values[offset + (positions == null ? i : positions[i])];
+			}
+			hash *= 0x9E3779B9;
+			return hash ^ (hash >>> 16);
+		}
+
+		private boolean equals(int fact, int[] values) {
+
+			int offset = fact * arity;
+			for (int pos = 0; pos < arity; pos++) {
+				if (tuples[offset + pos] != values[pos]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * A hash index of the processed facts of a relation by their constants
+	 * at some subset of argument positions: each bucket holds the facts
+	 * with the same constants at these positions.
+	 */
+	public static class Index {
+
+		private final Relation relation;
+		private final int mask;
+		private final int[] positions;
+
+		// Bucket + 1 at each slot, or 0 if empty
+		private int[] table;
+		private int[][] buckets;
+		private int[] bucketSizes;
+		private int numBuckets;
+
+		private Index(Relation relation, int mask) {
+
+			this.relation = relation;
+			this.mask = mask;
+			this.positions = new int[Integer.bitCount(mask)];
+			int i = 0;
+			for (int pos = 0; pos < relation.arity; pos++) {
+				if ((mask & (1 << pos)) != 0) {
+					positions[i++] = pos;
+				}
+			}
+			this.table = new int[16];
+			this.buckets = new int[8][];
+			this.bucketSizes = new int[8];
+		}
+
+		/**
+		 * Returns the bucket of the facts with the provided values
+		 * at the positions of this index, or -1 if there are none.
+		 * Values at other positions are ignored.
+		 */
+		public int find(int[] values) {
+			return find(values, 0);
+		}
+
+		/**
+		 * Returns the facts in the provided bucket. Only the first
+		 * getNumFacts(bucket) entries of the array are valid.
+		 */
+		public int[] getFacts(int bucket) {
+			return buckets[bucket];
+		}
+
+		public int getNumFacts(int bucket) {
+			return bucketSizes[bucket];
+		}
+
+		private void add(int fact) {
+
+			int offset = fact * relation.arity;
+			int bucket = find(relation.tuples, offset);
+			if (bucket < 0) {
+				// New bucket
+				if (2 * (numBuckets+1) > table.length) {
+					table = new int[2 * table.length];
+					for (int b = 0; b < numBuckets; b++) {
+						insert(b);
+					}
+				}
+				if (numBuckets == buckets.length) {
+					buckets = Arrays.copyOf(buckets, 2 * numBuckets);
+					bucketSizes = Arrays.copyOf(bucketSizes, 2 * numBuckets);
+				}
+				bucket = numBuckets++;
+				buckets[bucket] = new int[2];
+				buckets[bucket][0] = fact;
+				bucketSizes[bucket] = 1;
+				insert(bucket);
+				return;
+			}
+			int[] facts = buckets[bucket];
+			if (bucketSizes[bucket] == facts.length) {
+				facts = buckets[bucket] = Arrays.copyOf(facts, 2 * facts.length);
+			}
+			facts[bucketSizes[bucket]++] = fact;
+		}
+
+		private int find(int[] tuples, int offset) {
+
+			int slotMask = table.length - 1;
+			int slot = relation.hash(tuples, offset, positions) & slotMask;
+			while (table[slot] != 0) {
+				int bucket = table[slot] - 1;
+				int first = buckets[bucket][0] * relation.arity;
+				boolean equal = true;
+				for (int pos : positions) {
+					if (relation.tuples[first + pos] != tuples[offset + pos]) {
+						equal = false;
+						break;
+					}
+				}
+				if (equal) return bucket;
+				slot = (slot + 1) & slotMask;
+			}
+			return -1;
+		}
+
+		private void insert(int bucket) {
+
+			int slotMask = table.length - 1;
+			int slot = relation.hash(relation.tuples, buckets[bucket][0] * relation.arity,
+					positions) & slotMask;
+			while (table[slot] != 0) {
+				slot = (slot + 1) & slotMask;
+			}
+			table[slot] = bucket + 1;
+		}
+	}
+}
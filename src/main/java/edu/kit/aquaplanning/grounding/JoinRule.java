@@ -0,0 +1,586 @@
+package edu.kit.aquaplanning.grounding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import edu.kit.aquaplanning.grounding.FactTable.Index;
+import edu.kit.aquaplanning.grounding.FactTable.Relation;
+import edu.kit.aquaplanning.model.lifted.AbstractCondition;
+import edu.kit.aquaplanning.model.lifted.Argument;
+import edu.kit.aquaplanning.model.lifted.Condition;
+import edu.kit.aquaplanning.model.lifted.ConditionSet;
+import edu.kit.aquaplanning.model.lifted.Operator;
+import edu.kit.aquaplanning.model.lifted.PlanningProblem;
+import edu.kit.aquaplanning.model.lifted.Quantification;
+
+/**
+ * A condition over the arguments of an operator, compiled for finding all
+ * bindings of the arguments to constants under which the condition holds
+ * in a delete-relaxed sense, given the processed facts of a FactTable.
+ * As in the RelaxedPlanningGraph, negative conditions, numeric conditions
+ * and derived predicates are assumed to hold.
+ * <br/>
+ * The positive atoms of the condition are joined one after another: the
+ * facts matching the next atom are looked up by the constants at its bound
+ * argument positions (through the hash index of these positions), so only
+ * consistent partial bindings are ever extended. The atoms are joined in a
+ * greedy order which prefers atoms with many bound positions. Arguments which
+ * do not occur in any atom are bound to each constant of their type, and
+ * complex conditions (e.g. disjunctions) are checked for complete bindings.
+ * An atom with a variable which is not an operator argument holds if some
+ * processed fact matches it for some binding of that variable.
+ */
+public class JoinRule {
+
+	private PlanningProblem problem;
+	private FactTable facts;
+
+	/* Variables: the arguments of the operator */
+	private Map<String, Integer> variables;
+	private boolean[][] eligible;
+	private int[][] domains;
+
+	/* Body: atoms to join, equalities between arguments,
+	 * and complex conditions which must hold in a relaxed sense */
+	private List<Pattern> atoms;
+	private List<int[]> equalities;
+	private List<AbstractCondition> residual;
+
+	/* Join plans, computed when the rule is first fired:
+	 * the order of the atoms after atom i (and from scratch, last),
+	 * the bound positions of each joined atom, and their indexes */
+	private int[][] orders;
+	private int[][] masks;
+	private Index[][] indexes;
+
+	// Constant of each variable, or -1
+	private int[] binding;
+	private int[] values;
+	private Consumer<int[]> onMatch;
+
+	/**
+	 * Creates a rule with an empty body over the arguments of the provided
+	 * operator. Each argument can only be bound to the constants of its type.
+	 */
+	public JoinRule(Operator op, FactTable facts, PlanningProblem problem) {
+
+		this.problem = problem;
+		this.facts = facts;
+		this.variables = new HashMap<>();
+		int numArgs = op.getArguments().size();
+		for (int arg = 0; arg < numArgs; arg++) {
+			variables.put(op.getArguments().get(arg).getName(), arg);
+		}
+
+		// Eligible constants of each argument
+		eligible = new boolean[numArgs][];
+		domains = new int[numArgs][];
+		List<List<Argument>> eligibleArgs = ArgumentCombination.getEligibleArguments(
+				op.getArguments(), problem, problem.getConstants());
+		for (int arg = 0; arg < numArgs; arg++) {
+			domains[arg] = new int[eligibleArgs.get(arg).size()];
+			for (int i = 0; i < domains[arg].length; i++) {
+				domains[arg][i] = facts.getConstantId(eligibleArgs.get(arg).get(i));
+			}
+			eligible[arg] = new boolean[facts.getNumConstants()];
+			for (int constant : domains[arg]) {
+				eligible[arg][constant] = true;
+			}
+		}
+
+		this.atoms = new ArrayList<>();
+		this.equalities = new ArrayList<>();
+		this.residual = new ArrayList<>();
+		this.binding = new int[numArgs];
+		Arrays.fill(binding, -1);
+	}
+
+	/**
+	 * Creates a rule over the same operator with a copy of the other
+	 * rule's body.
+	 */
+	public JoinRule(JoinRule other) {
+
+		this.problem = other.problem;
+		this.facts = other.facts;
+		this.variables = other.variables;
+		this.eligible = other.eligible;
+		this.domains = other.domains;
+		this.atoms = new ArrayList<>(other.atoms);
+		this.equalities = new ArrayList<>(other.equalities);
+		this.residual = new ArrayList<>(other.residual);
+		this.binding = new int[other.binding.length];
+		Arrays.fill(binding, -1);
+	}
+
+	/**
+	 * Sets the function which is called with each found binding (i.e.,
+	 * the constant ID of each operator argument). The binding may only
+	 * be read during the call.
+	 */
+	public void setOnMatch(Consumer<int[]> onMatch) {
+		this.onMatch = onMatch;
+	}
+
+	/**
+	 * Adds the provided condition to the body of the rule.
+	 */
+	public void addCondition(AbstractCondition cond) {
+
+		orders = null;
+		switch (cond.getConditionType()) {
+		case atomic:
+			Condition c = (Condition) cond;
+			int[] args = encode(c.getArguments());
+			if (isEqualityCondition(c)) {
+				if (args != null && args.length == 2) {
+					equalities.add(new int[] {args[0], args[1], c.isNegated() ? 1 : 0});
+				} else {
+					residual.add(c);
+				}
+			} else if (c.isNegated() || c.getPredicate().isDerived()) {
+				// Holds in a relaxed sense
+			} else if (args != null) {
+				atoms.add(new Pattern(facts.getRelation(c), args));
+			} else {
+				// Contains a variable which is not an operator argument:
+				// checked for each complete binding, see holdsForSome
+				residual.add(c);
+			}
+			break;
+		case conjunction:
+			for (AbstractCondition child : ((ConditionSet) cond).getConditions()) {
+				addCondition(child);
+			}
+			break;
+		case quantification:
+			addCondition(ArgumentCombination.resolveQuantification(
+					(Quantification) cond, problem, problem.getConstants()));
+			break;
+		case disjunction:
+			// Checked for each complete binding
+			residual.add(cond);
+			break;
+		default:
+			// Negations, implications and numeric conditions
+			// hold in a relaxed sense
+			break;
+		}
+	}
+
+	/**
+	 * Adds an atom of the provided relation to the body of the rule.
+	 *
+	 * @param args the encoded arguments of the atom (see encode(List))
+	 */
+	public void addAtom(Relation relation, int[] args) {
+
+		orders = null;
+		atoms.add(new Pattern(relation, args));
+	}
+
+	/**
+	 * Encodes the provided arguments: an operator argument is encoded
+	 * by its index, and a constant c by -(id(c)+1). Returns null if some
+	 * argument is a variable which is not an argument of the operator.
+	 */
+	public int[] encode(List<Argument> args) {
+
+		int[] encoded = new int[args.size()];
+		for (int pos = 0; pos < args.size(); pos++) {
+			Argument arg = args.get(pos);
+			if (arg.isConstant()) {
+				encoded[pos] = -facts.getConstantId(arg)-1;
+			} else {
+				Integer var = variables.get(arg.getName());
+				if (var == null) return null;
+				encoded[pos] = var;
+			}
+		}
+		return encoded;
+	}
+
+	/**
+	 * Returns the value of the provided encoded argument
+	 * under the provided binding, or -1 if it is unbound.
+	 */
+	public static int value(int arg, int[] binding) {
+		return arg < 0 ? -arg-1 : binding[arg];
+	}
+
+	public int getNumAtoms() {
+		return atoms.size();
+	}
+
+	/**
+	 * Returns the relation of the i-th atom of the body.
+	 */
+	public Relation getRelation(int atom) {
+		return atoms.get(atom).relation;
+	}
+
+	/**
+	 * Returns the complex conditions of the body
+	 * which are checked for each complete binding.
+	 */
+	public List<AbstractCondition> getResidualConditions() {
+		return residual;
+	}
+
+	/**
+	 * Finds all bindings of the rule.
+	 */
+	public void fire() {
+
+		plan();
+		join(atoms.size(), 0);
+	}
+
+	/**
+	 * Finds all bindings of the rule where the provided atom of the body
+	 * is matched by the provided fact of the atom's relation.
+	 */
+	public void fire(int atom, int fact) {
+
+		plan();
+		int[] args = atoms.get(atom).args;
+		if (unify(args, atoms.get(atom).relation, fact)) {
+			join(atom, 0);
+		}
+		for (int arg : args) {
+			if (arg >= 0) binding[arg] = -1;
+		}
+	}
+
+	/**
+	 * Computes the join orders, if necessary.
+	 */
+	private void plan() {
+
+		if (orders != null) {
+			return;
+		}
+		int maxArity = 0;
+		for (Pattern atom : atoms) {
+			maxArity = Math.max(maxArity, atom.args.length);
+		}
+		values = new int[maxArity];
+		orders = new int[atoms.size() + 1][];
+		masks = new int[atoms.size() + 1][];
+		indexes = new Index[atoms.size() + 1][];
+		for (int seed = 0; seed <= atoms.size(); seed++) {
+			plan(seed);
+		}
+	}
+
+	/**
+	 * Computes the order in which the atoms are joined after the provided
+	 * atom (or from scratch, if seed == atoms.size()): greedily, an atom
+	 * whose arguments are all bound is preferred, then an atom with the
+	 * most bound positions, the fewest unbound arguments, and the fewest
+	 * facts so far.
+	 */
+	private void plan(int seed) {
+
+		boolean[] bound = new boolean[binding.length];
+		boolean[] joined = new boolean[atoms.size()];
+		if (seed < atoms.size()) {
+			joined[seed] = true;
+			for (int arg : atoms.get(seed).args) {
+				if (arg >= 0) bound[arg] = true;
+			}
+		}
+
+		int length = (seed < atoms.size() ? atoms.size() - 1 : atoms.size());
+		int[] order = new int[length];
+		int[] orderMasks = new int[length];
+		for (int i = 0; i < length; i++) {
+			int best = -1;
+			long bestScore = Long.MIN_VALUE;
+			for (int atom = 0; atom < atoms.size(); atom++) {
+				if (joined[atom]) continue;
+				Pattern pattern = atoms.get(atom);
+				int numBound = 0;
+				int numUnbound = 0;
+				for (int arg : pattern.args) {
+					if (arg < 0 || bound[arg]) {
+						numBound++;
+					} else {
+						numUnbound++;
+					}
+				}
+				long score = ((numUnbound == 0 ? 1L : 0L) << 60) + ((long) numBound << 40)
+						- ((long) numUnbound << 32) - pattern.relation.size();
+				if (score > bestScore) {
+					best = atom;
+					bestScore = score;
+				}
+			}
+			order[i] = best;
+			joined[best] = true;
+			int[] args = atoms.get(best).args;
+			for (int pos = 0; pos < args.length; pos++) {
+				if (args[pos] < 0 || bound[args[pos]]) {
+					orderMasks[i] |= 1 << pos;
+				}
+			}
+			for (int arg : args) {
+				if (arg >= 0) bound[arg] = true;
+			}
+		}
+		orders[seed] = order;
+		masks[seed] = orderMasks;
+		indexes[seed] = new Index[length];
+	}
+
+	/**
+	 * Extends the current binding by the atom at the provided
+	 * depth of the join order, and so on recursively.
+	 */
+	private void join(int seed, int depth) {
+
+		int[] order = orders[seed];
+		if (depth == order.length) {
+			complete(0);
+			return;
+		}
+
+		Pattern atom = atoms.get(order[depth]);
+		Relation relation = atom.relation;
+		int[] args = atom.args;
+		int mask = masks[seed][depth];
+		for (int pos = 0; pos < args.length; pos++) {
+			values[pos] = value(args[pos], binding);
+		}
+
+		if (mask == (1 << args.length) - 1) {
+			// All positions bound: only check if the fact exists
+			if (relation.contains(values)) {
+				join(seed, depth+1);
+			}
+			return;
+		}
+
+		// Facts to match: those with the constants at the bound positions,
+		// or all processed facts of the relation
+		int[] candidates = null;
+		int numCandidates = relation.getNumProcessed();
+		if (mask != 0) {
+			Index index = indexes[seed][depth];
+			if (index == null) {
+				index = indexes[seed][depth] = relation.getIndex(mask);
+			}
+			int bucket = index.find(values);
+			if (bucket < 0) {
+				return;
+			}
+			candidates = index.getFacts(bucket);
+			numCandidates = index.getNumFacts(bucket);
+		}
+
+		for (int i = 0; i < numCandidates; i++) {
+			int fact = (candidates == null ? i : candidates[i]);
+			if (unify(args, relation, fact)) {
+				join(seed, depth+1);
+			}
+			// Unbind the arguments bound by this atom
+			for (int pos = 0; pos < args.length; pos++) {
+				if ((mask & (1 << pos)) == 0) binding[args[pos]] = -1;
+			}
+		}
+	}
+
+	/**
+	 * Binds the arguments of the atom to the constants of the fact.
+	 * Returns false if the fact does not match the atom
+	 * under the current binding.
+	 */
+	private boolean unify(int[] args, Relation relation, int fact) {
+
+		for (int pos = 0; pos < args.length; pos++) {
+			int constant = relation.get(fact, pos);
+			int arg = args[pos];
+			if (arg < 0) {
+				if (-arg-1 != constant) return false;
+			} else if (binding[arg] >= 0) {
+				if (binding[arg] != constant) return false;
+			} else if (constant >= eligible[arg].length || !eligible[arg][constant]) {
+				return false;
+			} else {
+				binding[arg] = constant;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Binds all arguments from the provided one onwards which do not
+	 * occur in any atom, and reports each binding which satisfies
+	 * the remaining conditions of the rule.
+	 */
+	private void complete(int arg) {
+
+		while (arg < binding.length && binding[arg] >= 0) {
+			arg++;
+		}
+		if (arg < binding.length) {
+			for (int constant : domains[arg]) {
+				binding[arg] = constant;
+				complete(arg+1);
+			}
+			binding[arg] = -1;
+			return;
+		}
+
+		for (int[] equality : equalities) {
+			boolean equal = value(equality[0], binding) == value(equality[1], binding);
+			if (equal == (equality[2] != 0)) return;
+		}
+		for (AbstractCondition cond : residual) {
+			if (!holds(cond)) return;
+		}
+		onMatch.accept(binding);
+	}
+
+	/**
+	 * Checks if the provided condition holds in a relaxed sense under the
+	 * (complete) binding, given the processed facts.
+	 */
+	private boolean holds(AbstractCondition cond) {
+
+		switch (cond.getConditionType()) {
+		case atomic:
+			Condition c = (Condition) cond;
+			if (isEqualityCondition(c)) {
+				boolean equal = c.getNumArgs() == 2 && getName(c.getArguments().get(0))
+						.equals(getName(c.getArguments().get(1)));
+				return c.isNegated() != equal;
+			}
+			if (c.isNegated() || c.getPredicate().isDerived()) {
+				return true;
+			}
+			Relation relation = facts.findRelation(c.getPredicate().getName());
+			if (relation == null) {
+				return false;
+			}
+			int[] args = encode(c.getArguments());
+			if (args == null) {
+				return holdsForSome(c, relation);
+			}
+			int[] values = new int[args.length];
+			for (int pos = 0; pos < args.length; pos++) {
+				values[pos] = value(args[pos], binding);
+			}
+			return relation.contains(values);
+		case conjunction:
+			for (AbstractCondition child : ((ConditionSet) cond).getConditions()) {
+				if (!holds(child)) return false;
+			}
+			return true;
+		case disjunction:
+			for (AbstractCondition child : ((ConditionSet) cond).getConditions()) {
+				if (holds(child)) return true;
+			}
+			return false;
+		case quantification:
+			return holds(ArgumentCombination.resolveQuantification(
+					(Quantification) cond, problem, problem.getConstants()));
+		default:
+			return true;
+		}
+	}
+
+	/**
+	 * Checks if some processed fact of the relation matches the provided atom
+	 * under the (complete) binding, where each variable which is not an
+	 * operator argument can be bound to any constant of its type
+	 * (the same constant at all of its positions).
+	 */
+	private boolean holdsForSome(Condition c, Relation relation) {
+
+		List<Argument> args = c.getArguments();
+		int[] values = new int[args.size()];
+		int mask = 0;
+		for (int pos = 0; pos < args.size(); pos++) {
+			Argument arg = args.get(pos);
+			Integer var = arg.isConstant() ? null : variables.get(arg.getName());
+			if (arg.isConstant() || var != null) {
+				values[pos] = arg.isConstant() ? facts.getConstantId(arg) : binding[var];
+				mask |= 1 << pos;
+			}
+		}
+
+		// Facts with the constants at the bound positions
+		int[] candidates = null;
+		int numCandidates = relation.getNumProcessed();
+		if (mask != 0) {
+			Index index = relation.getIndex(mask);
+			int bucket = index.find(values);
+			if (bucket < 0) {
+				return false;
+			}
+			candidates = index.getFacts(bucket);
+			numCandidates = index.getNumFacts(bucket);
+		}
+
+		for (int i = 0; i < numCandidates; i++) {
+			int fact = (candidates == null ? i : candidates[i]);
+			if (matchesFreeVariables(args, mask, relation, fact)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if the constants of the fact at the unbound positions of the
+	 * atom are of the types of the respective variables, and equal where
+	 * a variable occurs multiple times.
+	 */
+	private boolean matchesFreeVariables(List<Argument> args, int mask, Relation relation, int fact) {
+
+		for (int pos = 0; pos < args.size(); pos++) {
+			if ((mask & (1 << pos)) != 0) continue;
+			int constant = relation.get(fact, pos);
+			Argument arg = args.get(pos);
+			if (!problem.isArgumentOfType(facts.getConstant(constant), arg.getType())) {
+				return false;
+			}
+			for (int other = pos+1; other < args.size(); other++) {
+				if (args.get(other).getName().equals(arg.getName())
+						&& relation.get(fact, other) != constant) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private String getName(Argument arg) {
+		Integer var = arg.isConstant() ? null : variables.get(arg.getName());
+		return var == null ? arg.getName() : facts.getConstant(binding[var]).getName();
+	}
+
+	private boolean isEqualityCondition(Condition cond) {
+		return cond.getPredicate().getName().equals("=");
+	}
+
+	/**
+	 * An atom of the body.
+	 */
+	private static class Pattern {
+
+		final Relation relation;
+		// See encode(List<Argument>)
+		final int[] args;
+
+		Pattern(Relation relation, int[] args) {
+			this.relation = relation;
+			this.args = args;
+		}
+	}
+}
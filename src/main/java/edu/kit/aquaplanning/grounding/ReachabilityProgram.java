@@ -0,0 +1,364 @@
+package edu.kit.aquaplanning.grounding;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.kit.aquaplanning.grounding.FactTable.Relation;
+import edu.kit.aquaplanning.model.lifted.AbstractCondition;
+import edu.kit.aquaplanning.model.lifted.Argument;
+import edu.kit.aquaplanning.model.lifted.Condition;
+import edu.kit.aquaplanning.model.lifted.ConditionSet;
+import edu.kit.aquaplanning.model.lifted.ConsequentialCondition;
+import edu.kit.aquaplanning.model.lifted.Operator;
+import edu.kit.aquaplanning.model.lifted.PlanningProblem;
+import edu.kit.aquaplanning.model.lifted.Quantification;
+import edu.kit.aquaplanning.util.Logger;
+
+/**
+ * The delete-relaxed reachability analysis of a planning problem in lifted
+ * form, expressed as a Datalog program: each operator is a rule which derives
+ * a fact for each reachable instantiation of the operator from the facts
+ * in its precondition, and the (conditional) effects of each operator are
+ * rules which derive the effects' atoms from the operator's facts. As in the
+ * RelaxedPlanningGraph, negative conditions, numeric conditions and derived
+ * predicates are assumed to hold.
+ * <br/>
+ * The program is evaluated semi-naively: each derived fact is processed
+ * exactly once, and it only fires the rules with a body atom of the fact's
+ * predicate, by joining the fact with the facts processed before it
+ * (see JoinRule).
+ * <br/>
+ * As the facts are processed in the order of their derivation, the layer of
+ * the relaxed planning graph where each fact and operator is reached first
+ * is known as well. The reachable operators are returned in the same order
+ * as by the layers of a RelaxedPlanningGraph.
+ */
+public class ReachabilityProgram {
+
+	private PlanningProblem problem;
+
+	/* Facts of each predicate and of each operator */
+	private FactTable facts;
+	private Relation[] operatorRelations;
+
+	private List<Rule> rules;
+	/* Rules to fire for each processed fact, by relation ID */
+	private List<List<Trigger>> triggers;
+	private List<List<Rule>> watchers;
+
+	/* Derived facts to process: pairs of relation ID and fact index */
+	private int[] queue;
+	private int queueStart;
+	private int queueEnd;
+	// Layer of the fact which is processed
+	private int layer;
+
+	private long numFirings;
+
+	/**
+	 * Creates the reachability program of the provided (preprocessed) problem,
+	 * with the facts of its initial state.
+	 */
+	public ReachabilityProgram(PlanningProblem problem) {
+
+		this.problem = problem;
+		this.facts = new FactTable(problem.getConstants());
+		this.rules = new ArrayList<>();
+		this.triggers = new ArrayList<>();
+		this.watchers = new ArrayList<>();
+		this.queue = new int[256];
+
+		// Rules of each operator
+		List<Operator> operators = problem.getOperators();
+		operatorRelations = new Relation[operators.size()];
+		for (int o = 0; o < operators.size(); o++) {
+			Operator op = operators.get(o);
+			operatorRelations[o] = facts.newRelation(op.getArguments().size());
+			addOperatorRules(op, operatorRelations[o]);
+		}
+
+		// Initial facts
+		for (Condition cond : problem.getInitialState()) {
+			if (!cond.isNegated() && facts.add(cond, 0)) {
+				enqueue(facts.getRelation(cond));
+			}
+		}
+	}
+
+	/**
+	 * Derives all reachable facts and operators.
+	 */
+	public void evaluate() {
+
+		// Rules without any body atoms fire exactly once
+		for (Rule rule : rules) {
+			if (rule.body.getNumAtoms() == 0) {
+				rule.body.fire();
+			}
+		}
+
+		// Process each derived fact
+		while (queueStart < queueEnd) {
+			Relation relation = facts.getRelation(queue[queueStart++]);
+			int fact = queue[queueStart++];
+			relation.process(fact);
+			layer = relation.getLayer(fact);
+
+			// Join the fact with the processed facts in each rule
+			// which contains an atom of the fact's predicate
+			for (Trigger trigger : getTriggers(relation)) {
+				trigger.rule.body.fire(trigger.atom, fact);
+			}
+			// Re-evaluate rules with complex conditions over the predicate
+			for (Rule rule : getWatchers(relation)) {
+				rule.body.fire();
+			}
+		}
+
+		int numFacts = 0;
+		for (Relation relation : facts.getRelations()) {
+			numFacts += relation.size();
+		}
+		int numOperators = 0;
+		for (Relation relation : operatorRelations) {
+			numOperators += relation.size();
+		}
+		Logger.log(Logger.INFO_V, "Reachability analysis: " + numFacts + " facts and "
+				+ numOperators + " operators reachable after " + numFirings + " rule firings.");
+	}
+
+	/**
+	 * Returns each reachable operator, with its arguments replaced
+	 * by constants. The operators are ordered by the layer where they
+	 * are reached first, then by the order of the problem's operators,
+	 * then by their arguments. Must be called after evaluate().
+	 */
+	public List<Operator> getReachableOperators() {
+
+		// Operator index and fact index of each reachable operator
+		List<int[]> instances = new ArrayList<>();
+		for (int o = 0; o < operatorRelations.length; o++) {
+			for (int fact = 0; fact < operatorRelations[o].size(); fact++) {
+				instances.add(new int[] {o, fact});
+			}
+		}
+		instances.sort((i1, i2) -> {
+			Relation r1 = operatorRelations[i1[0]];
+			Relation r2 = operatorRelations[i2[0]];
+			int cmp = Integer.compare(r1.getLayer(i1[1]), r2.getLayer(i2[1]));
+			if (cmp != 0 || i1[0] != i2[0]) {
+				return cmp != 0 ? cmp : Integer.compare(i1[0], i2[0]);
+			}
+			for (int pos = 0; pos < r1.getArity(); pos++) {
+				cmp = Integer.compare(r1.get(i1[1], pos), r1.get(i2[1], pos));
+				if (cmp != 0) return cmp;
+			}
+			return 0;
+		});
+
+		List<Operator> reachableOperators = new ArrayList<>();
+		for (int[] instance : instances) {
+			Operator op = problem.getOperators().get(instance[0]);
+			Relation relation = operatorRelations[instance[0]];
+			List<Argument> args = new ArrayList<>();
+			for (int pos = 0; pos < relation.getArity(); pos++) {
+				args.add(facts.getConstant(relation.get(instance[1], pos)));
+			}
+			reachableOperators.add(op.getOperatorWithGroundArguments(args));
+		}
+		return reachableOperators;
+	}
+
+	/**
+	 * Creates the rule deriving the facts of the provided operator
+	 * and the rules deriving the operator's effects.
+	 */
+	private void addOperatorRules(Operator op, Relation opRelation) {
+
+		// The atom of the operator's facts: all arguments in their order
+		int[] opArgs = new int[op.getArguments().size()];
+		for (int arg = 0; arg < opArgs.length; arg++) {
+			opArgs[arg] = arg;
+		}
+
+		// Operator rule: precondition => operator
+		Rule opRule = new Rule(new JoinRule(op, facts, problem), false);
+		opRule.body.addCondition(op.getPrecondition());
+		opRule.heads.add(opRelation);
+		opRule.headArgs.add(opArgs);
+		addRule(opRule);
+
+		// Effect rules: operator (and prerequisites) => effects
+		Rule effectRule = new Rule(new JoinRule(op, facts, problem), true);
+		effectRule.body.addAtom(opRelation, opArgs);
+		addEffect(effectRule, op.getEffect());
+		addRule(effectRule);
+	}
+
+	/**
+	 * Adds the atoms of the provided effect to the heads of the rule,
+	 * and adds a new rule for each conditional effect.
+	 */
+	private void addEffect(Rule rule, AbstractCondition effect) {
+
+		switch (effect.getConditionType()) {
+		case atomic:
+			Condition c = (Condition) effect;
+			int[] args = rule.body.encode(c.getArguments());
+			if (!c.isNegated() && args != null) {
+				rule.heads.add(facts.getRelation(c));
+				rule.headArgs.add(args);
+			}
+			break;
+		case conjunction:
+			for (AbstractCondition child : ((ConditionSet) effect).getConditions()) {
+				addEffect(rule, child);
+			}
+			break;
+		case quantification:
+			addEffect(rule, ArgumentCombination.resolveQuantification(
+					(Quantification) effect, problem, problem.getConstants()));
+			break;
+		case consequential:
+			// New rule: body of this rule and prerequisite => consequence
+			ConsequentialCondition cc = (ConsequentialCondition) effect;
+			Rule conditionalRule = new Rule(new JoinRule(rule.body), true);
+			conditionalRule.body.addCondition(cc.getPrerequisite());
+			addEffect(conditionalRule, cc.getConsequence());
+			addRule(conditionalRule);
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Registers the rule at the relations of its body atoms.
+	 */
+	private void addRule(Rule rule) {
+
+		if (rule.heads.isEmpty()) {
+			return;
+		}
+		rules.add(rule);
+		rule.body.setOnMatch(binding -> derive(rule, binding));
+		for (int atom = 0; atom < rule.body.getNumAtoms(); atom++) {
+			getTriggers(rule.body.getRelation(atom)).add(new Trigger(rule, atom));
+		}
+
+		// Complex conditions must be re-checked whenever
+		// a new fact of one of their predicates is processed
+		for (AbstractCondition cond : rule.body.getResidualConditions()) {
+			addWatcher(rule, cond);
+		}
+	}
+
+	private void addWatcher(Rule rule, AbstractCondition cond) {
+
+		switch (cond.getConditionType()) {
+		case atomic:
+			Condition c = (Condition) cond;
+			if (!c.getPredicate().getName().equals("=") && !c.isNegated()
+					&& !c.getPredicate().isDerived()) {
+				List<Rule> relationWatchers = getWatchers(facts.getRelation(c));
+				if (!relationWatchers.contains(rule)) {
+					relationWatchers.add(rule);
+				}
+			}
+			break;
+		case conjunction:
+		case disjunction:
+			for (AbstractCondition child : ((ConditionSet) cond).getConditions()) {
+				addWatcher(rule, child);
+			}
+			break;
+		case quantification:
+			addWatcher(rule, ((Quantification) cond).getCondition());
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Derives the heads of the rule under the provided binding.
+	 */
+	private void derive(Rule rule, int[] binding) {
+
+		numFirings++;
+		for (int head = 0; head < rule.heads.size(); head++) {
+			Relation relation = rule.heads.get(head);
+			int[] args = rule.headArgs.get(head);
+			int[] values = new int[args.length];
+			for (int pos = 0; pos < args.length; pos++) {
+				values[pos] = JoinRule.value(args[pos], binding);
+			}
+			if (relation.add(values, rule.isEffect ? layer+1 : layer)) {
+				enqueue(relation);
+			}
+		}
+	}
+
+	/**
+	 * Appends the last fact of the relation to the facts to process.
+	 */
+	private void enqueue(Relation relation) {
+
+		if (queueEnd + 2 > queue.length) {
+			// Compact or grow the queue
+			int length = queueEnd - queueStart;
+			int[] newQueue = (2 * length + 2 > queue.length) ? new int[2 * queue.length] : queue;
+			System.arraycopy(queue, queueStart, newQueue, 0, length);
+			queue = newQueue;
+			queueStart = 0;
+			queueEnd = length;
+		}
+		queue[queueEnd++] = relation.getId();
+		queue[queueEnd++] = relation.size() - 1;
+	}
+
+	private List<Trigger> getTriggers(Relation relation) {
+
+		while (triggers.size() <= relation.getId()) {
+			triggers.add(new ArrayList<>());
+		}
+		return triggers.get(relation.getId());
+	}
+
+	private List<Rule> getWatchers(Relation relation) {
+
+		while (watchers.size() <= relation.getId()) {
+			watchers.add(new ArrayList<>());
+		}
+		return watchers.get(relation.getId());
+	}
+
+	/**
+	 * A rule whose variables are the arguments of an operator.
+	 */
+	private static class Rule {
+
+		final JoinRule body;
+		// Derived atoms, with arguments encoded as by the body
+		final List<Relation> heads = new ArrayList<>();
+		final List<int[]> headArgs = new ArrayList<>();
+		// Do the heads belong to the next layer?
+		final boolean isEffect;
+
+		Rule(JoinRule body, boolean isEffect) {
+			this.body = body;
+			this.isEffect = isEffect;
+		}
+	}
+
+	private static class Trigger {
+
+		final Rule rule;
+		final int atom;
+
+		Trigger(Rule rule, int atom) {
+			this.rule = rule;
+			this.atom = atom;
+		}
+	}
+}
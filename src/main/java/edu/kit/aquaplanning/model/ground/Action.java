@@ -128,15 +128,19 @@ public class Action {
 	 */
 	public State apply(State state) {
 		
-		// Apply effects
-		State newState = new State(state);
+		// Apply effects (the copied state's hash is updated
+		// incrementally by each effect)
+		State newState;
 		if (complexEffect != null) {
 			// Complex effect
 			newState = complexEffect.applyTo(state);
+			// Bitset effects
+			newState.addAll(effectsPos);
+			newState.removeAll(effectsNeg);
+		} else {
+			// Bitset effects, fused with copying the state
+			newState = state.apply(effectsPos, effectsNeg);
 		}
-		// Bitset effects
-		newState.addAll(effectsPos);
-		newState.removeAll(effectsNeg);
 		
 		// Apply (simple) conditional effects, if applicable
 		for (ConditionalEffect condEffect : conditionalEffects) {
@@ -165,10 +169,12 @@ public class Action {
 	public State applyRelaxed(State state) {
 		
 		// Apply positive effects
-		State newState = new State(state);
+		State newState;
 		if (complexEffect != null) {
 			// Complex effect
 			newState = complexEffect.applyRelaxedTo(state);
+		} else {
+			newState = new State(state);
 		}
 		// Bitset effects
 		newState.addAll(effectsPos);
@@ -287,4 +293,20 @@ public class Action {
 	public AtomSet getEffectsNeg() {
 		return effectsNeg;
 	}
+
+	/**
+	 * Returns the complex precondition of this action, 
+	 * or null if it has none.
+	 */
+	public Precondition getComplexPrecondition() {
+		return complexPrecondition;
+	}
+
+	/**
+	 * Returns the complex effect of this action, 
+	 * or null if it has none.
+	 */
+	public Effect getComplexEffect() {
+		return complexEffect;
+	}
 }
@@ -0,0 +1,15 @@
+package edu.kit.aquaplanning.model.ground;
+
+/**
+ * A block of (up to) 64 consecutive actions of an ActionTable whose simple
+ * preconditions are hard-coded into generated code (see ActionCodeGenerator).
+ */
+public interface ActionBlock {
+
+	/**
+	 * Returns a mask of all actions of this block whose simple
+	 * preconditions hold in the provided state: bit i is set
+	 * iff the preconditions of the i-th action of the block hold.
+	 */
+	public long getApplicable(State state);
+}
@@ -0,0 +1,308 @@
+package edu.kit.aquaplanning.model.ground;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Generates specialized code for the simple preconditions of a list
+ * of actions at runtime. For each block of (up to MAX_BLOCK_SIZE) 
+ * consecutive actions, a class is generated which implements ActionBlock: a single method
+ * reads each word of the state needed by the block once and then checks
+ * the actions one after another by straight-line code, with the word
+ * masks of all actions hard-coded as constants. The JIT compiles each
+ * check into a handful of machine instructions, without any loops,
+ * array accesses or calls. (Dispatching to code specialized for single
+ * actions, e.g. for their effects, does not pay off: the indirect jumps
+ * needed are more expensive than the loops over the ActionTable arrays.)
+ *
+ * The classes are compiled in memory by the system Java compiler and
+ * loaded by a dedicated class loader, so no additional dependencies
+ * are needed. If no compiler is available (i.e. when running on a
+ * plain JRE), no code can be generated.
+ *
+ * The blocks are also limited by the estimated size of their bytecode: 
+ * HotSpot does not JIT-compile methods of more than 8000 bytes 
+ * (HugeMethodLimit), and actions with many precondition words 
+ * would exceed this size with a full block.
+ */
+public class ActionCodeGenerator {
+
+	/**
+	 * The maximum amount of actions per generated class
+	 * (one bit of an applicability mask per action).
+	 */
+	public static final int MAX_BLOCK_SIZE = 64;
+
+	/**
+	 * The maximum estimated bytecode size of a generated method.
+	 */
+	public static final int MAX_CODE_SIZE = 8000;
+
+	/* Upper bounds of the bytecode sizes of the generated statements:
+	 * loading a word of the state, checking a positive or negative
+	 * mask of a word, and setting the bit of an action */
+	private static final int WORD_LOAD_SIZE = 11;
+	private static final int POS_CHECK_SIZE = 15;
+	private static final int NEG_CHECK_SIZE = 13;
+	private static final int ACTION_SIZE = 12;
+
+	private static final String PACKAGE = "edu.kit.aquaplanning.model.ground.generated";
+
+	/**
+	 * Partitions the provided actions into blocks of consecutive actions,
+	 * each with at most MAX_BLOCK_SIZE actions and (unless it consists of
+	 * a single action) an estimated code size of at most MAX_CODE_SIZE.
+	 * Returns the index of the first action of each block, followed by
+	 * the amount of actions.
+	 */
+	public static int[] getBlockStarts(List<Action> actions) {
+
+		List<Integer> starts = new ArrayList<>();
+		Set<Integer> words = new HashSet<>();
+		int codeSize = 0;
+		for (int a = 0; a < actions.size(); a++) {
+			AtomSet pos = actions.get(a).getPreconditionsPos();
+			AtomSet neg = actions.get(a).getPreconditionsNeg();
+			int actionSize = ACTION_SIZE;
+			int newWords = 0;
+			int numWords = Math.max(pos.numWords(), neg.numWords());
+			for (int w = 0; w < numWords; w++) {
+				if (pos.getWord(w) != 0) actionSize += POS_CHECK_SIZE;
+				if (neg.getWord(w) != 0) actionSize += NEG_CHECK_SIZE;
+				if ((pos.getWord(w) | neg.getWord(w)) != 0 && !words.contains(w)) newWords++;
+			}
+			boolean full = starts.isEmpty() || a - starts.get(starts.size()-1) == MAX_BLOCK_SIZE
+					|| codeSize + actionSize + newWords * WORD_LOAD_SIZE > MAX_CODE_SIZE;
+			if (full) {
+				// Begin a new block
+				starts.add(a);
+				words.clear();
+				codeSize = 0;
+			}
+			for (int w = 0; w < numWords; w++) {
+				if ((pos.getWord(w) | neg.getWord(w)) != 0 && words.add(w)) {
+					codeSize += WORD_LOAD_SIZE;
+				}
+			}
+			codeSize += actionSize;
+		}
+		int[] blockStarts = new int[starts.size() + 1];
+		for (int block = 0; block < starts.size(); block++) {
+			blockStarts[block] = starts.get(block);
+		}
+		blockStarts[starts.size()] = actions.size();
+		return blockStarts;
+	}
+
+	/**
+	 * Generates, compiles and loads the code for the provided actions,
+	 * partitioned into blocks as by getBlockStarts. The simple preconditions
+	 * of action i are checked by the block b with blockStarts[b] <= i < 
+	 * blockStarts[b+1], as bit i - blockStarts[b] of its mask.
+	 * Returns null if no Java compiler is available, and throws an
+	 * IllegalStateException if the code could not be compiled or loaded.
+	 */
+	public static ActionBlock[] generate(List<Action> actions, int[] blockStarts) {
+
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null) {
+			return null;
+		}
+
+		// Generate the source code of each block
+		int numBlocks = blockStarts.length - 1;
+		List<JavaFileObject> sources = new ArrayList<>();
+		for (int block = 0; block < numBlocks; block++) {
+			sources.add(new Source("Block" + block, generateBlock("Block" + block, 
+					actions.subList(blockStarts[block], blockStarts[block+1]))));
+		}
+
+		// Compile all blocks in memory
+		Map<String, ByteArrayOutputStream> classes = new HashMap<>();
+		StandardJavaFileManager standardManager = compiler.getStandardFileManager(null, null, null);
+		JavaFileManager fileManager = new ForwardingJavaFileManager<JavaFileManager>(standardManager) {
+			@Override
+			public JavaFileObject getJavaFileForOutput(Location location, String className,
+					Kind kind, FileObject sibling) {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				classes.put(className, out);
+				return new SimpleJavaFileObject(URI.create("mem:///"
+						+ className.replace('.', '/') + kind.extension), kind) {
+					@Override
+					public OutputStream openOutputStream() {
+						return out;
+					}
+				};
+			}
+		};
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		List<String> options = Arrays.asList("-classpath", getClassPath(), "-g:none", "-proc:none", "-nowarn");
+		boolean success = compiler.getTask(null, fileManager, diagnostics, options, null, sources).call();
+		if (!success) {
+			String message = "Generated action code could not be compiled";
+			for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+				if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+					message += ": " + diagnostic.getMessage(null);
+					break;
+				}
+			}
+			throw new IllegalStateException(message);
+		}
+
+		// Load and instantiate all blocks
+		Map<String, byte[]> bytecode = new HashMap<>();
+		for (Map.Entry<String, ByteArrayOutputStream> entry : classes.entrySet()) {
+			bytecode.put(entry.getKey(), entry.getValue().toByteArray());
+		}
+		Loader loader = new Loader(ActionBlock.class.getClassLoader(), bytecode);
+		ActionBlock[] blocks = new ActionBlock[numBlocks];
+		try {
+			for (int block = 0; block < numBlocks; block++) {
+				blocks[block] = (ActionBlock) loader.loadClass(PACKAGE + ".Block" + block)
+						.getDeclaredConstructor().newInstance();
+			}
+		} catch (ReflectiveOperationException | LinkageError e) {
+			throw new IllegalStateException("Generated action code could not be loaded", e);
+		}
+		return blocks;
+	}
+
+	/**
+	 * Returns the source code of a class which implements ActionBlock
+	 * for the provided actions.
+	 */
+	private static String generateBlock(String className, List<Action> actions) {
+
+		StringBuilder out = new StringBuilder();
+		out.append("package ").append(PACKAGE).append(";\n");
+		out.append("import edu.kit.aquaplanning.model.ground.ActionBlock;\n");
+		out.append("import edu.kit.aquaplanning.model.ground.State;\n");
+		out.append("public final class ").append(className).append(" implements ActionBlock {\n");
+
+		out.append("public long getApplicable(State s) {\n");
+		TreeSet<Integer> words = new TreeSet<>();
+		for (Action action : actions) {
+			addWords(action.getPreconditionsPos(), words);
+			addWords(action.getPreconditionsNeg(), words);
+		}
+		for (int w : words) {
+			out.append("long w").append(w).append(" = s.getWord(").append(w).append(");\n");
+		}
+		out.append("long r = 0L;\n");
+		for (int a = 0; a < actions.size(); a++) {
+			AtomSet pos = actions.get(a).getPreconditionsPos();
+			AtomSet neg = actions.get(a).getPreconditionsNeg();
+			List<String> conditions = new ArrayList<>();
+			int numWords = Math.max(pos.numWords(), neg.numWords());
+			for (int w = 0; w < numWords; w++) {
+				long posMask = pos.getWord(w);
+				long negMask = neg.getWord(w);
+				if (posMask != 0) {
+					conditions.add("(w" + w + " & " + posMask + "L) == " + posMask + "L");
+				}
+				if (negMask != 0) {
+					conditions.add("(w" + w + " & " + negMask + "L) == 0L");
+				}
+			}
+			if (!conditions.isEmpty()) {
+				out.append("if (").append(String.join(" && ", conditions)).append(") ");
+			}
+			out.append("r |= ").append(1L << a).append("L;\n");
+		}
+		out.append("return r;\n}\n");
+
+		out.append("}\n");
+		return out.toString();
+	}
+
+	private static void addWords(AtomSet atoms, TreeSet<Integer> words) {
+		for (int w = 0; w < atoms.numWords(); w++) {
+			if (atoms.getWord(w) != 0)
+				words.add(w);
+		}
+	}
+
+	/**
+	 * The class path needed to compile the generated code: the location
+	 * of this class in addition to the class path of the JVM (which may
+	 * not contain it, e.g. if started via a launcher).
+	 */
+	private static String getClassPath() {
+		String classPath = System.getProperty("java.class.path");
+		try {
+			CodeSource source = ActionBlock.class.getProtectionDomain().getCodeSource();
+			if (source != null) {
+				classPath = Paths.get(source.getLocation().toURI()).toString()
+						+ File.pathSeparator + classPath;
+			}
+		} catch (Exception e) {
+			// Fall back to the class path of the JVM
+		}
+		return classPath;
+	}
+
+	/**
+	 * Source code of a generated class, held in memory.
+	 */
+	private static class Source extends SimpleJavaFileObject {
+
+		private String code;
+
+		Source(String className, String code) {
+			super(URI.create("string:///" + PACKAGE.replace('.', '/') + "/"
+					+ className + Kind.SOURCE.extension), Kind.SOURCE);
+			this.code = code;
+		}
+
+		@Override
+		public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+			return code;
+		}
+	}
+
+	/**
+	 * Loads the compiled generated classes from memory.
+	 */
+	private static class Loader extends ClassLoader {
+
+		private Map<String, byte[]> bytecode;
+
+		Loader(ClassLoader parent, Map<String, byte[]> bytecode) {
+			super(parent);
+			this.bytecode = bytecode;
+		}
+
+		@Override
+		protected Class<?> findClass(String name) throws ClassNotFoundException {
+			byte[] bytes = bytecode.get(name);
+			if (bytes == null) {
+				throw new ClassNotFoundException(name);
+			}
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+	}
+}
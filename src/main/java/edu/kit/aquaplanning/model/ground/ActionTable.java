@@ -0,0 +1,373 @@
+package edu.kit.aquaplanning.model.ground;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The actions of a ground planning problem, compiled into flat int arrays
+ * (a "struct of arrays") for fast applicability checks and successor
+ * computations which only loop over primitive values.
+ *
+ * For each action, the IDs of the atoms in its simple positive and
+ * negative preconditions and in its simple positive and negative effects
+ * are stored in compressed form: the atoms of action i are found at the
+ * indices start[i] (inclusive) to start[i+1] (exclusive) of the respective
+ * array, in ascending order.
+ *
+ * In addition, the simple preconditions and effects of each action are
+ * stored as masks of 64-bit words of the atom set: for each word touched
+ * by the action, its index, the masks of its positive and negative atoms,
+ * again in compressed form. Applicability checks and successor computations
+ * then process whole words instead of single atoms.
+ *
+ * Optionally, specialized code with hard-coded word masks can be
+ * generated for the simple preconditions, which computes the applicable
+ * actions of a whole block of actions at once (see generateCode()).
+ *
+ * Complex preconditions are checked in addition to the simple ones.
+ * Actions with complex or conditional effects are applied by the
+ * respective Action object itself. The table is immutable after
+ * construction (except for generating code) and may be shared 
+ * between multiple threads.
+ */
+public class ActionTable {
+
+	private List<Action> actions;
+	private int numActions;
+
+	private int[] preconditionPosStart;
+	private int[] preconditionsPos;
+	private int[] preconditionNegStart;
+	private int[] preconditionsNeg;
+	private int[] effectPosStart;
+	private int[] effectsPos;
+	private int[] effectNegStart;
+	private int[] effectsNeg;
+
+	private int[] preconditionWordStart;
+	private int[] preconditionWords;
+	private long[] preconditionPosMasks;
+	private long[] preconditionNegMasks;
+	private int[] effectWordStart;
+	private int[] effectWords;
+	private long[] effectPosMasks;
+	private long[] effectNegMasks;
+
+	/**
+	 * The complex precondition of each action, or null if it has none.
+	 */
+	private Precondition[] complexPreconditions;
+	/**
+	 * True for each action with a complex effect or conditional effects.
+	 */
+	private boolean[] hasComplexEffects;
+
+	private Map<Action, Integer> indices;
+
+	/**
+	 * Generated code for the simple preconditions of each block
+	 * of actions, or null if there is none, and the actions of
+	 * each block with complex preconditions.
+	 */
+	private ActionBlock[] blocks;
+	private int[] blockStarts;
+	private long[] complexPreconditionMasks;
+
+	/**
+	 * Compiles the provided list of actions. The index of an action
+	 * inside the table is its index in the list.
+	 */
+	public ActionTable(List<Action> actions) {
+
+		this.actions = actions;
+		numActions = actions.size();
+		preconditionPosStart = new int[numActions+1];
+		preconditionNegStart = new int[numActions+1];
+		effectPosStart = new int[numActions+1];
+		effectNegStart = new int[numActions+1];
+		for (int a = 0; a < numActions; a++) {
+			Action action = actions.get(a);
+			preconditionPosStart[a+1] = preconditionPosStart[a] + action.getPreconditionsPos().numAtoms();
+			preconditionNegStart[a+1] = preconditionNegStart[a] + action.getPreconditionsNeg().numAtoms();
+			effectPosStart[a+1] = effectPosStart[a] + action.getEffectsPos().numAtoms();
+			effectNegStart[a+1] = effectNegStart[a] + action.getEffectsNeg().numAtoms();
+		}
+		preconditionsPos = new int[preconditionPosStart[numActions]];
+		preconditionsNeg = new int[preconditionNegStart[numActions]];
+		effectsPos = new int[effectPosStart[numActions]];
+		effectsNeg = new int[effectNegStart[numActions]];
+
+		complexPreconditions = new Precondition[numActions];
+		hasComplexEffects = new boolean[numActions];
+		indices = new HashMap<>();
+		for (int a = 0; a < numActions; a++) {
+			Action action = actions.get(a);
+			fill(action.getPreconditionsPos(), preconditionsPos, preconditionPosStart[a]);
+			fill(action.getPreconditionsNeg(), preconditionsNeg, preconditionNegStart[a]);
+			fill(action.getEffectsPos(), effectsPos, effectPosStart[a]);
+			fill(action.getEffectsNeg(), effectsNeg, effectNegStart[a]);
+			complexPreconditions[a] = action.getComplexPrecondition();
+			hasComplexEffects[a] = action.getComplexEffect() != null
+					|| !action.getConditionalEffects().isEmpty();
+			indices.putIfAbsent(action, a);
+		}
+
+		// Word masks
+		preconditionWordStart = new int[numActions+1];
+		effectWordStart = new int[numActions+1];
+		for (int a = 0; a < numActions; a++) {
+			Action action = actions.get(a);
+			preconditionWordStart[a+1] = preconditionWordStart[a]
+					+ countWords(action.getPreconditionsPos(), action.getPreconditionsNeg());
+			effectWordStart[a+1] = effectWordStart[a]
+					+ countWords(action.getEffectsPos(), action.getEffectsNeg());
+		}
+		preconditionWords = new int[preconditionWordStart[numActions]];
+		preconditionPosMasks = new long[preconditionWords.length];
+		preconditionNegMasks = new long[preconditionWords.length];
+		effectWords = new int[effectWordStart[numActions]];
+		effectPosMasks = new long[effectWords.length];
+		effectNegMasks = new long[effectWords.length];
+		for (int a = 0; a < numActions; a++) {
+			Action action = actions.get(a);
+			fillWords(action.getPreconditionsPos(), action.getPreconditionsNeg(),
+					preconditionWords, preconditionPosMasks, preconditionNegMasks,
+					preconditionWordStart[a]);
+			fillWords(action.getEffectsPos(), action.getEffectsNeg(),
+					effectWords, effectPosMasks, effectNegMasks, effectWordStart[a]);
+		}
+	}
+
+	private static void fill(AtomSet atomSet, int[] array, int start) {
+		for (int i = atomSet.nextSetBit(0); i >= 0; i = atomSet.nextSetBit(i+1)) {
+			array[start++] = i;
+		}
+	}
+
+	/**
+	 * The amount of words in which at least one of the provided sets
+	 * contains an atom.
+	 */
+	private static int countWords(AtomSet pos, AtomSet neg) {
+		int count = 0;
+		int numWords = Math.max(pos.numWords(), neg.numWords());
+		for (int w = 0; w < numWords; w++) {
+			if ((pos.getWord(w) | neg.getWord(w)) != 0)
+				count++;
+		}
+		return count;
+	}
+
+	private static void fillWords(AtomSet pos, AtomSet neg, int[] words,
+			long[] posMasks, long[] negMasks, int start) {
+		int numWords = Math.max(pos.numWords(), neg.numWords());
+		for (int w = 0; w < numWords; w++) {
+			if ((pos.getWord(w) | neg.getWord(w)) != 0) {
+				words[start] = w;
+				posMasks[start] = pos.getWord(w);
+				negMasks[start] = neg.getWord(w);
+				start++;
+			}
+		}
+	}
+
+	/**
+	 * Generates, compiles and loads specialized code for the simple
+	 * preconditions of all actions, which is then used by
+	 * getApplicableMask. Must be called before the table is shared
+	 * with other threads. Returns false if no code could be
+	 * generated because no Java compiler is available, and throws
+	 * an IllegalStateException if the generated code could not be
+	 * compiled or loaded. In both cases, the table remains usable
+	 * without generated code.
+	 */
+	public boolean generateCode() {
+
+		int[] blockStarts = ActionCodeGenerator.getBlockStarts(actions);
+		ActionBlock[] blocks = ActionCodeGenerator.generate(actions, blockStarts);
+		if (blocks == null) {
+			return false;
+		}
+		complexPreconditionMasks = new long[blocks.length];
+		for (int block = 0; block < blocks.length; block++) {
+			for (int a = blockStarts[block]; a < blockStarts[block+1]; a++) {
+				if (complexPreconditions[a] != null) {
+					complexPreconditionMasks[block] |= 1L << (a - blockStarts[block]);
+				}
+			}
+		}
+		this.blockStarts = blockStarts;
+		this.blocks = blocks;
+		return true;
+	}
+
+	/**
+	 * True iff code has been generated for this table (see generateCode()).
+	 */
+	public boolean hasGeneratedCode() {
+		return blocks != null;
+	}
+
+	/**
+	 * The amount of blocks of actions with generated code: block b consists
+	 * of (up to 64) consecutive actions, beginning at getFirstAction(b).
+	 */
+	public int getNumBlocks() {
+		return blocks == null ? 0 : blocks.length;
+	}
+
+	/**
+	 * Returns the index of the first action of the provided block.
+	 * Requires that code has been generated (see generateCode()).
+	 */
+	public int getFirstAction(int block) {
+		return blockStarts[block];
+	}
+
+	/**
+	 * Returns a mask of the actions of the provided block (bit i standing
+	 * for the action of index getFirstAction(block)+i) which are applicable in the
+	 * provided state, computed by generated code.
+	 * Requires that code has been generated (see generateCode()).
+	 */
+	public long getApplicableMask(int block, State state) {
+
+		long mask = blocks[block].getApplicable(state);
+		// Check the complex preconditions of the remaining actions
+		for (long bits = mask & complexPreconditionMasks[block]; bits != 0; bits &= bits - 1) {
+			int action = blockStarts[block] + Long.numberOfTrailingZeros(bits);
+			if (!complexPreconditions[action].holds(state)) {
+				mask &= ~Long.lowestOneBit(bits);
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 * True iff the action of the provided index is applicable
+	 * in the provided state.
+	 */
+	public boolean isApplicable(int action, State state) {
+
+		// Check simple preconditions, one word at a time
+		for (int i = preconditionWordStart[action]; i < preconditionWordStart[action+1]; i++) {
+			long word = state.getWord(preconditionWords[i]);
+			if ((word & preconditionPosMasks[i]) != preconditionPosMasks[i]
+					|| (word & preconditionNegMasks[i]) != 0)
+				return false;
+		}
+		// Check complex precondition, if present
+		Precondition complexPre = complexPreconditions[action];
+		return complexPre == null || complexPre.holds(state);
+	}
+
+	/**
+	 * True iff the action of the provided index is applicable
+	 * in the provided state in a delete-relaxed sense.
+	 */
+	public boolean isApplicableRelaxed(int action, State state) {
+
+		for (int i = preconditionWordStart[action]; i < preconditionWordStart[action+1]; i++) {
+			if ((state.getWord(preconditionWords[i]) & preconditionPosMasks[i]) != preconditionPosMasks[i])
+				return false;
+		}
+		Precondition complexPre = complexPreconditions[action];
+		return complexPre == null || complexPre.holdsRelaxed(state);
+	}
+
+	/**
+	 * Returns the result of applying the action of the provided index
+	 * to the provided state. Attention: This method does not check whether
+	 * the action is applicable in this state!
+	 */
+	public State apply(int action, State state) {
+
+		if (hasComplexEffects[action]) {
+			return actions.get(action).apply(state);
+		}
+		// Copy the state and apply the effect masks in a single pass
+		return state.apply(effectWords, effectPosMasks, effectNegMasks,
+				effectWordStart[action], effectWordStart[action+1]);
+	}
+
+	/**
+	 * Adds all atoms which become true when applying the action of the
+	 * provided index to the provided state in a delete-relaxed sense
+	 * to the target state. Attention: This method does not check whether
+	 * the action is applicable in this state!
+	 */
+	public void applyRelaxed(int action, State state, State target) {
+
+		if (hasComplexEffects[action]) {
+			target.addAllTrueAtomsFrom(actions.get(action).applyRelaxed(state));
+		} else {
+			target.setAll(effectsPos, effectPosStart[action], effectPosStart[action+1], true);
+		}
+	}
+
+	/**
+	 * Returns the index of the provided action inside this table,
+	 * or -1 if it is not contained.
+	 */
+	public int indexOf(Action action) {
+		Integer index = indices.get(action);
+		return index == null ? -1 : index;
+	}
+
+	public Action getAction(int action) {
+		return actions.get(action);
+	}
+
+	public int getNumActions() {
+		return numActions;
+	}
+
+	/**
+	 * Start indices of each action's positive simple preconditions
+	 * (compressed form).
+	 */
+	public int[] getPreconditionPosStart() {
+		return preconditionPosStart;
+	}
+
+	public int[] getPreconditionsPos() {
+		return preconditionsPos;
+	}
+
+	/**
+	 * Start indices of each action's negative simple preconditions
+	 * (compressed form).
+	 */
+	public int[] getPreconditionNegStart() {
+		return preconditionNegStart;
+	}
+
+	public int[] getPreconditionsNeg() {
+		return preconditionsNeg;
+	}
+
+	/**
+	 * Start indices of each action's positive simple effects
+	 * (compressed form).
+	 */
+	public int[] getEffectPosStart() {
+		return effectPosStart;
+	}
+
+	public int[] getEffectsPos() {
+		return effectsPos;
+	}
+
+	/**
+	 * Start indices of each action's negative simple effects
+	 * (compressed form).
+	 */
+	public int[] getEffectNegStart() {
+		return effectNegStart;
+	}
+
+	public int[] getEffectsNeg() {
+		return effectsNeg;
+	}
+}
@@ -1,23 +1,33 @@
 package edu.kit.aquaplanning.model.ground;
 
-import java.util.BitSet;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * A set of atoms. Can be used to represent a set of true atoms
  * XOR a set of false atoms (not both at the same time).
+ *
+ * The set is stored as a plain array of 64-bit words, where the atom
+ * of ID i is contained iff bit (i % 64) of word (i / 64) is set.
+ * Set operations work on entire words at once. The array grows as needed;
+ * trailing zero words do not make a difference for equality.
  */
 public class AtomSet {
 
-	private BitSet atoms;
+	private long[] words;
+	/**
+	 * True iff this set is shared by several states (see State), which 
+	 * copy it before modifying it. Once set, the flag is never cleared.
+	 */
+	private volatile boolean immutable;
 
 	/**
 	 * Initialized an atom set from a list of Atom objects.
 	 */
 	public AtomSet(List<Atom> atoms) {
-		this.atoms = new BitSet(atoms.size());
+		this.words = new long[wordsFor(atoms.size())];
 		for (Atom atom : atoms) {
-			this.atoms.set(atom.getId(), atom.getValue());
+			set(atom.getId(), atom.getValue());
 		}
 	}
 
@@ -26,47 +36,133 @@ public class AtomSet {
 	 * Only sets the atoms in the list which have the provided value.
 	 */
 	public AtomSet(List<Atom> atoms, boolean filteredValue) {
-		this.atoms = new BitSet(atoms.size());
+		this.words = new long[wordsFor(atoms.size())];
 		for (Atom atom : atoms) {
 			if (atom.getValue() == filteredValue)
-				this.atoms.set(atom.getId(), true);
+				set(atom.getId(), true);
 		}
 	}
-	
+
+	/**
+	 * Initializes an atom set from an array of 64-bit words
+	 * as returned by toLongArray().
+	 */
+	public AtomSet(long[] words) {
+		this.words = words.clone();
+	}
+
+	private AtomSet(long[] words, boolean copy) {
+		this.words = (copy ? words.clone() : words);
+	}
+
 	/**
 	 * True iff the provided atom is contained in this set
 	 * (or, if the atom has a value of false, it is *not* contained).
 	 */
 	public boolean get(Atom atom) {
-		return atom.getValue() == atoms.get(atom.getId());
+		return atom.getValue() == get(atom.getId());
 	}
-	
+
 	/**
 	 * True iff the atom of the provided ID is contained in this set..
 	 */
 	public boolean get(int id) {
-		return atoms.get(id);
+		int word = id >> 6;
+		return word < words.length && (words[word] & (1L << id)) != 0;
+	}
+
+	/**
+	 * Returns the word of the provided index, i.e. the atoms with IDs
+	 * 64*index to 64*index+63 as a bit mask (zero beyond the allocated words).
+	 */
+	public long getWord(int index) {
+		return index < words.length ? words[index] : 0;
+	}
+
+	/**
+	 * Replaces the word of the provided index by the provided bit mask.
+	 */
+	public void setWord(int index, long word) {
+		if (index >= words.length) {
+			if (word == 0)
+				return;
+			ensureWords(index + 1);
+		}
+		words[index] = word;
+	}
+
+	/**
+	 * Marks this set as immutable (see isImmutable()).
+	 */
+	public void markImmutable() {
+		if (!immutable) {
+			immutable = true;
+		}
+	}
+
+	/**
+	 * True iff this set has been marked as immutable: it must be copied
+	 * instead of modified. (Not enforced by the modifying methods.)
+	 */
+	public boolean isImmutable() {
+		return immutable;
 	}
-	
+
+	/**
+	 * The amount of allocated words (some of which may be zero).
+	 */
+	public int numWords() {
+		return words.length;
+	}
+
+	/**
+	 * Returns the ID of the first atom contained in this set whose ID
+	 * is greater than or equal to the provided ID, or -1 if there is none.
+	 */
+	public int nextSetBit(int fromId) {
+		int word = fromId >> 6;
+		if (word >= words.length) {
+			return -1;
+		}
+		long bits = words[word] & (-1L << fromId);
+		while (true) {
+			if (bits != 0) {
+				return (word << 6) + Long.numberOfTrailingZeros(bits);
+			}
+			if (++word == words.length) {
+				return -1;
+			}
+			bits = words[word];
+		}
+	}
+
 	/**
 	 * True iff all atoms which are set in the provided other AtomSet
 	 * are also contained in this AtomSet.
 	 */
 	public boolean all(AtomSet other) {
-		for (int i = other.atoms.nextSetBit(0); i >= 0; i = other.atoms.nextSetBit(i+1)) {
-			if (!atoms.get(i))
+		long[] otherWords = other.words;
+		int common = Math.min(words.length, otherWords.length);
+		for (int i = 0; i < common; i++) {
+			if ((otherWords[i] & ~words[i]) != 0)
+				return false;
+		}
+		for (int i = common; i < otherWords.length; i++) {
+			if (otherWords[i] != 0)
 				return false;
 		}
 		return true;
 	}
-	
+
 	/**
-	 * True iff none of the atoms which are set in the provided 
+	 * True iff none of the atoms which are set in the provided
 	 * other AtomSet are contained in this AtomSet.
 	 */
 	public boolean none(AtomSet other) {
-		for (int i = other.atoms.nextSetBit(0); i >= 0; i = other.atoms.nextSetBit(i+1)) {
-			if (atoms.get(i))
+		long[] otherWords = other.words;
+		int common = Math.min(words.length, otherWords.length);
+		for (int i = 0; i < common; i++) {
+			if ((otherWords[i] & words[i]) != 0)
 				return false;
 		}
 		return true;
@@ -80,67 +176,189 @@ public class AtomSet {
 	 * 		The logical AND of this and the other AtomSet
 	 */
 	public AtomSet and(AtomSet other) {
-		AtomSet b = (AtomSet) this.clone();
-		b.atoms.and(other.atoms);
-		return b;
+		long[] result = new long[Math.min(words.length, other.words.length)];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = words[i] & other.words[i];
+		}
+		return new AtomSet(result, false);
+	}
+
+	/**
+	 * Returns a new AtomSet containing all atoms of this set
+	 * which are not contained in the other provided AtomSet.
+	 */
+	public AtomSet minus(AtomSet other) {
+		long[] result = words.clone();
+		int common = Math.min(result.length, other.words.length);
+		for (int i = 0; i < common; i++) {
+			result[i] &= ~other.words[i];
+		}
+		return new AtomSet(result, false);
 	}
-	
+
+	/**
+	 * Returns a new AtomSet containing all atoms of this set and all atoms
+	 * of the first provided set, but none of the atoms of the second provided
+	 * set (i.e. the result of applying positive and negative effects).
+	 */
+	public AtomSet apply(AtomSet add, AtomSet delete) {
+		long[] result = Arrays.copyOf(words, Math.max(words.length, add.words.length));
+		for (int i = 0; i < add.words.length; i++) {
+			result[i] |= add.words[i];
+		}
+		int common = Math.min(result.length, delete.words.length);
+		for (int i = 0; i < common; i++) {
+			result[i] &= ~delete.words[i];
+		}
+		return new AtomSet(result, false);
+	}
+
+	/**
+	 * Returns a new AtomSet which results from setting, for each of the
+	 * provided word indices (at positions from (inclusive) to to (exclusive)
+	 * of the respective arrays), the bits of the add mask and then clearing
+	 * the bits of the delete mask in the respective word of this set.
+	 */
+	public AtomSet apply(int[] wordIndices, long[] addMasks, long[] deleteMasks, int from, int to) {
+		int length = words.length;
+		if (to > from) {
+			length = Math.max(length, wordIndices[to-1] + 1);
+		}
+		long[] result = Arrays.copyOf(words, length);
+		for (int i = from; i < to; i++) {
+			int word = wordIndices[i];
+			result[word] = (result[word] | addMasks[i]) & ~deleteMasks[i];
+		}
+		return new AtomSet(result, false);
+	}
+
 	/**
 	 * Sets the provided atom as contained in this set.
 	 */
 	public void set(Atom atom) {
-		this.atoms.set(atom.getId(), atom.getValue());
+		set(atom.getId(), atom.getValue());
 	}
-	
+
+	/**
+	 * Sets the atom of the provided ID as contained (value true)
+	 * or not contained (value false) in this set.
+	 */
+	public void set(int id, boolean value) {
+		int word = id >> 6;
+		if (value) {
+			ensureWords(word + 1);
+			words[word] |= (1L << id);
+		} else if (word < words.length) {
+			words[word] &= ~(1L << id);
+		}
+	}
+
 	/**
 	 * In this AtomSet, sets all atoms which are contained
 	 * in the other provided AtomSet.
 	 */
 	public void applyTrueAtoms(AtomSet other) {
-		this.atoms.or(other.atoms);
+		ensureWords(other.words.length);
+		for (int i = 0; i < other.words.length; i++) {
+			words[i] |= other.words[i];
+		}
 	}
-	
+
 	/**
 	 * In this AtomSet, *unsets* all atoms which are contained
 	 * in the other provided AtomSet.
 	 */
 	public void applyTrueAtomsAsFalse(AtomSet other) {
-		this.atoms.andNot(other.atoms);
+		int common = Math.min(words.length, other.words.length);
+		for (int i = 0; i < common; i++) {
+			words[i] &= ~other.words[i];
+		}
 	}
-	
+
 	/**
 	 * The amount of atoms contained in this set.
 	 */
 	public int numAtoms() {
-		return atoms.cardinality();
+		int numAtoms = 0;
+		for (long word : words) {
+			numAtoms += Long.bitCount(word);
+		}
+		return numAtoms;
+	}
+
+	/**
+	 * Returns a new array of 64-bit words containing all bits of this set,
+	 * without any trailing zero words (i.e. equal sets have equal arrays).
+	 */
+	public long[] toLongArray() {
+		return Arrays.copyOf(words, wordsInUse());
 	}
 
 	/**
 	 * The internal size of the allocated set.
 	 */
 	public int size() {
-		return this.atoms.size();
+		return words.length * 64;
+	}
+
+	/**
+	 * The highest ID of a contained atom plus one
+	 * (or zero if the set is empty).
+	 */
+	public int length() {
+		int wordsInUse = wordsInUse();
+		if (wordsInUse == 0) {
+			return 0;
+		}
+		return 64 * wordsInUse - Long.numberOfLeadingZeros(words[wordsInUse-1]);
+	}
+
+	/**
+	 * The amount of words up to (and including) the last non-zero word.
+	 */
+	private int wordsInUse() {
+		int wordsInUse = words.length;
+		while (wordsInUse > 0 && words[wordsInUse-1] == 0) {
+			wordsInUse--;
+		}
+		return wordsInUse;
+	}
+
+	private void ensureWords(int numWords) {
+		if (numWords > words.length) {
+			words = Arrays.copyOf(words, Math.max(2 * words.length, numWords));
+		}
+	}
+
+	private static int wordsFor(int numAtoms) {
+		return (numAtoms + 63) >> 6;
 	}
-	
-	private AtomSet() {}
+
 	@Override
 	protected Object clone() {
-		AtomSet newSet = new AtomSet();
-		newSet.atoms = (BitSet) this.atoms.clone();
-		return newSet;
+		return new AtomSet(words, true);
 	}
-	
+
 	@Override
 	public String toString() {
-		return atoms.toString();
+		StringBuilder builder = new StringBuilder("{");
+		for (int i = nextSetBit(0); i >= 0; i = nextSetBit(i+1)) {
+			if (builder.length() > 1) {
+				builder.append(", ");
+			}
+			builder.append(i);
+		}
+		return builder.append("}").toString();
 	}
 
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + ((atoms == null) ? 0 : atoms.hashCode());
-		return result;
+		// Same hash code as a java.util.BitSet with the same contents
+		long h = 1234;
+		for (int i = wordsInUse(); --i >= 0; ) {
+			h ^= words[i] * (i + 1);
+		}
+		return 31 + (int) ((h >> 32) ^ h);
 	}
 
 	@Override
@@ -152,11 +370,16 @@ public class AtomSet {
 		if (getClass() != obj.getClass())
 			return false;
 		AtomSet other = (AtomSet) obj;
-		if (atoms == null) {
-			if (other.atoms != null)
+		long[] longer = (words.length >= other.words.length ? words : other.words);
+		long[] shorter = (longer == words ? other.words : words);
+		for (int i = 0; i < shorter.length; i++) {
+			if (shorter[i] != longer[i])
 				return false;
-		} else if (!atoms.equals(other.atoms))
-			return false;
+		}
+		for (int i = shorter.length; i < longer.length; i++) {
+			if (longer[i] != 0)
+				return false;
+		}
 		return true;
 	}
 }
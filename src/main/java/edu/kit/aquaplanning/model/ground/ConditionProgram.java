@@ -0,0 +1,274 @@
+package edu.kit.aquaplanning.model.ground;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.kit.aquaplanning.model.ground.Precondition.PreconditionType;
+
+/**
+ * A ground precondition compiled into a flat program: a sequence of
+ * instructions which test single atoms (and derived atoms, and numeric
+ * comparisons) into a boolean register, and of conditional jumps which
+ * short-circuit conjunctions and disjunctions. Evaluating a program
+ * is a single loop over primitive arrays, without any recursion or
+ * allocation; the program holds iff the register is true at the end.
+ *
+ * Negations are pushed down to the atoms at compile time, so that most
+ * programs do not contain a single negation instruction. A program
+ * can be compiled with the usual semantics of preconditions
+ * (see compile(Precondition)) or with their delete-relaxed semantics
+ * (see compileRelaxed(Precondition)). Programs are immutable and may
+ * be evaluated by multiple threads at the same time.
+ */
+public class ConditionProgram {
+
+	private static final int CONSTANT = 0;
+	private static final int TRUE_ATOM = 1;
+	private static final int FALSE_ATOM = 2;
+	private static final int DERIVED = 3;
+	private static final int NUMERIC = 4;
+	private static final int NUMERIC_RELAXED = 5;
+	private static final int NEGATION = 6;
+	private static final int JUMP_IF_FALSE = 7;
+	private static final int JUMP_IF_TRUE = 8;
+
+	/**
+	 * The instructions, and the argument of each instruction (the ID of
+	 * a tested atom, the index of an operand, or the target of a jump).
+	 */
+	private final int[] instructions;
+	private final int[] arguments;
+	// Operands which cannot be expressed by an integer
+	private final DerivedAtom[] derivedAtoms;
+	private final NumericProgram[] comparisons;
+	private final Precondition[] relaxedComparisons;
+
+	private ConditionProgram(Compiler compiler) {
+		this.instructions = Arrays.copyOf(compiler.instructions, compiler.length);
+		this.arguments = Arrays.copyOf(compiler.arguments, compiler.length);
+		this.derivedAtoms = compiler.derivedAtoms.toArray(new DerivedAtom[0]);
+		this.comparisons = compiler.comparisons.toArray(new NumericProgram[0]);
+		this.relaxedComparisons = compiler.relaxedComparisons.toArray(new Precondition[0]);
+	}
+
+	/**
+	 * Compiles the provided precondition into a program
+	 * which holds iff the precondition holds.
+	 */
+	public static ConditionProgram compile(Precondition pre) {
+
+		Compiler compiler = new Compiler(false);
+		compiler.emit(pre, false);
+		return compiler.build();
+	}
+
+	/**
+	 * Compiles the provided precondition into a program
+	 * which holds iff the precondition holds in a delete-relaxed sense:
+	 * negative atoms, negations and implications are ignored, and
+	 * numeric comparisons are relaxed to the direction of their fluent
+	 * side.
+	 */
+	public static ConditionProgram compileRelaxed(Precondition pre) {
+
+		Compiler compiler = new Compiler(true);
+		compiler.emit(pre, false);
+		return compiler.build();
+	}
+
+	/**
+	 * True iff this program holds in the provided state.
+	 */
+	public boolean holds(State state) {
+
+		boolean value = true;
+		int i = 0;
+		while (i < instructions.length) {
+			int argument = arguments[i];
+			switch (instructions[i]) {
+			case CONSTANT:
+				value = (argument != 0); break;
+			case TRUE_ATOM:
+				value = state.get(argument); break;
+			case FALSE_ATOM:
+				value = !state.get(argument); break;
+			case DERIVED:
+				value = state.holds(derivedAtoms[argument]); break;
+			case NUMERIC:
+				value = comparisons[argument].holds(state); break;
+			case NUMERIC_RELAXED:
+				value = relaxedComparisons[argument].holdsNumericRelaxed(state); break;
+			case NEGATION:
+				value = !value; break;
+			case JUMP_IF_FALSE:
+				if (!value) {
+					i = argument;
+					continue;
+				}
+				break;
+			case JUMP_IF_TRUE:
+				if (value) {
+					i = argument;
+					continue;
+				}
+				break;
+			}
+			i++;
+		}
+		return value;
+	}
+
+	public int getLength() {
+		return instructions.length;
+	}
+
+	/**
+	 * Emits the instructions of a program.
+	 */
+	private static class Compiler {
+
+		private final boolean relaxed;
+		private int[] instructions = new int[8];
+		private int[] arguments = new int[8];
+		private int length = 0;
+		private List<DerivedAtom> derivedAtoms = new ArrayList<>();
+		private List<NumericProgram> comparisons = new ArrayList<>();
+		private List<Precondition> relaxedComparisons = new ArrayList<>();
+
+		Compiler(boolean relaxed) {
+			this.relaxed = relaxed;
+		}
+
+		/**
+		 * Emits instructions which leave the value of the provided
+		 * precondition (or of its negation) in the register.
+		 */
+		void emit(Precondition pre, boolean negated) {
+
+			switch (pre.getType()) {
+			case atom:
+				Atom atom = pre.getAtom();
+				if (relaxed && !atom.getValue()) {
+					emitInstruction(CONSTANT, 1);
+				} else {
+					emitInstruction(atom.getValue() != negated ? TRUE_ATOM : FALSE_ATOM, atom.getId());
+				}
+				break;
+			case derived:
+				emitInstruction(DERIVED, derivedAtoms.size());
+				derivedAtoms.add(pre.getDerivedAtom());
+				emitNegation(negated);
+				break;
+			case numeric:
+				if (relaxed) {
+					emitInstruction(NUMERIC_RELAXED, relaxedComparisons.size());
+					relaxedComparisons.add(pre);
+				} else {
+					emitInstruction(NUMERIC, comparisons.size());
+					comparisons.add(NumericProgram.compile(pre.getComparator(),
+							pre.getExpLeft(), pre.getExpRight()));
+					emitNegation(negated);
+				}
+				break;
+			case negation:
+				if (relaxed) {
+					emitInstruction(CONSTANT, 1);
+				} else {
+					emit(pre.getSingleChild(), !negated);
+				}
+				break;
+			case implication:
+				if (relaxed) {
+					emitInstruction(CONSTANT, 1);
+				} else {
+					// (a => b) == (not a or b); not (a => b) == (a and not b)
+					emit(pre.getChildren().get(0), !negated);
+					int jump = emitJump(negated ? JUMP_IF_FALSE : JUMP_IF_TRUE);
+					emit(pre.getChildren().get(1), negated);
+					arguments[jump] = length;
+				}
+				break;
+			case conjunction:
+			case disjunction:
+				// A negated conjunction is a disjunction of negated children, and vice versa
+				boolean conjunction = (pre.getType() == PreconditionType.conjunction) != negated;
+				List<Precondition> children = pre.getChildren();
+				if (children.isEmpty()) {
+					emitInstruction(CONSTANT, conjunction ? 1 : 0);
+					break;
+				}
+				int[] jumps = new int[children.size() - 1];
+				for (int i = 0; i < children.size(); i++) {
+					emit(children.get(i), negated);
+					if (i + 1 < children.size()) {
+						jumps[i] = emitJump(conjunction ? JUMP_IF_FALSE : JUMP_IF_TRUE);
+					}
+				}
+				patchJumps(jumps);
+				break;
+			default:
+				throw new IllegalArgumentException("Invalid precondition type \"" + pre.getType() + "\".");
+			}
+		}
+
+		private void emitNegation(boolean negated) {
+			if (negated) {
+				emitInstruction(NEGATION, 0);
+			}
+		}
+
+		/**
+		 * Emits a jump whose target is set later,
+		 * and returns its position.
+		 */
+		private int emitJump(int jump) {
+			emitInstruction(jump, -1);
+			return length - 1;
+		}
+
+		/**
+		 * Lets all provided jumps point to the next emitted instruction.
+		 */
+		private void patchJumps(int[] jumps) {
+			for (int jump : jumps) {
+				arguments[jump] = length;
+			}
+		}
+
+		private void emitInstruction(int instruction, int argument) {
+			if (length == instructions.length) {
+				instructions = Arrays.copyOf(instructions, 2 * length);
+				arguments = Arrays.copyOf(arguments, 2 * length);
+			}
+			instructions[length] = instruction;
+			arguments[length] = argument;
+			length++;
+		}
+
+		ConditionProgram build() {
+
+			// Thread jumps: the register does not change on a jump, so a jump
+			// to another jump of the same kind can skip directly to its target,
+			// and a jump to a jump of the opposite kind can skip past it
+			for (int i = 0; i < length; i++) {
+				if (instructions[i] != JUMP_IF_FALSE && instructions[i] != JUMP_IF_TRUE) {
+					continue;
+				}
+				int target = arguments[i];
+				while (target < length) {
+					if (instructions[target] == instructions[i]) {
+						target = arguments[target];
+					} else if (instructions[target] == JUMP_IF_FALSE
+							|| instructions[target] == JUMP_IF_TRUE) {
+						target++;
+					} else {
+						break;
+					}
+				}
+				arguments[i] = target;
+			}
+			return new ConditionProgram(this);
+		}
+	}
+}
@@ -9,6 +9,10 @@ public class DerivedAtom {
 	private AbstractCondition liftedCondition;
 	private Precondition condition;
 	
+	// Set if the derived atoms of the problem are stratified
+	private DerivedAtomEvaluator evaluator;
+	private int index;
+	
 	public DerivedAtom(int id, String name, AbstractCondition liftedCondition) {
 		this.id = id;
 		this.name = name;
@@ -31,6 +35,23 @@ public class DerivedAtom {
 	public AbstractCondition getLiftedCondition() {
 		return liftedCondition;
 	}
+	/**
+	 * The evaluator which computes the values of all derived atoms 
+	 * of a state at once, or null if the values are computed lazily.
+	 */
+	public DerivedAtomEvaluator getEvaluator() {
+		return evaluator;
+	}
+	/**
+	 * The index of this atom inside its evaluator.
+	 */
+	public int getIndex() {
+		return index;
+	}
+	void setEvaluator(DerivedAtomEvaluator evaluator, int index) {
+		this.evaluator = evaluator;
+		this.index = index;
+	}
 
 	@Override
 	public int hashCode() {
@@ -0,0 +1,219 @@
+package edu.kit.aquaplanning.model.ground;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes the values of all derived atoms of a planning problem in
+ * a given state at once. The derived atoms are stratified once: each atom
+ * is assigned to a stratum such that its condition only depends positively
+ * on atoms of its own or lower strata, and negatively only on atoms of
+ * lower strata. The strata are then evaluated one after another, each
+ * by a semi-naive fixpoint computation starting from "all false": an atom
+ * is only re-evaluated when an atom of the same stratum it depends on has
+ * become true. This yields the standard (least fixpoint) semantics of
+ * derived predicates.
+ *
+ * The values are computed on the first lookup of a derived atom
+ * in a state and are stored inside the state (see State.holds(DerivedAtom)).
+ */
+public class DerivedAtomEvaluator {
+
+	/**
+	 * The derived atoms, ordered by their strata,
+	 * and the condition of each atom.
+	 */
+	private DerivedAtom[] atoms;
+	private Precondition[] conditions;
+	/**
+	 * The atoms of stratum s are found at the indices
+	 * stratumStart[s] (inclusive) to stratumStart[s+1] (exclusive).
+	 */
+	private int[] stratumStart;
+	/**
+	 * For each atom, the atoms of the same stratum
+	 * whose conditions depend positively on it.
+	 */
+	private int[][] dependents;
+
+	private DerivedAtomEvaluator() {}
+
+	/**
+	 * Stratifies the provided derived atoms, whose conditions must already
+	 * be grounded, and attaches the resulting evaluator to each of the atoms.
+	 * Returns null (and does not modify the atoms) if the atoms cannot be
+	 * stratified, i.e. some atom depends negatively on itself.
+	 * The values of such atoms are still computed lazily (see State).
+	 */
+	public static DerivedAtomEvaluator stratify(Collection<DerivedAtom> derivedAtoms) {
+
+		List<DerivedAtom> atomList = new ArrayList<>(derivedAtoms);
+		int numAtoms = atomList.size();
+		Map<DerivedAtom, Integer> indices = new HashMap<>();
+		for (int i = 0; i < numAtoms; i++) {
+			if (atomList.get(i).getCondition() == null) {
+				return null;
+			}
+			indices.put(atomList.get(i), i);
+		}
+
+		// Collect the atoms each condition depends on positively / negatively
+		List<List<Integer>> positive = new ArrayList<>();
+		List<List<Integer>> negative = new ArrayList<>();
+		for (DerivedAtom atom : atomList) {
+			List<Integer> pos = new ArrayList<>();
+			List<Integer> neg = new ArrayList<>();
+			collectDependencies(atom.getCondition(), true, indices, pos, neg);
+			positive.add(pos);
+			negative.add(neg);
+		}
+
+		// Compute the lowest stratum of each atom
+		int[] stratum = new int[numAtoms];
+		boolean change = true;
+		while (change) {
+			change = false;
+			for (int head = 0; head < numAtoms; head++) {
+				for (int body : positive.get(head)) {
+					if (stratum[body] > stratum[head]) {
+						stratum[head] = stratum[body];
+						change = true;
+					}
+				}
+				for (int body : negative.get(head)) {
+					if (stratum[body] + 1 > stratum[head]) {
+						stratum[head] = stratum[body] + 1;
+						if (stratum[head] >= numAtoms) {
+							// Negative cycle
+							return null;
+						}
+						change = true;
+					}
+				}
+			}
+		}
+
+		// Order the atoms by their strata
+		int numStrata = 0;
+		for (int s : stratum) {
+			numStrata = Math.max(numStrata, s + 1);
+		}
+		DerivedAtomEvaluator evaluator = new DerivedAtomEvaluator();
+		evaluator.stratumStart = new int[numStrata + 1];
+		for (int s : stratum) {
+			evaluator.stratumStart[s + 1]++;
+		}
+		for (int s = 0; s < numStrata; s++) {
+			evaluator.stratumStart[s + 1] += evaluator.stratumStart[s];
+		}
+		int[] position = new int[numAtoms];
+		int[] nextPosition = evaluator.stratumStart.clone();
+		evaluator.atoms = new DerivedAtom[numAtoms];
+		evaluator.conditions = new Precondition[numAtoms];
+		for (int i = 0; i < numAtoms; i++) {
+			position[i] = nextPosition[stratum[i]]++;
+			evaluator.atoms[position[i]] = atomList.get(i);
+			evaluator.conditions[position[i]] = atomList.get(i).getCondition();
+		}
+
+		// Positive dependencies inside the same stratum
+		List<List<Integer>> dependents = new ArrayList<>();
+		for (int i = 0; i < numAtoms; i++) {
+			dependents.add(new ArrayList<>());
+		}
+		for (int head = 0; head < numAtoms; head++) {
+			for (int body : positive.get(head)) {
+				if (stratum[body] == stratum[head]) {
+					dependents.get(position[body]).add(position[head]);
+				}
+			}
+		}
+		evaluator.dependents = new int[numAtoms][];
+		for (int i = 0; i < numAtoms; i++) {
+			evaluator.dependents[i] = dependents.get(i).stream().distinct()
+					.mapToInt(Integer::intValue).toArray();
+		}
+
+		for (int i = 0; i < numAtoms; i++) {
+			evaluator.atoms[i].setEvaluator(evaluator, i);
+		}
+		return evaluator;
+	}
+
+	private static void collectDependencies(Precondition pre, boolean positive,
+			Map<DerivedAtom, Integer> indices, List<Integer> pos, List<Integer> neg) {
+
+		switch (pre.getType()) {
+		case derived:
+			Integer index = indices.get(pre.getDerivedAtom());
+			if (index != null) {
+				(positive ? pos : neg).add(index);
+			}
+			break;
+		case negation:
+			collectDependencies(pre.getSingleChild(), !positive, indices, pos, neg);
+			break;
+		case implication:
+			collectDependencies(pre.getChildren().get(0), !positive, indices, pos, neg);
+			collectDependencies(pre.getChildren().get(1), positive, indices, pos, neg);
+			break;
+		case conjunction:
+		case disjunction:
+			for (Precondition child : pre.getChildren()) {
+				collectDependencies(child, positive, indices, pos, neg);
+			}
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Computes the values of all derived atoms in the provided state
+	 * and sets the bits of all true atoms (by their indices) in the
+	 * provided set, which must initially be empty. While the computation
+	 * runs, lookups of derived atoms in the state must return the values
+	 * from the provided set.
+	 */
+	void evaluate(State state, AtomSet values) {
+
+		int numAtoms = atoms.length;
+		int[] stack = new int[numAtoms];
+		boolean[] onStack = new boolean[numAtoms];
+		for (int s = 0; s + 1 < stratumStart.length; s++) {
+
+			// Evaluate each atom of the stratum once
+			int size = 0;
+			for (int i = stratumStart[s+1] - 1; i >= stratumStart[s]; i--) {
+				stack[size++] = i;
+				onStack[i] = true;
+			}
+			// Re-evaluate atoms which depend on newly derived atoms
+			while (size > 0) {
+				int atom = stack[--size];
+				onStack[atom] = false;
+				if (values.get(atom) || !conditions[atom].holds(state)) {
+					continue;
+				}
+				values.set(atom, true);
+				for (int dependent : dependents[atom]) {
+					if (!onStack[dependent] && !values.get(dependent)) {
+						stack[size++] = dependent;
+						onStack[dependent] = true;
+					}
+				}
+			}
+		}
+	}
+
+	public int getNumAtoms() {
+		return atoms.length;
+	}
+
+	public int getNumStrata() {
+		return stratumStart.length - 1;
+	}
+}
@@ -26,6 +26,10 @@ public class Effect {
 	private NumericAtom function;
 	private GroundNumericExpression expression;
 	
+	// compiled on first use
+	private EffectProgram program;
+	private EffectProgram relaxedProgram;
+	
 	public Effect(EffectType type) {
 		this.type = type;
 		this.children = new ArrayList<>();
@@ -39,22 +43,32 @@ public class Effect {
 
 	public void add(Effect effect) {
 		children.add(effect);
+		resetPrograms();
 	}
 	
 	public void setCondition(Precondition condition) {
 		this.condition = condition;
+		resetPrograms();
 	}
 	
 	public void setAtom(Atom atom) {
 		this.atom = atom;
+		resetPrograms();
 	}
 	
 	public void setFunction(NumericAtom function) {
 		this.function = function;
+		resetPrograms();
 	}
 	
 	public void setExpression(GroundNumericExpression expression) {
 		this.expression = expression;
+		resetPrograms();
+	}
+
+	private void resetPrograms() {
+		this.program = null;
+		this.relaxedProgram = null;
 	}
 
 	public Effect getSingleChild() {
@@ -85,69 +99,46 @@ public class Effect {
 		return atom;
 	}
 	
-	public State applyTo(State state) {
-		
-		State newState = new State(state);
-		apply(state, newState);
-		return newState;
+	public NumericAtom getFunction() {
+		return function;
 	}
 	
-	public State applyRelaxedTo(State state) {
-		
-		State newState = new State(state);
-		applyRelaxed(state, newState);
-		return newState;
+	public GroundNumericExpression getExpression() {
+		return expression;
 	}
 	
-	private void apply(State oldState, State newState) {
+	/**
+	 * Returns the result of applying this effect to the provided state.
+	 * The effect is compiled into a flat program on first use
+	 * (see EffectProgram); the effect must not be modified afterwards, 
+	 * except for via its own setters.
+	 */
+	public State applyTo(State state) {
 		
-		switch (type) {
-		case atom:
-			newState.set(atom);
-			break;
-		case condition:
-			if (condition.holds(oldState)) {
-				getSingleChild().apply(oldState, newState);
-			}
-			break;
-		case conjunction:
-			for (Effect effect : children) {
-				effect.apply(oldState, newState);
-			}
-			break;
-		case numeric:
-			function.setValue(expression.evaluate(oldState));
-			newState.set(function);
-			break;
+		EffectProgram program = this.program;
+		if (program == null) {
+			program = EffectProgram.compile(this);
+			this.program = program;
 		}
+		State newState = state.successor();
+		program.apply(state, newState);
+		return newState;
 	}
 	
-	private void applyRelaxed(State oldState, State newState) {
+	/**
+	 * Returns the result of applying this effect to the provided state
+	 * in a delete-relaxed sense.
+	 */
+	public State applyRelaxedTo(State state) {
 		
-		switch (type) {
-		case atom:
-			if (atom.getValue())
-				newState.set(atom);
-			break;
-		case condition:
-			if (condition.holdsRelaxed(oldState)) {
-				getSingleChild().applyRelaxed(oldState, newState);
-			}
-			break;
-		case conjunction:
-			for (Effect effect : children) {
-				effect.applyRelaxed(oldState, newState);
-			}
-			break;
-		case numeric:
-			// TODO Delete-relaxation extended to numeric effects
-			float result = expression.evaluate(oldState);
-			if (result > oldState.get(function)) {				
-				function.setValue(result);
-				newState.set(function);
-			}
-			break;
+		EffectProgram program = this.relaxedProgram;
+		if (program == null) {
+			program = EffectProgram.compileRelaxed(this);
+			this.relaxedProgram = program;
 		}
+		State newState = new State(state);
+		program.apply(state, newState);
+		return newState;
 	}
 	
 	@Override
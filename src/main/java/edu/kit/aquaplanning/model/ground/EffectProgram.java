@@ -0,0 +1,181 @@
+package edu.kit.aquaplanning.model.ground;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A ground effect compiled into a flat program: a sequence of instructions
+ * which set atoms and numeric atoms of a new state, and of conditional jumps
+ * which skip the effects of a conditional effect if its condition (a
+ * ConditionProgram) does not hold in the old state. Applying a program is
+ * a single loop over primitive arrays, without any recursion.
+ *
+ * A program can be compiled with the usual semantics of effects
+ * (see compile(Effect)) or with their delete-relaxed semantics
+ * (see compileRelaxed(Effect)). Programs are immutable and may be
+ * applied by multiple threads at the same time.
+ */
+public class EffectProgram {
+
+	private static final int ADD = 0;
+	private static final int DELETE = 1;
+	private static final int ASSIGN = 2;
+	private static final int INCREASE = 3;
+	private static final int SKIP_UNLESS = 4;
+
+	/**
+	 * The instructions, and the argument of each instruction (the ID
+	 * of a set atom, or the index of an operand). A SKIP_UNLESS instruction
+	 * refers to a condition; the target of the jump is stored as the
+	 * argument of the instruction at the next position.
+	 */
+	private final int[] instructions;
+	private final int[] arguments;
+	// Operands which cannot be expressed by an integer
+	private final ConditionProgram[] conditions;
+	private final NumericAtom[] functions;
+	private final NumericProgram[] expressions;
+
+	private EffectProgram(Compiler compiler) {
+		this.instructions = Arrays.copyOf(compiler.instructions, compiler.length);
+		this.arguments = Arrays.copyOf(compiler.arguments, compiler.length);
+		this.conditions = compiler.conditions.toArray(new ConditionProgram[0]);
+		this.functions = compiler.functions.toArray(new NumericAtom[0]);
+		this.expressions = compiler.expressions.toArray(new NumericProgram[0]);
+	}
+
+	/**
+	 * Compiles the provided effect into a program
+	 * which applies the effect.
+	 */
+	public static EffectProgram compile(Effect effect) {
+
+		Compiler compiler = new Compiler(false);
+		compiler.emit(effect);
+		return compiler.build();
+	}
+
+	/**
+	 * Compiles the provided effect into a program which applies the effect
+	 * in a delete-relaxed sense: conditions are evaluated in a relaxed sense,
+	 * atoms are only added, and numeric atoms are only increased.
+	 */
+	public static EffectProgram compileRelaxed(Effect effect) {
+
+		Compiler compiler = new Compiler(true);
+		compiler.emit(effect);
+		return compiler.build();
+	}
+
+	/**
+	 * Applies this program to the new state, evaluating all
+	 * conditions and numeric expressions in the old state.
+	 */
+	public void apply(State oldState, State newState) {
+
+		int i = 0;
+		while (i < instructions.length) {
+			int argument = arguments[i];
+			switch (instructions[i]) {
+			case ADD:
+				newState.set(argument, true); break;
+			case DELETE:
+				newState.set(argument, false); break;
+			case ASSIGN:
+				newState.set(functions[argument], expressions[argument].evaluate(oldState));
+				break;
+			case INCREASE:
+				// TODO Delete-relaxation extended to numeric effects
+				float result = expressions[argument].evaluate(oldState);
+				if (result > oldState.get(functions[argument])) {
+					newState.set(functions[argument], result);
+				}
+				break;
+			case SKIP_UNLESS:
+				i++;
+				if (!conditions[argument].holds(oldState)) {
+					i = arguments[i];
+					continue;
+				}
+				break;
+			}
+			i++;
+		}
+	}
+
+	public int getLength() {
+		return instructions.length;
+	}
+
+	/**
+	 * Emits the instructions of a program.
+	 */
+	private static class Compiler {
+
+		private final boolean relaxed;
+		private int[] instructions = new int[8];
+		private int[] arguments = new int[8];
+		private int length = 0;
+		private List<ConditionProgram> conditions = new ArrayList<>();
+		private List<NumericAtom> functions = new ArrayList<>();
+		private List<NumericProgram> expressions = new ArrayList<>();
+
+		Compiler(boolean relaxed) {
+			this.relaxed = relaxed;
+		}
+
+		void emit(Effect effect) {
+
+			switch (effect.getType()) {
+			case atom:
+				Atom atom = effect.getAtom();
+				if (atom.getValue()) {
+					emitInstruction(ADD, atom.getId());
+				} else if (!relaxed) {
+					emitInstruction(DELETE, atom.getId());
+				}
+				break;
+			case conjunction:
+				for (Effect child : effect.getChildren()) {
+					emit(child);
+				}
+				break;
+			case condition:
+				int start = length;
+				emitInstruction(SKIP_UNLESS, conditions.size());
+				conditions.add(relaxed ? ConditionProgram.compileRelaxed(effect.getCondition())
+						: ConditionProgram.compile(effect.getCondition()));
+				emitInstruction(SKIP_UNLESS, -1);
+				emit(effect.getSingleChild());
+				if (length == start + 2) {
+					// No effects to skip
+					length = start;
+					conditions.remove(conditions.size() - 1);
+				} else {
+					arguments[start + 1] = length;
+				}
+				break;
+			case numeric:
+				emitInstruction(relaxed ? INCREASE : ASSIGN, functions.size());
+				functions.add(effect.getFunction());
+				expressions.add(NumericProgram.compile(effect.getExpression()));
+				break;
+			}
+		}
+
+		private void emitInstruction(int instruction, int argument) {
+			if (length == instructions.length) {
+				instructions = Arrays.copyOf(instructions, 2 * length);
+				arguments = Arrays.copyOf(arguments, 2 * length);
+			}
+			instructions[length] = instruction;
+			arguments[length] = argument;
+			length++;
+		}
+
+		EffectProgram build() {
+			return new EffectProgram(this);
+		}
+	}
+}
@@ -79,6 +79,14 @@ public class Goal {
 		return positiveAtoms;
 	}
 	
+	/**
+	 * True iff this goal is given by a complex condition
+	 * instead of a flat list of atoms.
+	 */
+	public boolean isComplex() {
+		return isComplex;
+	}
+	
 	public Precondition getComplexCondition() {
 		if (!isComplex) {
 			throw new IllegalArgumentException("Cannot retrieve complex condition object of a simple goal");
@@ -3,7 +3,6 @@ package edu.kit.aquaplanning.model.ground;
 import java.util.ArrayList;
 import java.util.List;
 
-import edu.kit.aquaplanning.model.lifted.NumericExpression;
 import edu.kit.aquaplanning.model.lifted.NumericExpression.TermType;
 
 public class GroundNumericExpression {
@@ -14,6 +13,12 @@ public class GroundNumericExpression {
 	private NumericAtom atom;
 	private List<GroundNumericExpression> children;
 	
+	/**
+	 * This expression compiled into a postfix program,
+	 * created on the first evaluation.
+	 */
+	private NumericProgram program;
+	
 	public GroundNumericExpression(TermType type) {
 		this.type = type;
 		this.children = new ArrayList<>();
@@ -31,36 +36,20 @@ public class GroundNumericExpression {
 	
 	public void add(GroundNumericExpression exp) {
 		this.children.add(exp);
+		this.program = null;
 	}
 	
+	/**
+	 * Evaluates this expression in the provided state
+	 * by running its compiled program.
+	 */
 	public float evaluate(State s) {
-		switch (type) {
-		case constant:
-			return value;
-		case function:
-			return s.get(atom);
-		case negation:
-			return - children.get(0).evaluate(s);
-		case addition:
-		case subtraction:
-		case multiplication:
-		case division:
-			float value = children.get(0).evaluate(s);
-			for (int i = 1; i < children.size(); i++) {
-				GroundNumericExpression child = children.get(i);
-				if (type == TermType.addition) {
-					value += child.evaluate(s);
-				} else if (type == TermType.subtraction) {
-					value -= child.evaluate(s);
-				} else if (type == TermType.multiplication) {
-					value *= child.evaluate(s);
-				} else if (type == TermType.division) {
-					value /= child.evaluate(s);
-				}
-			}
-			return value;
+		NumericProgram program = this.program;
+		if (program == null) {
+			program = NumericProgram.compile(this);
+			this.program = program;
 		}
-		return NumericExpression.UNDEFINED;
+		return program.evaluate(s);
 	}
 	
 	/**
@@ -111,4 +100,16 @@ public class GroundNumericExpression {
 	public TermType getType() {
 		return type;
 	}
+	
+	public float getValue() {
+		return value;
+	}
+	
+	public NumericAtom getAtom() {
+		return atom;
+	}
+	
+	public List<GroundNumericExpression> getChildren() {
+		return children;
+	}
 }
@@ -15,6 +15,7 @@ public class GroundPlanningProblem {
 	private boolean hasActionCosts;
 	private List<String> atomNames;
 	private List<String> numericAtomNames;
+	private ActionTable actionTable;
 	
 	public GroundPlanningProblem(State initState, List<Action> actions, 
 			Goal goal, boolean hasActionCosts, List<String> atomNames, 
@@ -37,6 +38,7 @@ public class GroundPlanningProblem {
 		this.hasActionCosts = other.hasActionCosts;
 		this.atomNames = other.atomNames;
 		this.numericAtomNames = other.numericAtomNames;
+		this.actionTable = other.actionTable;
 	}
 
 	public State getInitialState() {
@@ -51,6 +53,17 @@ public class GroundPlanningProblem {
 		return actions;
 	}
 	
+	/**
+	 * Returns the actions compiled into flat arrays. The table is
+	 * constructed on the first call and shared by all subsequent calls.
+	 */
+	public synchronized ActionTable getActionTable() {
+		if (actionTable == null) {
+			actionTable = new ActionTable(actions);
+		}
+		return actionTable;
+	}
+	
 	public Goal getGoal() {
 		return goal;
 	}
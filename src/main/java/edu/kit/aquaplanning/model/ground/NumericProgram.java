@@ -0,0 +1,269 @@
+package edu.kit.aquaplanning.model.ground;
+
+import java.util.Arrays;
+
+import edu.kit.aquaplanning.model.lifted.NumericCondition.Comparator;
+import edu.kit.aquaplanning.model.lifted.NumericExpression;
+
+/**
+ * A ground numeric expression (or a comparison of two ground numeric
+ * expressions) compiled into a flat postfix program: a sequence of
+ * instructions which push constants and values of numeric atoms onto
+ * a stack and combine the topmost stack values. Evaluating a program
+ * is a single loop over primitive arrays, without any recursion,
+ * boxing or allocation.
+ *
+ * Subexpressions which only consist of constants are folded into a
+ * single constant at compile time. A comparison evaluates to 1 if it
+ * holds and to 0 otherwise. Programs are immutable and may be evaluated
+ * by multiple threads at the same time.
+ */
+public class NumericProgram {
+
+	private static final int CONSTANT = 0;
+	private static final int ATOM = 1;
+	private static final int NEGATION = 2;
+	private static final int ADDITION = 3;
+	private static final int SUBTRACTION = 4;
+	private static final int MULTIPLICATION = 5;
+	private static final int DIVISION = 6;
+	private static final int GREATER = 7;
+	private static final int GREATER_EQUALS = 8;
+	private static final int LOWER = 9;
+	private static final int LOWER_EQUALS = 10;
+	private static final int EQUALS = 11;
+
+	/**
+	 * Stack of each thread which evaluates programs.
+	 */
+	private static final ThreadLocal<float[]> STACK =
+			ThreadLocal.withInitial(() -> new float[16]);
+
+	/**
+	 * The instructions, and the argument of each instruction
+	 * (the bits of a constant, or the ID of a numeric atom).
+	 */
+	private final int[] instructions;
+	private final int[] arguments;
+	private final int maxStackSize;
+
+	private NumericProgram(int[] instructions, int[] arguments, int maxStackSize) {
+		this.instructions = instructions;
+		this.arguments = arguments;
+		this.maxStackSize = maxStackSize;
+	}
+
+	/**
+	 * Compiles the provided expression into a program
+	 * which evaluates to the value of the expression.
+	 */
+	public static NumericProgram compile(GroundNumericExpression expression) {
+
+		Compiler compiler = new Compiler();
+		compiler.emit(expression);
+		return compiler.build();
+	}
+
+	/**
+	 * Compiles the provided comparison of two expressions into a program
+	 * which evaluates to 1 if the comparison holds and to 0 otherwise.
+	 */
+	public static NumericProgram compile(Comparator comparator,
+			GroundNumericExpression left, GroundNumericExpression right) {
+
+		Compiler compiler = new Compiler();
+		compiler.emit(left);
+		compiler.emit(right);
+		switch (comparator) {
+		case greater:
+			compiler.emitOperation(GREATER); break;
+		case greaterEquals:
+			compiler.emitOperation(GREATER_EQUALS); break;
+		case lower:
+			compiler.emitOperation(LOWER); break;
+		case lowerEquals:
+			compiler.emitOperation(LOWER_EQUALS); break;
+		case equals:
+			compiler.emitOperation(EQUALS); break;
+		default:
+			throw new IllegalArgumentException("Invalid comparator \"" + comparator + "\".");
+		}
+		return compiler.build();
+	}
+
+	/**
+	 * Evaluates this program in the provided state.
+	 */
+	public float evaluate(State state) {
+
+		// Single constants and atoms need no stack
+		if (instructions.length == 1) {
+			return instructions[0] == CONSTANT ?
+					Float.intBitsToFloat(arguments[0]) : state.getNumeric(arguments[0]);
+		}
+
+		float[] stack = STACK.get();
+		if (stack.length < maxStackSize) {
+			stack = new float[maxStackSize];
+			STACK.set(stack);
+		}
+		int top = -1;
+		for (int i = 0; i < instructions.length; i++) {
+			switch (instructions[i]) {
+			case CONSTANT:
+				stack[++top] = Float.intBitsToFloat(arguments[i]); break;
+			case ATOM:
+				stack[++top] = state.getNumeric(arguments[i]); break;
+			case NEGATION:
+				stack[top] = -stack[top]; break;
+			default:
+				top--;
+				stack[top] = apply(instructions[i], stack[top], stack[top+1]);
+			}
+		}
+		return stack[0];
+	}
+
+	/**
+	 * True iff this program (compiled from a comparison) holds
+	 * in the provided state.
+	 */
+	public boolean holds(State state) {
+		return evaluate(state) != 0;
+	}
+
+	/**
+	 * Applies the provided binary operation to the provided operands.
+	 */
+	private static float apply(int operation, float left, float right) {
+
+		switch (operation) {
+		case ADDITION:
+			return left + right;
+		case SUBTRACTION:
+			return left - right;
+		case MULTIPLICATION:
+			return left * right;
+		case DIVISION:
+			return left / right;
+		case GREATER:
+			return left > right ? 1 : 0;
+		case GREATER_EQUALS:
+			return left >= right ? 1 : 0;
+		case LOWER:
+			return left < right ? 1 : 0;
+		case LOWER_EQUALS:
+			return left <= right ? 1 : 0;
+		case EQUALS:
+			return Math.abs(left - right) < 0.00001f ? 1 : 0;
+		default:
+			throw new IllegalArgumentException("Invalid operation " + operation + ".");
+		}
+	}
+
+	public int getLength() {
+		return instructions.length;
+	}
+
+	/**
+	 * Emits the instructions of a program, folding constants on the fly.
+	 */
+	private static class Compiler {
+
+		private int[] instructions = new int[8];
+		private int[] arguments = new int[8];
+		private int length = 0;
+		private int stackSize = 0;
+		private int maxStackSize = 0;
+
+		void emit(GroundNumericExpression expression) {
+
+			switch (expression.getType()) {
+			case constant:
+				emitConstant(expression.getValue());
+				break;
+			case function:
+				emitInstruction(ATOM, expression.getAtom().getId());
+				stackSize++;
+				maxStackSize = Math.max(maxStackSize, stackSize);
+				break;
+			case negation:
+				emit(expression.getChildren().get(0));
+				emitOperation(NEGATION);
+				break;
+			case addition:
+			case subtraction:
+			case multiplication:
+			case division:
+				int operation = getOperation(expression);
+				emit(expression.getChildren().get(0));
+				for (int i = 1; i < expression.getChildren().size(); i++) {
+					emit(expression.getChildren().get(i));
+					emitOperation(operation);
+				}
+				break;
+			default:
+				emitConstant(NumericExpression.UNDEFINED);
+			}
+		}
+
+		private static int getOperation(GroundNumericExpression expression) {
+			switch (expression.getType()) {
+			case addition:
+				return ADDITION;
+			case subtraction:
+				return SUBTRACTION;
+			case multiplication:
+				return MULTIPLICATION;
+			default:
+				return DIVISION;
+			}
+		}
+
+		void emitConstant(float value) {
+			emitInstruction(CONSTANT, Float.floatToIntBits(value));
+			stackSize++;
+			maxStackSize = Math.max(maxStackSize, stackSize);
+		}
+
+		void emitOperation(int operation) {
+
+			if (operation == NEGATION) {
+				if (instructions[length-1] == CONSTANT) {
+					// Fold constant
+					arguments[length-1] = Float.floatToIntBits(
+							-Float.intBitsToFloat(arguments[length-1]));
+				} else {
+					emitInstruction(NEGATION, 0);
+				}
+				return;
+			}
+			stackSize--;
+			if (length >= 2 && instructions[length-1] == CONSTANT
+					&& instructions[length-2] == CONSTANT) {
+				// Fold constants
+				float result = apply(operation, Float.intBitsToFloat(arguments[length-2]),
+						Float.intBitsToFloat(arguments[length-1]));
+				length--;
+				arguments[length-1] = Float.floatToIntBits(result);
+			} else {
+				emitInstruction(operation, 0);
+			}
+		}
+
+		private void emitInstruction(int instruction, int argument) {
+			if (length == instructions.length) {
+				instructions = Arrays.copyOf(instructions, 2 * length);
+				arguments = Arrays.copyOf(arguments, 2 * length);
+			}
+			instructions[length] = instruction;
+			arguments[length] = argument;
+			length++;
+		}
+
+		NumericProgram build() {
+			return new NumericProgram(Arrays.copyOf(instructions, length),
+					Arrays.copyOf(arguments, length), maxStackSize);
+		}
+	}
+}
@@ -33,6 +33,10 @@ public class Precondition {
 	private GroundNumericExpression expLeft;
 	private GroundNumericExpression expRight;
 	
+	// compiled on first use
+	private ConditionProgram program;
+	private ConditionProgram relaxedProgram;
+	
 	public Precondition(PreconditionType type) {
 		this.type = type;
 		this.children = new ArrayList<>();
@@ -40,24 +44,34 @@ public class Precondition {
 	
 	public void add(Precondition pre) {
 		this.children.add(pre);
+		resetPrograms();
 	}
 	
 	// Setters for type-dependent attributes
 	
 	public void setAtom(Atom atom) {
 		this.atom = atom;
+		resetPrograms();
 	}
 	public void setDerivedAtom(DerivedAtom derivedAtom) {
 		this.derivedAtom = derivedAtom;
+		resetPrograms();
 	}
 	public void setComparator(Comparator comparator) {
 		this.comparator = comparator;
+		resetPrograms();
 	}
 	public void setExpLeft(GroundNumericExpression expLeft) {
 		this.expLeft = expLeft;
+		resetPrograms();
 	}
 	public void setExpRight(GroundNumericExpression expRight) {
 		this.expRight = expRight;
+		resetPrograms();
+	}
+	private void resetPrograms() {
+		this.program = null;
+		this.relaxedProgram = null;
 	}
 	
 	public Precondition getSingleChild() {
@@ -76,6 +90,22 @@ public class Precondition {
 		return atom;
 	}
 	
+	public DerivedAtom getDerivedAtom() {
+		return derivedAtom;
+	}
+	
+	public Comparator getComparator() {
+		return comparator;
+	}
+	
+	public GroundNumericExpression getExpLeft() {
+		return expLeft;
+	}
+	
+	public GroundNumericExpression getExpRight() {
+		return expRight;
+	}
+	
 	public PreconditionType getType() {
 		return type;
 	}
@@ -84,113 +114,76 @@ public class Precondition {
 		return this.type == type;
 	}
 	
+	/**
+	 * True iff this precondition holds in the provided state.
+	 * The precondition is compiled into a flat program on first use
+	 * (see ConditionProgram); the precondition must not be modified
+	 * afterwards, except for via its own setters.
+	 */
 	public boolean holds(State state) {
 		
-		switch (type) {
-		case atom:
-			return state.holds(atom);
-		case derived:
-			return state.holds(derivedAtom);
-		case conjunction:
-			for (Precondition pre : children) {
-				if (!pre.holds(state)) {
-					return false;
-				}
-			}
-			return true;
-		case disjunction:
-			for (Precondition pre : children) {
-				if (pre.holds(state)) {
-					return true;
-				}
-			}
-			return false;
-		case negation:
-			return !getSingleChild().holds(state);
-		case implication:
-			return !children.get(0).holds(state) || children.get(1).holds(state);
-		case numeric:
-			switch (comparator) {
-			case greater:
-				return expLeft.evaluate(state) > expRight.evaluate(state);
-			case greaterEquals:
-				return expLeft.evaluate(state) >= expRight.evaluate(state);
-			case lower:
-				return expLeft.evaluate(state) < expRight.evaluate(state);
-			case lowerEquals:
-				return expLeft.evaluate(state) <= expRight.evaluate(state);
-			case equals:
-				return Math.abs(expLeft.evaluate(state) - expRight.evaluate(state)) < 0.00001f;
-			}
-			throw new IllegalArgumentException();
-		default:
-			throw new IllegalArgumentException("Invalid precondition type \"" + type + "\".");
+		ConditionProgram program = this.program;
+		if (program == null) {
+			program = ConditionProgram.compile(this);
+			this.program = program;
 		}
+		return program.holds(state);
 	}
 	
+	/**
+	 * True iff this precondition holds in the provided state
+	 * in a delete-relaxed sense.
+	 */
 	public boolean holdsRelaxed(State state) {
 		
-		switch (type) {
-		case atom:
-			return !atom.getValue() || state.holds(atom);
-		case derived:
-			return state.holds(derivedAtom);
-		case negation:
-			return true;
-		case conjunction:
-			for (Precondition pre : children) {
-				if (!pre.holdsRelaxed(state)) {
-					return false;
-				}
-			}
-			return true;
-		case disjunction:
-			for (Precondition pre : children) {
-				if (pre.holdsRelaxed(state)) {
-					return true;
-				}
+		ConditionProgram program = this.relaxedProgram;
+		if (program == null) {
+			program = ConditionProgram.compileRelaxed(this);
+			this.relaxedProgram = program;
+		}
+		return program.holds(state);
+	}
+	
+	/**
+	 * True iff this numeric precondition holds in the provided 
+	 * state in a delete-relaxed sense.
+	 */
+	boolean holdsNumericRelaxed(State state) {
+		
+		float valueLeft = expLeft.evaluate(state);
+		float valueRight = expRight.evaluate(state);
+		if (expRight.isEffectivelyConstant()) {
+			// (fluent exp) <comparator> (constant exp)
+			switch (comparator) {
+			case greater:
+				// "greater" comparison must hold
+				return valueLeft > valueRight;
+			case equals:
+			case greaterEquals:
+				// both fall together as "greaterEquals", must hold
+				return valueLeft >= valueRight;
+			case lower:
+			case lowerEquals:
+				// relaxed: ignore
+				return true;					
 			}
-			return false;
-		case implication:
-			return true;
-		case numeric:
-			float valueLeft = expLeft.evaluate(state);
-			float valueRight = expRight.evaluate(state);
-			if (expRight.isEffectivelyConstant()) {
-				// (fluent exp) <comparator> (constant exp)
-				switch (comparator) {
-				case greater:
-					// "greater" comparison must hold
-					return valueLeft > valueRight;
-				case equals:
-				case greaterEquals:
-					// both fall together as "greaterEquals", must hold
-					return valueLeft >= valueRight;
-				case lower:
-				case lowerEquals:
-					// relaxed: ignore
-					return true;					
-				}
-			} else if (expLeft.isEffectivelyConstant()) {
-				// (constant exp) <comparator> (fluent exp)
-				switch (comparator) {
-				case lower:
-					// "lower" comparison must hold
-					return valueLeft < valueRight;
-				case equals:
-				case lowerEquals:
-					// both fall together as "lowerEquals", must hold
-					return valueLeft <= valueRight;
-				case greater:
-				case greaterEquals:
-					// relaxed: ignore
-					return true;					
-				}
+		} else if (expLeft.isEffectivelyConstant()) {
+			// (constant exp) <comparator> (fluent exp)
+			switch (comparator) {
+			case lower:
+				// "lower" comparison must hold
+				return valueLeft < valueRight;
+			case equals:
+			case lowerEquals:
+				// both fall together as "lowerEquals", must hold
+				return valueLeft <= valueRight;
+			case greater:
+			case greaterEquals:
+				// relaxed: ignore
+				return true;					
 			}
-			return true; // if both sides are fluent
-		default:
-			throw new IllegalArgumentException("Invalid precondition type \"" + type + "\".");
 		}
+		return true; // if both sides are fluent
 	}
 	
 	@Override
@@ -1,29 +1,103 @@
 package edu.kit.aquaplanning.model.ground;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import edu.kit.aquaplanning.model.lifted.NumericExpression;
+
 /**
  * Represents a world state as a set of atoms which are currently true.
+ * 
+ * Each state maintains a 64-bit Zobrist hash: the XOR of a pseudo-random
+ * key for each true atom and for each (numeric atom, value) pair.
+ * The hash is computed once when a state is created from scratch and
+ * is updated incrementally whenever an atom changes its value, so
+ * hashing a successor state only costs time linear in the amount of
+ * applied effects instead of the amount of atoms.
+ * 
+ * A successor of a state (see apply) is delta-encoded: it references the 
+ * atom set of its parent as its base and only stores the IDs of the atoms 
+ * whose values differ from the base. The base is marked as immutable
+ * (see AtomSet.isImmutable()) once it is shared in this way, so the parent 
+ * copies it before modifying it. The full atom set is materialized when it 
+ * is actually needed (see getAtomSet()). Successors of successors share the 
+ * same base, up to the snapshot depth of the state (which is inherited by 
+ * all copies); a successor of a state at this depth is a full snapshot 
+ * instead. The values of numeric atoms are stored in a plain array indexed 
+ * by the atoms' IDs, which is shared between a state and its successors 
+ * and copied by the first of them which modifies it.
+ * 
+ * A plain copy of a state (see State(State)) does not modify the copied 
+ * state, and applying effects to a state only marks its data as shared,
+ * so states which are not modified anymore may be read, copied and
+ * expanded by several threads at the same time.
  */
 public class State {
 	
 	/**
-	 * Internal AtomSet of all true atoms.
+	 * The default amount of successive successors which may be 
+	 * delta-encoded against the same base (see setSnapshotDepth).
+	 */
+	public static final int DEFAULT_SNAPSHOT_DEPTH = 8;
+	
+	/**
+	 * The amount of successive successors which may be delta-encoded
+	 * against the same base before a full snapshot is taken.
+	 * With a depth of zero, each successor is a full snapshot.
+	 */
+	private int snapshotDepth = DEFAULT_SNAPSHOT_DEPTH;
+	
+	/**
+	 * Internal AtomSet of all true atoms, or null if the state is 
+	 * delta-encoded and has not been materialized yet.
+	 */
+	private volatile AtomSet atoms;
+	
+	/**
+	 * For a delta-encoded state: the base atom set, and the IDs of the 
+	 * atoms whose values differ from the base (at indices 0 to numFlips-1),
+	 * and the amount of successors since the base has been materialized.
+	 */
+	private AtomSet base;
+	private int[] flips;
+	private int numFlips;
+	private int depth;
+	
+	/**
+	 * Truth values of stratified derived atoms (by their index inside 
+	 * the evaluator), computed on the first lookup of such an atom;
+	 * and the values while they are being computed.
 	 */
-	private AtomSet atoms;
+	private volatile AtomSet derivedValues;
+	private AtomSet derivedValuesInProgress;
 	
 	/**
-	 * Truth values of derived atoms, where already known.
+	 * Truth values of derived atoms which cannot be stratified, 
+	 * where already known.
 	 */
 	private Map<DerivedAtom, Boolean> derivedAtoms;
 	
 	/**
-	 * Maps ID of numeric atom to its current value
+	 * The current value of each numeric atom, indexed by its ID 
+	 * (undefined values and values beyond the array are NaN).
+	 */
+	private float[] numericValues;
+	/**
+	 * True iff the numeric values are (possibly) shared with other states,
+	 * and hence must be copied before they can be modified. Otherwise,
+	 * this state owns the array.
 	 */
-	private Map<Integer, Float> numericAtoms;
+	private boolean numericValuesShared;
+	
+	private static final float[] NO_NUMERIC_VALUES = new float[0];
+	
+	/**
+	 * Zobrist hash of all true atoms and of all numeric atoms.
+	 */
+	private long hash;
 	
 	/**
 	 * Creates a state containing exactly all TRUE atoms in the provided list.
@@ -31,19 +105,39 @@ public class State {
 	public State(List<Atom> atomList) {
 		
 		this.atoms = new AtomSet(atomList);
-		this.derivedAtoms = new HashMap<>();
-		this.numericAtoms = new HashMap<>();
+		this.numericValues = NO_NUMERIC_VALUES;
+		this.numericValuesShared = true;
+		this.hash = computeAtomHash(atoms);
 	}
 	
 	/**
-	 * Copies the provided state into a new object.
+	 * Copies the provided state into a new object. The provided state 
+	 * is not modified: the copy is only delta-encoded against its atom set 
+	 * if the atom set is shared already (i.e., is immutable), and unless 
+	 * the snapshot depth is zero or has been reached.
 	 */
 	public State(State other) {
 		
-		atoms = (AtomSet) other.atoms.clone();
-		this.derivedAtoms = new HashMap<>(); // TODO clone?
-		this.numericAtoms = new HashMap<>();
-		this.numericAtoms.putAll(other.numericAtoms);
+		copyNumericValuesFrom(other);
+		this.hash = other.hash;
+		this.snapshotDepth = other.snapshotDepth;
+		AtomSet otherAtoms = other.atoms;
+		if (snapshotDepth <= 0 || (otherAtoms == null && other.depth >= snapshotDepth)
+				|| (otherAtoms != null && !otherAtoms.isImmutable())) {
+			// Take a snapshot of the other state
+			this.atoms = other.copyAtomSet();
+			return;
+		}
+		if (otherAtoms != null) {
+			this.base = otherAtoms;
+			this.flips = new int[4];
+			this.depth = 1;
+		} else {
+			this.base = other.base;
+			this.flips = Arrays.copyOf(other.flips, other.numFlips + 4);
+			this.numFlips = other.numFlips;
+			this.depth = other.depth + 1;
+		}
 	}
 
 	/**
@@ -52,8 +146,22 @@ public class State {
 	public State(AtomSet atomSet) {
 		
 		this.atoms = atomSet;
-		this.derivedAtoms = new HashMap<>();
-		this.numericAtoms = new HashMap<>();
+		this.numericValues = NO_NUMERIC_VALUES;
+		this.numericValuesShared = true;
+		this.hash = computeAtomHash(atoms);
+	}
+	
+	/**
+	 * Sets the amount of successive successors of this state (and of its 
+	 * copies) which may be delta-encoded before a full snapshot of a state 
+	 * is taken (0: always copy fully).
+	 */
+	public void setSnapshotDepth(int depth) {
+		snapshotDepth = depth;
+	}
+	
+	public int getSnapshotDepth() {
+		return snapshotDepth;
 	}
 	
 	/**
@@ -62,12 +170,56 @@ public class State {
 	 */
 	public void set(Atom atom) {
 		
-		atoms.set(atom);
+		int id = atom.getId();
+		if (get(id) != atom.getValue()) {
+			changeWord(id >> 6, 1L << id);
+		}
+	}
+	
+	/**
+	 * Sets the atom of the provided ID to the provided value.
+	 */
+	void set(int id, boolean value) {
+		
+		if (get(id) != value) {
+			changeWord(id >> 6, 1L << id);
+		}
 	}
 	
 	public void set(NumericAtom atom) {
 		
-		numericAtoms.put(atom.getId(), atom.getValue());
+		setNumeric(atom.getId(), atom.getValue());
+	}
+	
+	/**
+	 * Sets the provided numeric atom to the provided value
+	 * (without modifying the atom object itself).
+	 */
+	public void set(NumericAtom atom, float value) {
+		
+		setNumeric(atom.getId(), value);
+	}
+	
+	private void setNumeric(int id, float value) {
+		
+		float oldValue = getNumeric(id);
+		if (numericValuesShared || id >= numericValues.length) {
+			// Copy on write
+			int oldLength = numericValues.length;
+			numericValues = Arrays.copyOf(numericValues, Math.max(oldLength, id+1));
+			Arrays.fill(numericValues, oldLength, numericValues.length, NumericExpression.UNDEFINED);
+			numericValuesShared = false;
+		}
+		numericValues[id] = value;
+		if (derivedValues != null) {
+			derivedValues = null;
+		}
+		if (!Float.isNaN(oldValue)) {
+			hash ^= numericKey(id, oldValue);
+		}
+		if (!Float.isNaN(value)) {
+			hash ^= numericKey(id, value);
+		}
 	}
 	
 	/**
@@ -76,7 +228,10 @@ public class State {
 	 */
 	public void addAllTrueAtomsFrom(State other) {
 		
-		atoms.applyTrueAtoms(other.atoms);
+		// Only iterate over the atoms which are actually new
+		// (the other state may contain many atoms)
+		AtomSet newAtoms = other.getAtomSet().minus(getAtomSet());
+		addAll(newAtoms);
 	}
 	
 	/**
@@ -86,12 +241,48 @@ public class State {
 	 */
 	public boolean holds(Atom atom) {
 		
-		return atoms.get(atom);
+		return get(atom.getId()) == atom.getValue();
+	}
+	
+	/**
+	 * True iff the atom of the provided ID is true in this state.
+	 */
+	boolean get(int id) {
+		
+		return (getWord(id >> 6) & (1L << id)) != 0;
+	}
+	
+	/**
+	 * Returns the word of the provided index of this state's atom set 
+	 * (see AtomSet.getWord(int)), without materializing the atom set.
+	 */
+	public long getWord(int index) {
+		
+		AtomSet atoms = this.atoms;
+		if (atoms != null) {
+			return atoms.getWord(index);
+		}
+		long word = base.getWord(index);
+		for (int i = 0; i < numFlips; i++) {
+			if (flips[i] >> 6 == index) {
+				word ^= 1L << flips[i];
+			}
+		}
+		return word;
 	}
 	
 	public float get(NumericAtom atom) {
 		
-		return numericAtoms.get(atom.getId());
+		return getNumeric(atom.getId());
+	}
+	
+	/**
+	 * Returns the value of the numeric atom of the provided ID
+	 * (NaN if it is undefined).
+	 */
+	float getNumeric(int id) {
+		
+		return id < numericValues.length ? numericValues[id] : NumericExpression.UNDEFINED;
 	}
 	
 	/**
@@ -100,7 +291,15 @@ public class State {
 	 */
 	public boolean holdsAll(AtomSet atoms) {
 		
-		return this.atoms.all(atoms);
+		if (this.atoms != null) {
+			return this.atoms.all(atoms);
+		}
+		for (int w = 0; w < atoms.numWords(); w++) {
+			long word = atoms.getWord(w);
+			if (word != 0 && (word & ~getWord(w)) != 0)
+				return false;
+		}
+		return true;
 	}
 	
 	/**
@@ -109,7 +308,15 @@ public class State {
 	 */
 	public boolean holdsNone(AtomSet atoms) {
 		
-		return this.atoms.none(atoms);
+		if (this.atoms != null) {
+			return this.atoms.none(atoms);
+		}
+		for (int w = 0; w < atoms.numWords(); w++) {
+			long word = atoms.getWord(w);
+			if (word != 0 && (word & getWord(w)) != 0)
+				return false;
+		}
+		return true;
 	}
 	
 	/**
@@ -120,6 +327,20 @@ public class State {
 	 */
 	public boolean holds(DerivedAtom derivedAtom) {
 		
+		DerivedAtomEvaluator evaluator = derivedAtom.getEvaluator();
+		if (evaluator != null) {
+			// Stratified: compute the values of all derived atoms at once
+			AtomSet values = derivedValues;
+			if (values == null) {
+				values = computeDerivedValues(evaluator);
+			}
+			return values.get(derivedAtom.getIndex());
+		}
+		
+		// Not stratified: evaluate the atom's condition recursively
+		if (derivedAtoms == null) {
+			derivedAtoms = new HashMap<>();
+		}
 		boolean visitedBefore = derivedAtoms.containsKey(derivedAtom);
 		if (!visitedBefore) {
 			// Value is not known yet: 
@@ -142,6 +363,29 @@ public class State {
 		}		
 	}
 	
+	/**
+	 * Computes the values of all derived atoms of the provided evaluator
+	 * in this state (or returns the values computed so far, if called 
+	 * by the ongoing computation itself).
+	 */
+	private synchronized AtomSet computeDerivedValues(DerivedAtomEvaluator evaluator) {
+		
+		if (derivedValues != null) {
+			return derivedValues;
+		}
+		if (derivedValuesInProgress != null) {
+			return derivedValuesInProgress;
+		}
+		derivedValuesInProgress = new AtomSet(new long[(evaluator.getNumAtoms() + 63) / 64]);
+		try {
+			evaluator.evaluate(this, derivedValuesInProgress);
+			derivedValues = derivedValuesInProgress;
+		} finally {
+			derivedValuesInProgress = null;
+		}
+		return derivedValues;
+	}
+	
 	/**
 	 * True, if this state is a superset of the provided state, 
 	 * i.e. all atoms in the provided state are also contained
@@ -149,7 +393,7 @@ public class State {
 	 */
 	public boolean isSupersetOf(State other) {
 		
-		return holdsAll(other.atoms);
+		return holdsAll(other.getAtomSet());
 	}
 	
 	/**
@@ -157,7 +401,26 @@ public class State {
 	 */
 	public void addAll(AtomSet atoms) {
 		
-		this.atoms.applyTrueAtoms(atoms);
+		for (int w = 0; w < atoms.numWords(); w++) {
+			long word = atoms.getWord(w);
+			if (word != 0) {
+				changeWord(w, word & ~getWord(w));
+			}
+		}
+	}
+	
+	/**
+	 * Sets all atoms whose IDs are found at the indices from (inclusive)
+	 * to to (exclusive) of the provided array to the provided value.
+	 */
+	public void setAll(int[] atomIds, int from, int to, boolean value) {
+		
+		for (int i = from; i < to; i++) {
+			int id = atomIds[i];
+			if (get(id) != value) {
+				changeWord(id >> 6, 1L << id);
+			}
+		}
 	}
 	
 	/**
@@ -165,7 +428,193 @@ public class State {
 	 */
 	public void removeAll(AtomSet atoms) {
 		
-		this.atoms.applyTrueAtomsAsFalse(atoms);
+		for (int w = 0; w < atoms.numWords(); w++) {
+			long word = atoms.getWord(w);
+			if (word != 0) {
+				changeWord(w, word & getWord(w));
+			}
+		}
+	}
+	
+	/**
+	 * Flips the values of all atoms whose bits are set in the provided mask
+	 * of the word with the provided index, and updates the hash accordingly.
+	 */
+	private void changeWord(int index, long mask) {
+		
+		if (mask == 0) {
+			return;
+		}
+		hash ^= wordKeys(index, mask);
+		if (derivedValues != null) {
+			derivedValues = null;
+		}
+		AtomSet atoms = this.atoms;
+		if (atoms != null) {
+			if (atoms.isImmutable()) {
+				atoms = (AtomSet) atoms.clone();
+				this.atoms = atoms;
+			}
+			atoms.setWord(index, atoms.getWord(index) ^ mask);
+			return;
+		}
+		// Delta-encoded: toggle the atoms in the list of flipped atoms
+		while (mask != 0) {
+			int id = (index << 6) + Long.numberOfTrailingZeros(mask);
+			mask &= mask - 1;
+			int i = 0;
+			while (i < numFlips && flips[i] != id) {
+				i++;
+			}
+			if (i < numFlips) {
+				flips[i] = flips[--numFlips];
+			} else {
+				if (numFlips == flips.length) {
+					flips = Arrays.copyOf(flips, 2 * numFlips);
+				}
+				flips[numFlips++] = id;
+			}
+		}
+	}
+	
+	/**
+	 * Computes and keeps the full atom set of a delta-encoded state.
+	 * The atom set is published by a single write, so concurrent readers
+	 * either see the complete set or keep using the delta encoding.
+	 */
+	private AtomSet materialize() {
+		
+		AtomSet atoms = this.atoms;
+		if (atoms == null) {
+			atoms = copyAtomSet();
+			this.atoms = atoms;
+		}
+		return atoms;
+	}
+	
+	/**
+	 * Returns a new atom set containing the true atoms of this state,
+	 * without materializing a delta-encoded state.
+	 */
+	private AtomSet copyAtomSet() {
+		
+		AtomSet atoms = this.atoms;
+		if (atoms != null) {
+			return (AtomSet) atoms.clone();
+		}
+		atoms = (AtomSet) base.clone();
+		for (int i = 0; i < numFlips; i++) {
+			atoms.set(flips[i], !atoms.get(flips[i]));
+		}
+		return atoms;
+	}
+	
+	/**
+	 * Initializes the numeric values of this state with the values of 
+	 * the provided state: shares them if they are shared already, and 
+	 * copies them if the other state owns them (and may modify them later).
+	 */
+	private void copyNumericValuesFrom(State other) {
+		
+		float[] values = other.numericValues;
+		if (other.numericValuesShared) {
+			this.numericValues = values;
+			this.numericValuesShared = true;
+		} else {
+			this.numericValues = values.clone();
+		}
+	}
+	
+	/**
+	 * Marks the numeric values and (if successors are delta-encoded) the atom 
+	 * set of this state as shared with its successors, so that this state 
+	 * copies them before modifying them. Concurrent calls only write the 
+	 * same values.
+	 */
+	private void markShared() {
+		
+		AtomSet atoms = this.atoms;
+		if (atoms != null && snapshotDepth > 0) {
+			atoms.markImmutable();
+		}
+		if (!numericValuesShared) {
+			numericValuesShared = true;
+		}
+	}
+	
+	/**
+	 * Returns a copy of this state which is to be modified into a successor
+	 * of this state. Unlike State(State), the copy is delta-encoded against 
+	 * this state (unless the snapshot depth is zero), as the data of this 
+	 * state is marked as shared with it.
+	 */
+	public State successor() {
+		
+		markShared();
+		return new State(this);
+	}
+	
+	/**
+	 * Returns a new state which results from adding all atoms in the first
+	 * provided AtomSet to this state and then removing all atoms in the 
+	 * second provided AtomSet. The new state is delta-encoded unless
+	 * the snapshot depth is zero.
+	 */
+	public State apply(AtomSet add, AtomSet delete) {
+		
+		if (snapshotDepth > 0) {
+			State newState = successor();
+			newState.addAll(add);
+			newState.removeAll(delete);
+			return newState;
+		}
+		AtomSet newAtoms = getAtomSet().apply(add, delete);
+		int numWords = Math.max(add.numWords(), delete.numWords());
+		return new State(this, newAtoms, numWords);
+	}
+	
+	/**
+	 * Returns a new state which results from applying the provided word masks 
+	 * to this state, i.e. for each word index at the positions from (inclusive) 
+	 * to to (exclusive) of the provided arrays, the bits of the add mask are set 
+	 * and then the bits of the delete mask are cleared in the respective word. 
+	 * The new state is delta-encoded unless the snapshot depth is zero.
+	 */
+	public State apply(int[] wordIndices, long[] addMasks, long[] deleteMasks, int from, int to) {
+		
+		if (snapshotDepth > 0) {
+			State newState = successor();
+			for (int i = from; i < to; i++) {
+				long word = newState.getWord(wordIndices[i]);
+				long newWord = (word | addMasks[i]) & ~deleteMasks[i];
+				newState.changeWord(wordIndices[i], word ^ newWord);
+			}
+			return newState;
+		}
+		AtomSet atoms = getAtomSet();
+		AtomSet newAtoms = atoms.apply(wordIndices, addMasks, deleteMasks, from, to);
+		State newState = new State(this, newAtoms, 0);
+		for (int i = from; i < to; i++) {
+			int w = wordIndices[i];
+			newState.hash ^= wordKeys(w, atoms.getWord(w) ^ newAtoms.getWord(w));
+		}
+		return newState;
+	}
+	
+	/**
+	 * Creates a successor of the provided state with the provided atoms, 
+	 * updating the hash for all changed atoms within the first numWords words.
+	 */
+	private State(State parent, AtomSet atoms, int numWords) {
+		
+		this.atoms = atoms;
+		parent.markShared();
+		copyNumericValuesFrom(parent);
+		this.hash = parent.hash;
+		this.snapshotDepth = parent.snapshotDepth;
+		for (int w = 0; w < numWords; w++) {
+			hash ^= wordKeys(w, parent.getWord(w) ^ atoms.getWord(w));
+		}
 	}
 	
 	/**
@@ -175,23 +624,177 @@ public class State {
 	 */
 	public List<Boolean> getAtoms() {
 		
-		List<Boolean> atoms = new ArrayList<>(this.atoms.size());
-		for (int i = 0; i < this.atoms.size(); i++) {
-			atoms.add(this.atoms.get(i));
+		AtomSet atomSet = getAtomSet();
+		int length = atomSet.length();
+		List<Boolean> atoms = new ArrayList<>(length);
+		for (int i = 0; i < length; i++) {
+			atoms.add(atomSet.get(i));
 		}
 		return atoms;
 	}
 
 	/**
-	 * Returns the set of atoms of this state. (Trivial runtime)
+	 * Returns the set of atoms of this state. (Trivial runtime,
+	 * unless a delta-encoded state needs to be materialized first)
+	 * The returned set must not be modified.
+	 */
+	public AtomSet getAtomSet() {
+		
+		return materialize();
+	}
+	
+	/**
+	 * Returns the 64-bit Zobrist hash of this state. (Trivial runtime)
+	 * Equal states have equal hashes.
+	 */
+	public long getHash() { return hash; }
+	
+	/**
+	 * Returns a compact representation of this state as an array of
+	 * 64-bit words: a header word (amount of atom words in the lower half,
+	 * amount of numeric atoms in the upper half), the words of the atom set,
+	 * and the values of all numeric atoms (two per word).
+	 * Two states are equal iff their packed representations are equal.
+	 */
+	public long[] pack() {
+		
+		long[] atomWords = getAtomWords();
+		int numNumericAtoms = numericValues.length;
+		while (numNumericAtoms > 0 && Float.isNaN(numericValues[numNumericAtoms-1])) {
+			numNumericAtoms--;
+		}
+		long[] packed = new long[1 + atomWords.length + (numNumericAtoms+1)/2];
+		packed[0] = atomWords.length | ((long) numNumericAtoms << 32);
+		System.arraycopy(atomWords, 0, packed, 1, atomWords.length);
+		for (int i = 0; i < numNumericAtoms; i++) {
+			long bits = Float.floatToIntBits(numericValues[i]) & 0xffffffffL;
+			packed[1 + atomWords.length + i/2] |= (i % 2 == 0 ? bits : bits << 32);
+		}
+		return packed;
+	}
+	
+	/**
+	 * True iff this state is equal to the packed state (see pack()) which
+	 * starts at the provided position of the provided array. Unlike
+	 * comparing with the result of pack(), no memory is allocated.
+	 */
+	public boolean equalsPacked(long[] words, int position) {
+		
+		int numAtomWords = (int) words[position];
+		int numNumericAtoms = (int) (words[position] >>> 32);
+		int numWords = Math.max(numAtomWords, getNumWords());
+		for (int w = 0; w < numWords; w++) {
+			long word = (w < numAtomWords ? words[position + 1 + w] : 0);
+			if (getWord(w) != word)
+				return false;
+		}
+		int numValues = Math.max(numNumericAtoms, numericValues.length);
+		for (int i = 0; i < numValues; i++) {
+			int bits = Float.floatToIntBits(NumericExpression.UNDEFINED);
+			if (i < numNumericAtoms) {
+				long word = words[position + 1 + numAtomWords + i/2];
+				bits = (int) (i % 2 == 0 ? word : word >>> 32);
+			}
+			if (Float.floatToIntBits(getNumeric(i)) != bits)
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns the amount of words of this state's atom set (possibly
+	 * including trailing zero words), without materializing the atom set.
 	 */
-	public AtomSet getAtomSet() { return atoms; }
+	private int getNumWords() {
+		
+		AtomSet atoms = this.atoms;
+		if (atoms != null) {
+			return atoms.numWords();
+		}
+		int numWords = base.numWords();
+		for (int i = 0; i < numFlips; i++) {
+			numWords = Math.max(numWords, (flips[i] >> 6) + 1);
+		}
+		return numWords;
+	}
+	
+	/**
+	 * Returns the words of this state's atom set without trailing zero 
+	 * words, without materializing the atom set.
+	 */
+	private long[] getAtomWords() {
+		
+		AtomSet atoms = this.atoms;
+		if (atoms != null) {
+			return atoms.toLongArray();
+		}
+		int numWords = getNumWords();
+		long[] words = new long[numWords];
+		for (int w = 0; w < numWords; w++) {
+			words[w] = base.getWord(w);
+		}
+		for (int i = 0; i < numFlips; i++) {
+			words[flips[i] >> 6] ^= 1L << flips[i];
+		}
+		while (numWords > 0 && words[numWords-1] == 0) {
+			numWords--;
+		}
+		return numWords == words.length ? words : Arrays.copyOf(words, numWords);
+	}
+	
+	/**
+	 * Returns the length of the packed state starting at the provided
+	 * position of the provided array (see pack()).
+	 */
+	public static int packedLength(long[] words, int position) {
+		
+		int numAtomWords = (int) words[position];
+		int numNumericAtoms = (int) (words[position] >>> 32);
+		return 1 + numAtomWords + (numNumericAtoms+1)/2;
+	}
+	
+	/**
+	 * Reconstructs a state from its packed representation (see pack())
+	 * which starts at the provided position of the provided array.
+	 */
+	public static State unpack(long[] words, int position) {
+		
+		return unpack(words, position, DEFAULT_SNAPSHOT_DEPTH);
+	}
+	
+	/**
+	 * Reconstructs a state from its packed representation (see pack())
+	 * which starts at the provided position of the provided array,
+	 * with the provided snapshot depth (see setSnapshotDepth).
+	 */
+	public static State unpack(long[] words, int position, int snapshotDepth) {
+		
+		int numAtomWords = (int) words[position];
+		int numNumericAtoms = (int) (words[position] >>> 32);
+		long[] atomWords = new long[numAtomWords];
+		System.arraycopy(words, position + 1, atomWords, 0, numAtomWords);
+		State state = new State(new AtomSet(atomWords));
+		state.snapshotDepth = snapshotDepth;
+		for (int i = 0; i < numNumericAtoms; i++) {
+			long word = words[position + 1 + numAtomWords + i/2];
+			int bits = (int) (i % 2 == 0 ? word : word >>> 32);
+			state.setNumeric(i, Float.intBitsToFloat(bits));
+		}
+		return state;
+	}
 	
 	/**
 	 * Returns the amount of atoms contained in the state.
 	 */
 	public int size() {
-		return atoms.numAtoms();
+		if (atoms != null) {
+			return atoms.numAtoms();
+		}
+		int size = 0;
+		for (long word : getAtomWords()) {
+			size += Long.bitCount(word);
+		}
+		return size;
 	}
 	
 	@Override
@@ -203,10 +806,15 @@ public class State {
 		if (getClass() != obj.getClass())
 			return false;
 		State other = (State) obj;
-		if (!other.atoms.equals(atoms))
+		if (atoms != null && other.atoms != null) {
+			if (!other.atoms.equals(atoms))
+				return false;
+		} else if (!Arrays.equals(other.getAtomWords(), getAtomWords())) {
 			return false;
-		for (int i = 0; i < numericAtoms.size(); i++) {		
-			if (!other.numericAtoms.get(i).equals(numericAtoms.get(i)))
+		}
+		int numNumericAtoms = Math.max(numericValues.length, other.numericValues.length);
+		for (int i = 0; i < numNumericAtoms; i++) {
+			if (Float.floatToIntBits(getNumeric(i)) != Float.floatToIntBits(other.getNumeric(i)))
 				return false;
 		}
 		return true;
@@ -214,17 +822,60 @@ public class State {
 	
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		for (int i = 0; i < atoms.size(); i++) {
-			boolean atom = atoms.get(i);
-			result = prime * result + (atom ? 1 : 0);
+		return (int) (hash ^ (hash >>> 32));
+	}
+	
+	/**
+	 * Computes the Zobrist hash of the provided set of true atoms
+	 * from scratch.
+	 */
+	private static long computeAtomHash(AtomSet atoms) {
+		
+		long hash = 0;
+		for (int i = atoms.nextSetBit(0); i >= 0; i = atoms.nextSetBit(i+1)) {
+			hash ^= atomKey(i);
 		}
-		for (int i = 0; i < numericAtoms.size(); i++) {
-			Float atom = numericAtoms.get(i);
-			result = prime * result + atom.hashCode();
+		return hash;
+	}
+	
+	/**
+	 * The XOR of the Zobrist keys of all atoms whose bits are set
+	 * in the provided mask of the word with the provided index.
+	 */
+	private static long wordKeys(int wordIndex, long mask) {
+		long keys = 0;
+		while (mask != 0) {
+			keys ^= atomKey((wordIndex << 6) + Long.numberOfTrailingZeros(mask));
+			mask &= mask - 1;
 		}
-		return result;
+		return keys;
+	}
+	
+	/**
+	 * The Zobrist key of the atom of the provided ID being true.
+	 * Keys are derived from the ID by a fixed bit mixing function, 
+	 * so they need not be stored and are the same for all problems.
+	 */
+	private static long atomKey(int id) {
+		return mix((id + 1) * 0x9E3779B97F4A7C15L);
+	}
+	
+	/**
+	 * The Zobrist key of the numeric atom of the provided ID 
+	 * having the provided value.
+	 */
+	private static long numericKey(int id, float value) {
+		long z = ((long) (id + 1) << 32) | (Float.floatToIntBits(value) & 0xffffffffL);
+		return mix(z * 0x9E3779B97F4A7C15L + 0x5851F42D4C957F2DL);
+	}
+	
+	/**
+	 * Finalization function of the SplitMix64 generator.
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
 	}
 	
 	/**
@@ -234,12 +885,14 @@ public class State {
 	@Override
 	public String toString() {
 		StringBuilder builder = new StringBuilder();
-		for (int i = 0; i < atoms.size(); i++) {
+		AtomSet atoms = getAtomSet();
+		int length = atoms.length();
+		for (int i = 0; i < length; i++) {
 			boolean atom = atoms.get(i);
 			builder.append((atom ? "1" : "0") + " ");
 		}
-		for (int i = 0; i < numericAtoms.size(); i++) {
-			float atom = numericAtoms.get(i);
+		for (int i = 0; i < numericValues.length; i++) {
+			float atom = numericValues[i];
 			builder.append(atom + " ");
 		}
 		return builder.toString();
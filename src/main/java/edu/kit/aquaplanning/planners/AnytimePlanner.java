@@ -0,0 +1,244 @@
+package edu.kit.aquaplanning.planners;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import edu.kit.aquaplanning.Configuration;
+import edu.kit.aquaplanning.model.ground.Action;
+import edu.kit.aquaplanning.model.ground.Goal;
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
+import edu.kit.aquaplanning.model.ground.Plan;
+import edu.kit.aquaplanning.model.ground.State;
+import edu.kit.aquaplanning.planners.SearchStrategy.Mode;
+import edu.kit.aquaplanning.planners.heuristic.Heuristic;
+import edu.kit.aquaplanning.util.Logger;
+
+/**
+ * Restarting weighted A* (Richter, Thayer and Ruml, 2010), an anytime
+ * planner: A weighted A* search with the configured heuristic weight
+ * quickly finds a first plan. Then the search is restarted from the
+ * initial state with a halved weight, and so on down to a weight of 1,
+ * where the search simply continues after each new plan.
+ *
+ * All searches share their search space: Heuristic values are computed
+ * only once per state, and a state reached by an earlier search is
+ * re-entered with the cheapest path known for it so far. Nodes which cannot
+ * lead to a shorter plan than the best one found so far are pruned, so the
+ * planner stops when the search space is exhausted (the best plan is then
+ * optimal) or when its computational bounds are exceeded, returning
+ * the best plan found so far.
+ *
+ * Each new plan is handed to a plan listener as soon as it is found.
+ */
+public class AnytimePlanner extends Planner {
+
+	private List<Action> actions;
+	private Goal goal;
+	private SuccessorGenerator successorGenerator;
+	private Heuristic heuristic;
+	private Consumer<Plan> planListener;
+
+	private SearchSpace space;
+	private StateRegistry registry;
+	/**
+	 * For each state ID, the node with the cheapest path to the state
+	 * and the last search which has opened the state.
+	 */
+	private int[] bestNodes;
+	private int[] openedInSearch;
+
+	private Plan bestPlan;
+	private int iterations;
+
+	public AnytimePlanner(Configuration config) {
+		super(config);
+	}
+
+	/**
+	 * Sets a listener which is called with each plan that is
+	 * shorter than all plans found before.
+	 */
+	public void setPlanListener(Consumer<Plan> planListener) {
+		this.planListener = planListener;
+	}
+
+	@Override
+	public Plan findPlan(GroundPlanningProblem problem) {
+		startSearch();
+		actions = problem.getActions();
+		goal = problem.getGoal();
+		successorGenerator = new SuccessorGenerator(problem);
+		heuristic = Heuristic.getHeuristic(problem, config);
+		space = new SearchSpace(new StateRegistry(config.snapshotDepth));
+		registry = space.getStateRegistry();
+		bestNodes = new int[1024];
+		openedInSearch = new int[1024];
+		bestPlan = null;
+		iterations = 0;
+
+		State initState = problem.getInitialState();
+		if (goal.isSatisfied(initState)) {
+			onPlanFound(new Plan());
+			return bestPlan;
+		}
+		int initHeuristicValue = evaluate(initState, 0);
+		if (initHeuristicValue == Integer.MAX_VALUE) {
+			Logger.log(Logger.INFO, "The initial state is a dead end.");
+			return null;
+		}
+		int root = space.addNode(-1, -1, registry.register(initState), initHeuristicValue);
+		bestNodes[0] = root;
+		openedInSearch[0] = -1;
+
+		int weight = Math.max(1, config.heuristicWeight);
+		int search = 0;
+		boolean exhausted = false;
+		while (!exhausted && withinComputationalBounds(iterations)) {
+
+			Logger.log(Logger.INFO_V, "Anytime search " + search + " with weight " + weight + ".");
+			exhausted = search(search, weight);
+			weight = Math.max(1, weight / 2);
+			search++;
+		}
+
+		if (exhausted) {
+			Logger.log(Logger.INFO, "Search space exhausted after " + search + " searches.");
+		} else {
+			Logger.log(Logger.INFO, "Interrupted and/or computational resources exhausted.");
+		}
+		Logger.log(Logger.INFO, "Anytime search " + (bestPlan != null ? "found a plan of length "
+				+ bestPlan.getLength() : "failed") + " after " + iterations
+				+ " expansions. Search time: "
+				+ (System.currentTimeMillis() - searchStartMillis) + "ms");
+		return bestPlan;
+	}
+
+	/**
+	 * Runs a weighted A* search from the initial state until a plan is
+	 * found (or, with a weight of 1, until the search space is exhausted).
+	 * Returns true iff the search space has been exhausted,
+	 * i.e. there is no plan shorter than the best plan found so far.
+	 */
+	private boolean search(int search, int weight) {
+
+		Configuration searchConfig = config.copy();
+		searchConfig.searchStrategy = Mode.weightedAStar;
+		searchConfig.heuristicWeight = weight;
+		SearchStrategy strategy = new SearchStrategy(searchConfig);
+		OpenList openList = strategy.createOpenList();
+		open(openList, strategy, 0, search);
+
+		while (!openList.isEmpty()) {
+
+			if (!withinComputationalBounds(++iterations)) {
+				return false;
+			}
+			int node = openList.poll();
+			int stateId = space.getStateId(node);
+			if (bestNodes[stateId] != node) {
+				// A cheaper path to the state has been found since
+				continue;
+			}
+
+			State state = registry.getState(stateId);
+			int cost = space.getDepth(node) + 1;
+			if (bestPlan != null && cost >= bestPlan.getLength()) {
+				// Successors cannot lead to a shorter plan
+				continue;
+			}
+			for (int actionIdx : successorGenerator.getApplicableActionIndices(state)) {
+
+				State newState = successorGenerator.apply(actionIdx, state);
+				int numStates = registry.size();
+				int newStateId = registry.register(newState);
+
+				if (goal.isSatisfied(newState)) {
+					if (bestPlan == null || cost < bestPlan.getLength()) {
+						int goalNode = space.addNode(node, actionIdx, newStateId, 0);
+						onPlanFound(space.extractPlan(goalNode, actions));
+						if (weight > 1) {
+							// Restart with a lower weight
+							return false;
+						}
+					}
+					continue;
+				}
+
+				if (newStateId == numStates) {
+					// New state
+					int heuristicValue = evaluate(newState, cost);
+					int newNode = space.addNode(node, actionIdx, newStateId, heuristicValue);
+					ensureCapacity(newStateId);
+					bestNodes[newStateId] = newNode;
+					openedInSearch[newStateId] = -1;
+					if (heuristicValue != Integer.MAX_VALUE) {
+						open(openList, strategy, newStateId, search);
+					}
+					continue;
+				}
+
+				int bestNode = bestNodes[newStateId];
+				int heuristicValue = space.getHeuristicValue(bestNode);
+				if (heuristicValue == Integer.MAX_VALUE) {
+					// Dead end
+					continue;
+				}
+				if (cost < space.getDepth(bestNode)) {
+					// Cheaper path to a known state: (re-)open it
+					if (!heuristic.isCacheable()) {
+						heuristicValue = evaluate(newState, cost);
+					}
+					bestNodes[newStateId] = space.addNode(node, actionIdx, newStateId, heuristicValue);
+					openedInSearch[newStateId] = -1;
+					open(openList, strategy, newStateId, search);
+				} else {
+					// State of an earlier search: re-enter it with its known path
+					open(openList, strategy, newStateId, search);
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Inserts the best node of the provided state into the open list,
+	 * unless it has already been opened during the provided search.
+	 */
+	private void open(OpenList openList, SearchStrategy strategy, int stateId, int search) {
+
+		if (openedInSearch[stateId] == search) {
+			return;
+		}
+		openedInSearch[stateId] = search;
+		int node = bestNodes[stateId];
+		int depth = space.getDepth(node);
+		int heuristicValue = space.getHeuristicValue(node);
+		openList.add(node, strategy.priority(depth, heuristicValue), depth, heuristicValue);
+	}
+
+	private void onPlanFound(Plan plan) {
+
+		bestPlan = plan;
+		Logger.log(Logger.INFO, "Found a plan of length " + plan.getLength() + " after "
+				+ (System.currentTimeMillis() - searchStartMillis) + "ms.");
+		if (planListener != null) {
+			planListener.accept(plan);
+		}
+	}
+
+	private void ensureCapacity(int stateId) {
+
+		if (stateId >= bestNodes.length) {
+			int capacity = Math.max(2 * bestNodes.length, stateId + 1);
+			bestNodes = Arrays.copyOf(bestNodes, capacity);
+			openedInSearch = Arrays.copyOf(openedInSearch, capacity);
+		}
+	}
+
+	private int evaluate(State state, int depth) {
+		SearchNode node = new SearchNode(null, state);
+		node.depth = depth;
+		return heuristic.value(node);
+	}
+}
@@ -0,0 +1,300 @@
+package edu.kit.aquaplanning.planners;
+
+import java.util.Arrays;
+
+import edu.kit.aquaplanning.planners.SearchStrategy.TieBreaking;
+
+/**
+ * Open list for integer priority values which keeps one bucket of nodes
+ * per priority value. Nodes are inserted in constant time; polling
+ * only needs to skip empty buckets, which takes amortized constant time
+ * as long as the lowest priority value does not decrease much
+ * (as it is the case with consistent heuristics in A* search).
+ *
+ * The buckets only span the range of priorities of the nodes currently
+ * in the queue: bucket i holds the nodes of priority offset + i.
+ * If this range (or a secondary value for tie-breaking) exceeds 
+ * MAX_BUCKETS, e.g. due to weighted heuristics or large action costs,
+ * all nodes are moved to a NodeHeap which is used from then on.
+ *
+ * Inside a bucket, ties are broken FIFO or LIFO, or by a second level of
+ * buckets for the heuristic value (lowest first) or the depth (highest first).
+ */
+public class BucketQueue implements OpenList {
+
+	/**
+	 * The maximum amount of buckets per level.
+	 */
+	public static final int MAX_BUCKETS = 1 << 16;
+
+	private TieBreaking tieBreaking;
+
+	/**
+	 * At index i, contains the bucket of nodes with priority offset+i (or null).
+	 */
+	private Bucket[] buckets;
+	private int offset;
+	/**
+	 * All buckets below minIndex and above maxIndex are empty.
+	 */
+	private int minIndex;
+	private int maxIndex;
+	private int size;
+
+	/**
+	 * Holds all nodes instead of the buckets, once the buckets 
+	 * would exceed their maximum size (null before).
+	 */
+	private NodeHeap heap;
+
+	public BucketQueue(TieBreaking tieBreaking) {
+		this.tieBreaking = tieBreaking;
+		this.buckets = new Bucket[64];
+	}
+
+	@Override
+	public void add(int node, int priority, int depth, int heuristicValue) {
+
+		int secondaryValue = (tieBreaking == TieBreaking.highestG ? depth : heuristicValue);
+		boolean hasSubBuckets = (tieBreaking == TieBreaking.lowestH 
+				|| tieBreaking == TieBreaking.highestG);
+		if (heap == null && hasSubBuckets 
+				&& (secondaryValue < 0 || secondaryValue >= MAX_BUCKETS)) {
+			switchToHeap();
+		}
+		if (heap != null) {
+			heap.add(node, priority, depth, heuristicValue);
+			size++;
+			return;
+		}
+
+		if (size == 0) {
+			// Start a new range of priorities
+			offset = priority;
+			minIndex = 0;
+			maxIndex = 0;
+		} else if ((long) priority - offset < 0 || (long) priority - offset >= buckets.length) {
+			// Fit the buckets to the new range of priorities
+			long low = Math.min(priority, (long) offset + minIndex);
+			long high = Math.max(priority, (long) offset + maxIndex);
+			if (high - low >= MAX_BUCKETS) {
+				switchToHeap();
+				heap.add(node, priority, depth, heuristicValue);
+				size++;
+				return;
+			}
+			rebase((int) low, (int) (high - low + 1));
+		}
+		int index = priority - offset;
+
+		if (buckets[index] == null) {
+			buckets[index] = new Bucket();
+		}
+		Bucket bucket = buckets[index];
+
+		switch (tieBreaking) {
+		case lowestH:
+			bucket.addToSubBucket(node, heuristicValue, false);
+			break;
+		case highestG:
+			bucket.addToSubBucket(node, depth, true);
+			break;
+		default:
+			bucket.add(node);
+			break;
+		}
+
+		minIndex = Math.min(minIndex, index);
+		maxIndex = Math.max(maxIndex, index);
+		size++;
+	}
+
+	@Override
+	public int poll() {
+
+		if (heap != null) {
+			size--;
+			return heap.poll();
+		}
+
+		while (buckets[minIndex] == null || buckets[minIndex].isEmpty()) {
+			minIndex++;
+		}
+		Bucket bucket = buckets[minIndex];
+		size--;
+
+		switch (tieBreaking) {
+		case lifo:
+			return bucket.pollLast();
+		case lowestH:
+			return bucket.pollFromSubBucket(false);
+		case highestG:
+			return bucket.pollFromSubBucket(true);
+		default:
+			return bucket.pollFirst();
+		}
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Moves the non-empty buckets such that bucket 0 corresponds 
+	 * to the provided priority and the provided amount of buckets fits.
+	 */
+	private void rebase(int newOffset, int numBuckets) {
+
+		int capacity = buckets.length;
+		while (capacity < 2 * numBuckets) {
+			capacity *= 2;
+		}
+		Bucket[] newBuckets = new Bucket[capacity];
+		int shift = offset - newOffset;
+		System.arraycopy(buckets, minIndex, newBuckets, minIndex + shift, maxIndex - minIndex + 1);
+		buckets = newBuckets;
+		offset = newOffset;
+		minIndex += shift;
+		maxIndex += shift;
+	}
+
+	/**
+	 * Moves all nodes into a NodeHeap with the same tie-breaking rule,
+	 * preserving their order of insertion inside each (sub-)bucket.
+	 */
+	private void switchToHeap() {
+
+		heap = new NodeHeap(tieBreaking);
+		for (int index = minIndex; size > 0 && index <= maxIndex; index++) {
+			if (buckets[index] != null) {
+				buckets[index].moveTo(heap, offset + index);
+			}
+		}
+		buckets = null;
+	}
+
+	private static Bucket[] ensureCapacity(Bucket[] buckets, int index) {
+
+		if (index < buckets.length) {
+			return buckets;
+		}
+		int capacity = buckets.length;
+		while (capacity <= index) {
+			capacity *= 2;
+		}
+		return Arrays.copyOf(buckets, capacity);
+	}
+
+	/**
+	 * A list of nodes which can be polled from both ends,
+	 * or a list of sub-buckets indexed by a secondary value.
+	 */
+	private static class Bucket {
+
+		private int[] nodes = new int[8];
+		private int first;
+		private int size;
+
+		private Bucket[] subBuckets;
+		/**
+		 * When polling the lowest (highest) secondary value,
+		 * all sub-buckets below (above) this index are empty.
+		 */
+		private int bestSubBucket;
+
+		void add(int node) {
+
+			if (first + size == nodes.length) {
+				if (first > 0) {
+					// Move nodes to the front
+					System.arraycopy(nodes, first, nodes, 0, size);
+					first = 0;
+				} else {
+					nodes = Arrays.copyOf(nodes, 2 * nodes.length);
+				}
+			}
+			nodes[first + size] = node;
+			size++;
+		}
+
+		int pollFirst() {
+
+			int node = nodes[first];
+			first++;
+			size--;
+			if (size == 0) {
+				first = 0;
+			}
+			return node;
+		}
+
+		int pollLast() {
+
+			size--;
+			int node = nodes[first + size];
+			if (size == 0) {
+				first = 0;
+			}
+			return node;
+		}
+
+		void addToSubBucket(int node, int secondaryValue, boolean highestFirst) {
+
+			if (subBuckets == null) {
+				subBuckets = new Bucket[8];
+				bestSubBucket = highestFirst ? -1 : subBuckets.length;
+			}
+			subBuckets = ensureCapacity(subBuckets, secondaryValue);
+			if (subBuckets[secondaryValue] == null) {
+				subBuckets[secondaryValue] = new Bucket();
+			}
+			subBuckets[secondaryValue].add(node);
+			if (highestFirst) {
+				bestSubBucket = Math.max(bestSubBucket, secondaryValue);
+			} else {
+				bestSubBucket = Math.min(bestSubBucket, secondaryValue);
+			}
+			size++;
+		}
+
+		int pollFromSubBucket(boolean highestFirst) {
+
+			while (subBuckets[bestSubBucket] == null || subBuckets[bestSubBucket].isEmpty()) {
+				bestSubBucket += highestFirst ? -1 : 1;
+			}
+			size--;
+			return subBuckets[bestSubBucket].pollFirst();
+		}
+
+		boolean isEmpty() {
+			return size == 0;
+		}
+
+		/**
+		 * Adds the nodes of this bucket to the provided heap with the 
+		 * provided priority (and their secondary values as depth
+		 * and heuristic value).
+		 */
+		void moveTo(NodeHeap heap, int priority) {
+
+			if (subBuckets != null) {
+				for (int value = 0; value < subBuckets.length; value++) {
+					Bucket subBucket = subBuckets[value];
+					for (int i = 0; subBucket != null && i < subBucket.size; i++) {
+						heap.add(subBucket.nodes[subBucket.first + i], priority, value, value);
+					}
+				}
+			} else {
+				for (int i = 0; i < size; i++) {
+					heap.add(nodes[first + i], priority, 0, 0);
+				}
+			}
+		}
+	}
+}
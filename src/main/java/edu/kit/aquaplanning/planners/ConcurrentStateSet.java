@@ -0,0 +1,70 @@
+package edu.kit.aquaplanning.planners;
+
+import edu.kit.aquaplanning.model.ground.State;
+
+/**
+ * A set of states which can be accessed by several threads at once,
+ * e.g. a closed list shared by the planners of a portfolio.
+ *
+ * The set is lock-striped: It is split into a fixed amount of stripes,
+ * each of which is a StateRegistry guarded by its own lock. The stripe
+ * of a state is determined by the uppermost bits of its Zobrist hash,
+ * so threads only contend with each other if they access states
+ * of the same stripe at the same time.
+ */
+public class ConcurrentStateSet {
+
+	private static final int STRIPE_BITS = 6;
+
+	private StateRegistry[] stripes;
+
+	public ConcurrentStateSet() {
+		stripes = new StateRegistry[1 << STRIPE_BITS];
+		for (int i = 0; i < stripes.length; i++) {
+			stripes[i] = new StateRegistry();
+		}
+	}
+
+	/**
+	 * Adds the provided state to the set. Returns true iff the state
+	 * has not been contained before (i.e. exactly one of several threads
+	 * adding the same state receives true).
+	 */
+	public boolean add(State state) {
+
+		StateRegistry stripe = getStripe(state);
+		synchronized (stripe) {
+			int size = stripe.size();
+			return stripe.register(state) == size;
+		}
+	}
+
+	/**
+	 * True iff the provided state is contained in the set.
+	 */
+	public boolean contains(State state) {
+
+		StateRegistry stripe = getStripe(state);
+		synchronized (stripe) {
+			return stripe.getId(state) >= 0;
+		}
+	}
+
+	/**
+	 * The amount of states in the set.
+	 */
+	public int size() {
+
+		int size = 0;
+		for (StateRegistry stripe : stripes) {
+			synchronized (stripe) {
+				size += stripe.size();
+			}
+		}
+		return size;
+	}
+
+	private StateRegistry getStripe(State state) {
+		return stripes[(int) (state.getHash() >>> (64 - STRIPE_BITS))];
+	}
+}
@@ -0,0 +1,233 @@
+package edu.kit.aquaplanning.planners;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import edu.kit.aquaplanning.Configuration;
+import edu.kit.aquaplanning.Configuration.HeuristicType;
+import edu.kit.aquaplanning.model.ground.Action;
+import edu.kit.aquaplanning.model.ground.Goal;
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
+import edu.kit.aquaplanning.model.ground.Plan;
+import edu.kit.aquaplanning.model.ground.State;
+import edu.kit.aquaplanning.planners.SearchStrategy.Mode;
+import edu.kit.aquaplanning.planners.heuristic.Heuristic;
+import edu.kit.aquaplanning.util.Logger;
+
+/**
+ * Enforced hill-climbing (Hoffmann and Nebel, 2001): Starting from the
+ * initial state, a breadth-first search is run until a state with a
+ * strictly better heuristic value (or a goal state) is found. The planner
+ * then commits to the path leading to this state and continues from there,
+ * never reconsidering its decisions. Each breadth-first search only keeps
+ * the states reached since the last improvement, so plateaus are escaped
+ * with little memory.
+ *
+ * Optionally, only helpful actions (i.e. the preferred actions of the
+ * heuristic) are considered. They are computed together with the heuristic
+ * value of each state. If a breadth-first search restricted to
+ * helpful actions fails, it is repeated with all actions; if it still
+ * fails (a dead end has been reached), the planner falls back to a
+ * complete best-first search from the initial state.
+ *
+ * Uses the FF heuristic if no heuristic is configured.
+ */
+public class EnforcedHillClimbingPlanner extends Planner {
+
+	private List<Action> actions;
+	private Goal goal;
+	private SuccessorGenerator successorGenerator;
+	private Heuristic heuristic;
+	private int iterations;
+
+	// With helpful actions: the helpful actions of the last evaluated state,
+	// and the (sorted) helpful actions of each node of the current search
+	private boolean useHelpfulActions;
+	private BitSet helpfulActions;
+	private List<int[]> nodeHelpfulActions;
+
+	public EnforcedHillClimbingPlanner(Configuration config) {
+		super(config);
+	}
+
+	@Override
+	public Plan findPlan(GroundPlanningProblem problem) {
+		startSearch();
+		actions = problem.getActions();
+		goal = problem.getGoal();
+		successorGenerator = new SuccessorGenerator(problem);
+		Configuration heuristicConfig = config;
+		if (config.heuristic == null) {
+			heuristicConfig = config.copy();
+			heuristicConfig.heuristic = HeuristicType.hFF;
+		}
+		heuristic = Heuristic.getHeuristic(problem, heuristicConfig);
+		useHelpfulActions = config.helpfulActions && heuristic.providesPreferredActions();
+		if (config.helpfulActions && !useHelpfulActions) {
+			Logger.log(Logger.WARN, "The heuristic " + heuristicConfig.heuristic 
+					+ " provides no helpful actions; considering all actions.");
+		}
+		helpfulActions = new BitSet();
+		nodeHelpfulActions = new ArrayList<>();
+		iterations = 0;
+
+		Plan plan = new Plan();
+		State state = problem.getInitialState();
+		int heuristicValue = evaluate(state, 0);
+		int[] stateHelpfulActions = getHelpfulActions();
+		int numImprovements = 0;
+		while (heuristicValue != Integer.MAX_VALUE && !goal.isSatisfied(state)) {
+
+			// Search breadth-first for a strictly better state
+			SearchSpace space = new SearchSpace(new StateRegistry(config.snapshotDepth));
+			int node = -1;
+			if (useHelpfulActions) {
+				node = searchBetterState(space, state, heuristicValue, 
+						stateHelpfulActions, plan.getLength(), true);
+				if (node < 0 && withinComputationalBounds(iterations)) {
+					// Retry with all actions
+					space = new SearchSpace(new StateRegistry(config.snapshotDepth));
+					node = searchBetterState(space, state, heuristicValue, 
+							stateHelpfulActions, plan.getLength(), false);
+				}
+			} else {
+				node = searchBetterState(space, state, heuristicValue, 
+						null, plan.getLength(), false);
+			}
+			if (node < 0) {
+				break;
+			}
+
+			// Commit to the path to the better state
+			for (Action action : space.extractPlan(node, actions)) {
+				plan.appendAtBack(action);
+			}
+			state = space.getState(node);
+			heuristicValue = space.getHeuristicValue(node);
+			if (useHelpfulActions) {
+				stateHelpfulActions = nodeHelpfulActions.get(node);
+			}
+			numImprovements++;
+		}
+
+		if (goal.isSatisfied(state)) {
+			Logger.log(Logger.INFO, "Enforced hill-climbing found a plan after "
+					+ numImprovements + " improvements and " + iterations
+					+ " expansions. Search time: "
+					+ (System.currentTimeMillis() - searchStartMillis) + "ms");
+			return plan;
+		}
+		if (!withinComputationalBounds(iterations)) {
+			Logger.log(Logger.INFO, "Interrupted and/or computational resources exhausted.");
+			return null;
+		}
+
+		// Dead end: fall back to a complete best-first search
+		Logger.log(Logger.INFO, "Enforced hill-climbing failed after " + numImprovements
+				+ " improvements; falling back to best-first search.");
+		Configuration fallbackConfig = heuristicConfig.copy();
+		fallbackConfig.searchStrategy = Mode.bestFirst;
+		if (config.searchTimeSeconds > 0) {
+			// Remaining search time
+			long elapsedMillis = System.currentTimeMillis() - searchStartMillis;
+			fallbackConfig.searchTimeSeconds = (int) Math.max(1,
+					config.searchTimeSeconds - elapsedMillis / 1000);
+		}
+		ForwardSearchPlanner fallback = new ForwardSearchPlanner(fallbackConfig);
+		fallback.setSuccessorGenerator(successorGenerator);
+		fallback.setCancellationFlag(cancellationFlag);
+		return fallback.findPlan(problem);
+	}
+
+	/**
+	 * Runs a breadth-first search from the provided state until a state
+	 * with a heuristic value lower than the provided one (or a goal state)
+	 * is found. Returns the node of this state inside the provided search
+	 * space, or -1 if there is no such state (or the computational bounds
+	 * have been exceeded). With helpful actions, the helpful actions of
+	 * the provided state must be provided as well.
+	 */
+	private int searchBetterState(SearchSpace space, State state, int heuristicValue,
+			int[] stateHelpfulActions, int depth, boolean helpfulOnly) {
+
+		StateRegistry registry = space.getStateRegistry();
+		space.addNode(-1, -1, registry.register(state), heuristicValue);
+		nodeHelpfulActions.clear();
+		nodeHelpfulActions.add(stateHelpfulActions);
+
+		// Nodes are created in breadth-first order, so the search space
+		// itself serves as the queue
+		for (int node = 0; node < space.size(); node++) {
+
+			if (!withinComputationalBounds(++iterations)) {
+				return -1;
+			}
+			State nodeState = space.getState(node);
+			int nodeDepth = depth + space.getDepth(node);
+			int[] nodeActions = (helpfulOnly ? nodeHelpfulActions.get(node) : null);
+
+			for (int actionIdx : successorGenerator.getApplicableActionIndices(nodeState)) {
+
+				if (helpfulOnly && Arrays.binarySearch(nodeActions, actionIdx) < 0) {
+					continue;
+				}
+				State newState = successorGenerator.apply(actionIdx, nodeState);
+				int numStates = registry.size();
+				int stateId = registry.register(newState);
+				if (stateId < numStates) {
+					// State has already been reached
+					continue;
+				}
+				int newHeuristicValue = evaluate(newState, nodeDepth + 1);
+				if (newHeuristicValue == Integer.MAX_VALUE) {
+					// Dead end
+					continue;
+				}
+				int newNode = space.addNode(node, actionIdx, stateId, newHeuristicValue);
+				if (useHelpfulActions) {
+					nodeHelpfulActions.add(getHelpfulActions());
+				}
+				if (newHeuristicValue < heuristicValue || goal.isSatisfied(newState)) {
+					return newNode;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Computes the heuristic value of the provided state and, 
+	 * if helpful actions are used, its helpful actions.
+	 */
+	private int evaluate(State state, int depth) {
+		if (!useHelpfulActions) {
+			return heuristic.value(searchNode(state, depth));
+		}
+		helpfulActions.clear();
+		return heuristic.value(searchNode(state, depth), helpfulActions);
+	}
+
+	/**
+	 * Returns the helpful actions of the last evaluated state as a sorted array
+	 * (or null if helpful actions are not used).
+	 */
+	private int[] getHelpfulActions() {
+		if (!useHelpfulActions) {
+			return null;
+		}
+		int[] actions = new int[helpfulActions.cardinality()];
+		int i = 0;
+		for (int a = helpfulActions.nextSetBit(0); a >= 0; a = helpfulActions.nextSetBit(a+1)) {
+			actions[i++] = a;
+		}
+		return actions;
+	}
+
+	private static SearchNode searchNode(State state, int depth) {
+		SearchNode node = new SearchNode(null, state);
+		node.depth = depth;
+		return node;
+	}
+}
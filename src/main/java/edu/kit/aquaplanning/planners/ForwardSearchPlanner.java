@@ -8,7 +8,10 @@ import edu.kit.aquaplanning.model.ground.Goal;
 import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
 import edu.kit.aquaplanning.model.ground.Plan;
 import edu.kit.aquaplanning.model.ground.State;
+import edu.kit.aquaplanning.planners.SearchStrategy.Mode;
+import edu.kit.aquaplanning.planners.heuristic.CachedHeuristic;
 import edu.kit.aquaplanning.planners.heuristic.Heuristic;
+import edu.kit.aquaplanning.planners.heuristic.HeuristicCache;
 import edu.kit.aquaplanning.util.Logger;
 
 /**
@@ -22,10 +25,42 @@ import edu.kit.aquaplanning.util.Logger;
  */
 public class ForwardSearchPlanner extends Planner {
 	
+	private SuccessorGenerator successorGenerator;
+	private ConcurrentStateSet sharedVisitedStates;
+	private HeuristicCache heuristicCache;
+	
 	public ForwardSearchPlanner(Configuration config) {
 		super(config);
 	}
 	
+	/**
+	 * Sets a successor generator which has already been constructed
+	 * for the problem to solve, e.g. one shared by multiple planners.
+	 * If none is set (or it belongs to a different problem), 
+	 * a new one is constructed at the beginning of the search.
+	 */
+	public void setSuccessorGenerator(SuccessorGenerator successorGenerator) {
+		this.successorGenerator = successorGenerator;
+	}
+	
+	/**
+	 * Sets a set of visited states which is shared with other planners:
+	 * States visited by any of them are not visited again by this planner
+	 * (unless revisiting states is allowed).
+	 */
+	public void setSharedVisitedStates(ConcurrentStateSet sharedVisitedStates) {
+		this.sharedVisitedStates = sharedVisitedStates;
+	}
+	
+	/**
+	 * Sets a cache of values of the configured heuristic, e.g. one shared 
+	 * by multiple planners using the same heuristic. Ignored if the heuristic 
+	 * is not cacheable.
+	 */
+	public void setHeuristicCache(HeuristicCache heuristicCache) {
+		this.heuristicCache = heuristicCache;
+	}
+	
 	/**
 	 * Given a ground planning problem, employs a forward 
 	 * state space search procedure according to the configuration
@@ -37,18 +72,35 @@ public class ForwardSearchPlanner extends Planner {
 		// Important objects from the planning problem
 		State initState = problem.getInitialState();
 		Goal goal = problem.getGoal();
-		List<Action> actions = problem.getActions();		
+		if (successorGenerator == null || successorGenerator.getProblem() != problem) {
+			successorGenerator = new SuccessorGenerator(problem);
+		}
+		
+		if (config.searchStrategy == Mode.idaStar) {
+			// Depth-first iterative deepening instead of a search queue
+			IdaStarPlanner idaStar = new IdaStarPlanner(config);
+			idaStar.setSuccessorGenerator(successorGenerator);
+			idaStar.setCancellationFlag(cancellationFlag);
+			return idaStar.findPlan(problem);
+		}
+		
+		List<Action> actions = problem.getActions();
 		
 		// Initialize forward search
+		SearchSpace space = new SearchSpace(new StateRegistry(config.snapshotDepth));
 		SearchQueue frontier;
 		SearchStrategy strategy = new SearchStrategy(config);
 		if (strategy.isHeuristical()) {
 			Heuristic heuristic = Heuristic.getHeuristic(problem, config);
-			frontier = new SearchQueue(strategy, heuristic);
+			if (heuristicCache != null && heuristic.isCacheable()) {
+				heuristic = new CachedHeuristic(heuristic, heuristicCache);
+			}
+			frontier = new SearchQueue(strategy, space, heuristic);
 		} else {
-			frontier = new SearchQueue(strategy);
+			frontier = new SearchQueue(strategy, space);
 		}
-		frontier.add(new SearchNode(null, initState));
+		frontier.setSharedVisitedStates(sharedVisitedStates);
+		frontier.add(-1, -1, initState);
 		
 		int iteration = 1;
 		int visitedNodesPrintInterval = 28;
@@ -57,37 +109,28 @@ public class ForwardSearchPlanner extends Planner {
 		while (withinComputationalBounds(iteration) && !frontier.isEmpty()) {
 			
 			// Visit node (by the heuristic provided to the priority queue)
-			SearchNode node = frontier.get();
+			int node = frontier.get();
+			State state = space.getState(node);
 			
 			// Is the goal reached?
-			if (goal.isSatisfied(node.state)) {
+			if (goal.isSatisfied(state)) {
 				
 				// Extract plan
-				Plan plan = new Plan();
-				while (node != null && node.lastAction != null) {
-					plan.appendAtFront(node.lastAction);
-					node = node.parent;
-				}
+				Plan plan = space.extractPlan(node, actions);
 				long timeStop = System.nanoTime();
 				Logger.log(Logger.INFO, "Visited " + iteration + " nodes in total. "
 						+ "Search time: " + (timeStop - timeStart)/1000000 + "ms");
 				return plan;
 			}
 			
-			// Expand node: iterate over operators
-			for (Action action : actions) {
+			// Expand node: iterate over applicable operators
+			for (int actionIdx : successorGenerator.getApplicableActionIndices(state)) {
+				
+				// Create new state by applying the operator
+				State newState = successorGenerator.apply(actionIdx, state);
 				
-				// Can this operator be applied to this state?
-				if (action.isApplicable(node.state)) {
-					
-					// Create new node by applying the operator
-					State newState = action.apply(node.state);
-					
-					// Add new node to frontier
-					SearchNode newNode = new SearchNode(node, newState);
-					newNode.lastAction = action;
-					frontier.add(newNode);
-				}
+				// Add new node to frontier
+				frontier.add(node, actionIdx, newState);
 			}
 			
 			iteration++;
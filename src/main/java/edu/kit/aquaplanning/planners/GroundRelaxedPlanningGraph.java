@@ -1,17 +1,15 @@
 package edu.kit.aquaplanning.planners;
 
-import java.util.List;
-
-import edu.kit.aquaplanning.model.ground.Action;
+import edu.kit.aquaplanning.model.ground.ActionTable;
 import edu.kit.aquaplanning.model.ground.State;
 
 public class GroundRelaxedPlanningGraph {
 
 	private State state;
-	private List<Action> actions;
+	private ActionTable actions;
 	private boolean hasNextLayer;
 	
-	public GroundRelaxedPlanningGraph(State state, List<Action> actions) {
+	public GroundRelaxedPlanningGraph(State state, ActionTable actions) {
 		this.state = state;
 		this.actions = actions;
 		this.hasNextLayer = true;
@@ -25,10 +23,9 @@ public class GroundRelaxedPlanningGraph {
 	public State computeNextLayer() {
 		
 		State newState = new State(state);
-		for (Action action : actions) {
-			if (action.isApplicableRelaxed(state)) {
-				State result = action.applyRelaxed(state);
-				newState.addAllTrueAtomsFrom(result);
+		for (int action = 0; action < actions.getNumActions(); action++) {
+			if (actions.isApplicableRelaxed(action, state)) {
+				actions.applyRelaxed(action, state, newState);
 			}
 		}
 		if (state.size() == newState.size()) {
@@ -0,0 +1,416 @@
+package edu.kit.aquaplanning.planners;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import edu.kit.aquaplanning.Configuration;
+import edu.kit.aquaplanning.model.ground.Action;
+import edu.kit.aquaplanning.model.ground.Goal;
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
+import edu.kit.aquaplanning.model.ground.Plan;
+import edu.kit.aquaplanning.model.ground.State;
+import edu.kit.aquaplanning.planners.SearchStrategy.Mode;
+import edu.kit.aquaplanning.planners.heuristic.Heuristic;
+import edu.kit.aquaplanning.util.Logger;
+
+/**
+ * Hash-distributed A* (HDA*, Kishimoto, Fukunaga and Botea, 2009):
+ * a parallel heuristic forward search. Each state is owned by exactly
+ * one of several worker threads, determined by the state's Zobrist hash.
+ * Each worker has its own open list, state registry (closed list) and
+ * heuristic, and only expands the states it owns; successors owned by
+ * another worker are sent to that worker through a lock-free inbox.
+ *
+ * With the A* strategy, the search does not stop at the first plan:
+ * workers keep expanding the nodes which might still lead to a cheaper
+ * plan than the best one found so far, until no worker has any such node
+ * left and no successors are in flight. Given an admissible heuristic,
+ * the returned plan is optimal. With the other heuristical strategies,
+ * the search stops at the first plan found.
+ */
+public class HdaStarPlanner extends Planner {
+
+	/**
+	 * How long an idle worker sleeps before it looks into its inbox again.
+	 */
+	private static final long IDLE_WAIT_NANOS = 50000;
+
+	private GroundPlanningProblem problem;
+	private List<Action> actions;
+	private Goal goal;
+	private SuccessorGenerator successorGenerator;
+	private SearchStrategy strategy;
+	/**
+	 * True iff the search continues after the first plan
+	 * until the best plan is proven to be optimal.
+	 */
+	private boolean optimal;
+
+	private Worker[] workers;
+	private volatile boolean done;
+	/**
+	 * Amount of busy workers plus amount of messages which have been sent
+	 * but not processed yet. When it drops to zero, it remains zero
+	 * and the search is finished.
+	 */
+	private AtomicLong work;
+
+	/**
+	 * Cost of the best plan found so far, and its last node.
+	 */
+	private AtomicInteger bestCost;
+	private int bestWorker;
+	private int bestNode;
+
+	public HdaStarPlanner(Configuration config) {
+		super(config);
+	}
+
+	@Override
+	public Plan findPlan(GroundPlanningProblem problem) {
+		startSearch();
+		this.problem = problem;
+		this.actions = problem.getActions();
+		this.goal = problem.getGoal();
+		this.successorGenerator = new SuccessorGenerator(problem);
+		this.strategy = new SearchStrategy(config);
+		if (!strategy.isHeuristical()) {
+			Logger.log(Logger.WARN, "HDA* needs a heuristical search strategy; using A*.");
+			Configuration aStarConfig = config.copy();
+			aStarConfig.searchStrategy = Mode.aStar;
+			strategy = new SearchStrategy(aStarConfig);
+		}
+		optimal = (strategy.getMode() == Mode.aStar || strategy.getMode() == Mode.idaStar);
+
+		int numWorkers = Math.max(1, config.numThreads);
+		workers = new Worker[numWorkers];
+		for (int i = 0; i < numWorkers; i++) {
+			workers[i] = new Worker(i);
+		}
+		done = false;
+		work = new AtomicLong(numWorkers);
+		bestCost = new AtomicInteger(Integer.MAX_VALUE);
+		bestWorker = -1;
+		bestNode = -1;
+
+		// Hand the initial state to its owner
+		State initState = problem.getInitialState();
+		workers[owner(initState)].insert(initState, 0, -1, -1, -1);
+
+		// Run all workers and wait for them to finish
+		Thread[] threads = new Thread[numWorkers];
+		for (int i = 0; i < numWorkers; i++) {
+			threads[i] = new Thread(workers[i]);
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				// Stop all workers, but still wait for them
+				done = true;
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		int expansions = 0;
+		for (Worker worker : workers) {
+			expansions += worker.iterations;
+		}
+		Logger.log(Logger.INFO, "HDA* expanded " + expansions + " nodes in total with "
+				+ numWorkers + " workers. Search time: "
+				+ (System.currentTimeMillis() - searchStartMillis) + "ms");
+
+		if (bestWorker < 0) {
+			return null;
+		}
+		return extractPlan(bestWorker, bestNode);
+	}
+
+	/**
+	 * Returns the index of the worker owning the provided state.
+	 */
+	private int owner(State state) {
+		// Map the upper half of the hash to [0, #workers)
+		// (the registries use the lower half for their hash tables)
+		return (int) (((state.getHash() >>> 32) * workers.length) >>> 32);
+	}
+
+	/**
+	 * Callback for when some worker reaches a goal state at the provided cost.
+	 */
+	private synchronized void onGoalFound(int cost, int worker, int node) {
+
+		if (cost >= bestCost.get()) {
+			return;
+		}
+		bestCost.set(cost);
+		bestWorker = worker;
+		bestNode = node;
+		Logger.log(Logger.INFO_V, "HDA*: found plan of length " + cost + ".");
+		if (!optimal) {
+			done = true;
+		}
+	}
+
+	/**
+	 * Assembles the plan leading to the provided node by following
+	 * the parent nodes back to the initial node, across workers.
+	 */
+	private Plan extractPlan(int worker, int node) {
+
+		Plan plan = new Plan();
+		while (node >= 0 && workers[worker].lastActions[node] >= 0) {
+			Worker w = workers[worker];
+			plan.appendAtFront(actions.get(w.lastActions[node]));
+			worker = w.parentWorkers[node];
+			node = w.parentNodes[node];
+		}
+		return plan;
+	}
+
+	/**
+	 * A successor state sent from one worker to another,
+	 * together with the information on how it was reached.
+	 */
+	private static class Message {
+
+		final State state;
+		final int cost;
+		final int parentWorker;
+		final int parentNode;
+		final int action;
+		Message next;
+
+		Message(State state, int cost, int parentWorker, int parentNode, int action) {
+			this.state = state;
+			this.cost = cost;
+			this.parentWorker = parentWorker;
+			this.parentNode = parentNode;
+			this.action = action;
+		}
+	}
+
+	/**
+	 * Lock-free multiple-producer single-consumer queue of messages:
+	 * producers push onto a linked stack with compare-and-swap,
+	 * and the consumer takes all messages at once.
+	 */
+	private static class Inbox {
+
+		private AtomicReference<Message> head = new AtomicReference<>();
+
+		void add(Message message) {
+			Message oldHead;
+			do {
+				oldHead = head.get();
+				message.next = oldHead;
+			} while (!head.compareAndSet(oldHead, message));
+		}
+
+		boolean isEmpty() {
+			return head.get() == null;
+		}
+
+		/**
+		 * Removes all messages and returns them as a linked list
+		 * in the order they have been added (or null, if there are none).
+		 */
+		Message takeAll() {
+			Message message = head.getAndSet(null);
+			// Reverse the stack
+			Message reversed = null;
+			while (message != null) {
+				Message next = message.next;
+				message.next = reversed;
+				reversed = message;
+				message = next;
+			}
+			return reversed;
+		}
+	}
+
+	/**
+	 * Searches the part of the state space it owns.
+	 */
+	private class Worker implements Runnable {
+
+		private int index;
+		private Heuristic heuristic;
+		private Inbox inbox;
+		private OpenList openList;
+		private StateRegistry registry;
+		private int iterations;
+
+		// Properties of each owned state, indexed by state ID
+		private int[] bestCosts;
+		private int[] heuristicValues;
+		private int numStates;
+
+		// Properties of each node, indexed by node ID
+		// (parents may be nodes of other workers)
+		private int[] nodeStates;
+		private int[] nodeCosts;
+		private int[] parentWorkers;
+		private int[] parentNodes;
+		private int[] lastActions;
+		private int numNodes;
+
+		Worker(int index) {
+			this.index = index;
+			this.heuristic = Heuristic.getHeuristic(problem, config);
+			this.inbox = new Inbox();
+			this.openList = strategy.createOpenList();
+			this.registry = new StateRegistry(config.snapshotDepth);
+			bestCosts = new int[1024];
+			heuristicValues = new int[1024];
+			nodeStates = new int[1024];
+			nodeCosts = new int[1024];
+			parentWorkers = new int[1024];
+			parentNodes = new int[1024];
+			lastActions = new int[1024];
+		}
+
+		@Override
+		public void run() {
+
+			while (!done) {
+
+				// Receive successors from other workers
+				Message message = inbox.takeAll();
+				int numMessages = 0;
+				while (message != null) {
+					insert(message.state, message.cost, message.parentWorker,
+							message.parentNode, message.action);
+					numMessages++;
+					message = message.next;
+				}
+				if (numMessages > 0) {
+					work.addAndGet(-numMessages);
+				}
+
+				if (openList.isEmpty()) {
+					waitForWork();
+				} else {
+					expand(openList.poll());
+					if (!withinComputationalBounds(iterations)) {
+						done = true;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Marks this worker as idle and waits until it either receives
+		 * new messages or the search is finished.
+		 */
+		private void waitForWork() {
+
+			if (work.decrementAndGet() == 0) {
+				// No busy workers and no messages in flight
+				done = true;
+				return;
+			}
+			while (!done && inbox.isEmpty()) {
+				LockSupport.parkNanos(IDLE_WAIT_NANOS);
+			}
+			if (!done) {
+				// Busy again (the pending messages keep the counter positive)
+				work.incrementAndGet();
+			}
+		}
+
+		/**
+		 * Adds a node with the provided state to this worker, unless
+		 * the state has already been reached at the same or a lower cost
+		 * or the node cannot lead to a better plan.
+		 */
+		void insert(State state, int cost, int parentWorker, int parentNode, int action) {
+
+			int stateId = registry.register(state);
+			if (stateId == numStates) {
+				// New state
+				if (numStates == bestCosts.length) {
+					bestCosts = Arrays.copyOf(bestCosts, 2 * numStates);
+					heuristicValues = Arrays.copyOf(heuristicValues, 2 * numStates);
+				}
+				bestCosts[stateId] = Integer.MAX_VALUE;
+				heuristicValues[stateId] = -1;
+				numStates++;
+			}
+			if (cost >= bestCosts[stateId]) {
+				return;
+			}
+			bestCosts[stateId] = cost;
+
+			// Each state is evaluated only once
+			int h = heuristicValues[stateId];
+			if (h < 0) {
+				SearchNode node = new SearchNode(null, state);
+				node.depth = cost;
+				h = heuristic.value(node);
+				heuristicValues[stateId] = h;
+			}
+			if (h == Integer.MAX_VALUE || (optimal && (long) cost + h >= bestCost.get())) {
+				return;
+			}
+
+			if (numNodes == nodeStates.length) {
+				int capacity = 2 * numNodes;
+				nodeStates = Arrays.copyOf(nodeStates, capacity);
+				nodeCosts = Arrays.copyOf(nodeCosts, capacity);
+				parentWorkers = Arrays.copyOf(parentWorkers, capacity);
+				parentNodes = Arrays.copyOf(parentNodes, capacity);
+				lastActions = Arrays.copyOf(lastActions, capacity);
+			}
+			int node = numNodes++;
+			nodeStates[node] = stateId;
+			nodeCosts[node] = cost;
+			parentWorkers[node] = parentWorker;
+			parentNodes[node] = parentNode;
+			lastActions[node] = action;
+			openList.add(node, strategy.priority(cost, h), cost, h);
+		}
+
+		private void expand(int node) {
+
+			int stateId = nodeStates[node];
+			int cost = nodeCosts[node];
+			if (cost > bestCosts[stateId]) {
+				// State has been reached cheaper in the meantime
+				return;
+			}
+			if (optimal && (long) cost + heuristicValues[stateId] >= bestCost.get()) {
+				// Cannot lead to a better plan
+				return;
+			}
+			iterations++;
+
+			State state = registry.getState(stateId);
+			if (goal.isSatisfied(state)) {
+				onGoalFound(cost, index, node);
+				return;
+			}
+
+			for (int actionIdx : successorGenerator.getApplicableActionIndices(state)) {
+
+				State newState = successorGenerator.apply(actionIdx, state);
+				int newCost = cost + 1;
+				if (optimal && newCost >= bestCost.get()) {
+					continue;
+				}
+				Worker owner = workers[owner(newState)];
+				if (owner == this) {
+					insert(newState, newCost, index, node, actionIdx);
+				} else {
+					work.incrementAndGet();
+					owner.inbox.add(new Message(newState, newCost, index, node, actionIdx));
+				}
+			}
+		}
+	}
+}
@@ -83,10 +83,16 @@ public class HegemannsSatPlanner extends Planner {
 
     private ArrayList<Action> rankedActions;
     private int numAtoms;
+    private ActionTable actionTable;
+    // For each rank, the index of the action inside the action table
+    private int[] rankedIndices;
 
     private int satVarsPerLayer = 0;
     private List<int[]> recurrentClauses;
 
+    // The solver of the current search, if any
+    private volatile SatSolver solver;
+
     private double timeLimitDecay = 0.9;
     private int initialTimeLimit = 40;
     private int skipLayers = 5;
@@ -100,6 +106,7 @@ public class HegemannsSatPlanner extends Planner {
     }
 
     public Plan findPlan(GroundPlanningProblem problem) {
+        startSearch();
         this.numAtoms = problem.getNumAtoms();
         maxSatVar = 0;
         double timeLimit = initialTimeLimit;
@@ -108,11 +115,17 @@ public class HegemannsSatPlanner extends Planner {
         Ranking ranking = new Ranking(problem.getActions());
         rankedActions = new ArrayList<>(problem.getActions());
         rankedActions.sort(ranking);
+        actionTable = problem.getActionTable();
+        rankedIndices = new int[rankedActions.size()];
+        for (int r = 0; r < rankedActions.size(); r++) {
+            rankedIndices[r] = actionTable.indexOf(rankedActions.get(r));
+        }
 
         // Calculate supporting actions for atoms
         initializeSupports(problem);
 
         SatSolver solver = new SatSolver();
+        this.solver = solver;
 
         // Add the initial state unit clauses
         addInitialStateClauses(problem, solver);
@@ -122,6 +135,11 @@ public class HegemannsSatPlanner extends Planner {
         // Find the plan
         int step = 0;
         while (true) {
+            if (!withinComputationalBounds(step+1)) {
+                // No plan found in the given computational bounds
+                this.solver = null;
+                return null;
+            }
             System.out.println("Step " + step + " - " + (int)Math.ceil(timeLimit) + " seconds limit");
 
             for (int i = 0; i < skipLayers; i++) {
@@ -148,6 +166,8 @@ public class HegemannsSatPlanner extends Planner {
             timeLimit *= timeLimitDecay;
         }
 
+        this.solver = null;
+
         // Decode the plan
         Plan plan = new Plan();
         int[] model = solver.getModel();
@@ -162,6 +182,16 @@ public class HegemannsSatPlanner extends Planner {
         return plan;
     }
 
+    @Override
+    public void cancel() {
+        super.cancel();
+        // Abort the current solve call
+        SatSolver solver = this.solver;
+        if (solver != null) {
+            solver.interrupt();
+        }
+    }
+
     private void calculateRecurrentClauses() {
         maxSatVar = numAtoms + rankedActions.size();
         recurrentClauses = calculateImplicationChainClauses();
@@ -200,69 +230,93 @@ public class HegemannsSatPlanner extends Planner {
         List<int[]> clauses = new LinkedList<>();
 
         // Implication chain for each atom for true and false
+        int[][] preconditionPosRanks = ranksByAtom(actionTable.getPreconditionsPos(),
+                actionTable.getPreconditionPosStart());
+        int[][] preconditionNegRanks = ranksByAtom(actionTable.getPreconditionsNeg(),
+                actionTable.getPreconditionNegStart());
+        int[][] effectPosRanks = ranksByAtom(actionTable.getEffectsPos(), actionTable.getEffectPosStart());
+        int[][] effectNegRanks = ranksByAtom(actionTable.getEffectsNeg(), actionTable.getEffectNegStart());
         for (int atomid = 0; atomid < numAtoms; atomid++) {
-            int lastHelper;
-            boolean chainInitialized;
-
             // chain for -p
-            lastHelper = 0;
-            chainInitialized = false;
-            int r = 0;
-            for (Action action : rankedActions) {
+            addImplicationChain(clauses, preconditionPosRanks[atomid], effectNegRanks[atomid]);
+            // chain for +p
+            addImplicationChain(clauses, preconditionNegRanks[atomid], effectPosRanks[atomid]);
+        }
+
+        //System.out.println("implication chain clauses: " + clauses.size());
+
+        return clauses;
+    }
+
+
+    /**
+     * Adds the implication chain for one atom value: Each action (by rank) 
+     * which requires the value must not be executed after an action (of a 
+     * lower rank) which has the opposite value as an effect. 
+     * Both provided rank lists must be in ascending order.
+     */
+    private void addImplicationChain(List<int[]> clauses, int[] preconditionRanks, int[] effectRanks) {
+        int lastHelper = 0;
+        boolean chainInitialized = false;
+        int p = 0;
+        for (int r : effectRanks) {
+            // actions up to this rank which require the value
+            while (p < preconditionRanks.length && preconditionRanks[p] <= r) {
                 if (chainInitialized) {
-                    if (action.getPreconditionsPos().get(atomid)) {
-                        clauses.add(new int[] {-lastHelper, -getActionSatVariable(r, 0)});
-                    }
-                }
-                if (action.getEffectsNeg().get(atomid)) {
-                    int newHelper = getNextHelperVar();
-                    if (chainInitialized) {
-                        clauses.add(new int[] {-lastHelper, newHelper});
-                    }
-                    chainInitialized = true;
-                    clauses.add(new int[] {-getActionSatVariable(r, 0), newHelper});
-                    lastHelper = newHelper;
+                    clauses.add(new int[] {-lastHelper, -getActionSatVariable(preconditionRanks[p], 0)});
                 }
-                r++;
+                p++;
+            }
+            int newHelper = getNextHelperVar();
+            if (chainInitialized) {
+                clauses.add(new int[] {-lastHelper, newHelper});
             }
+            chainInitialized = true;
+            clauses.add(new int[] {-getActionSatVariable(r, 0), newHelper});
+            lastHelper = newHelper;
+        }
+        // remaining actions which require the value
+        for (; p < preconditionRanks.length && chainInitialized; p++) {
+            clauses.add(new int[] {-lastHelper, -getActionSatVariable(preconditionRanks[p], 0)});
+        }
+    }
 
-            // chain for +p
-            lastHelper = 0;
-            chainInitialized = false;
-            r = 0;
-            for (Action action : rankedActions) {
-                if (chainInitialized) {
-                    if (action.getPreconditionsNeg().get(atomid)) {
-                        clauses.add(new int[] {-lastHelper, -getActionSatVariable(r, 0)});
-                    }
+    /**
+     * Given a list of atoms for each action (compressed form, see ActionTable),
+     * returns for each atom the ranks of all actions whose list contains the atom,
+     * in ascending order.
+     */
+    private int[][] ranksByAtom(int[] atoms, int[] start) {
+        int[] count = new int[numAtoms];
+        for (int r = 0; r < rankedIndices.length; r++) {
+            for (int i = start[rankedIndices[r]]; i < start[rankedIndices[r]+1]; i++) {
+                if (atoms[i] < numAtoms) {
+                    count[atoms[i]]++;
                 }
-                if (action.getEffectsPos().get(atomid)) {
-                    int newHelper = getNextHelperVar();
-                    if (chainInitialized) {
-                        clauses.add(new int[] {-lastHelper, newHelper});
-                    }
-                    chainInitialized = true;
-                    clauses.add(new int[] {-getActionSatVariable(r, 0), newHelper});
-                    lastHelper = newHelper;
+            }
+        }
+        int[][] ranks = new int[numAtoms][];
+        for (int atom = 0; atom < numAtoms; atom++) {
+            ranks[atom] = new int[count[atom]];
+            count[atom] = 0;
+        }
+        for (int r = 0; r < rankedIndices.length; r++) {
+            for (int i = start[rankedIndices[r]]; i < start[rankedIndices[r]+1]; i++) {
+                if (atoms[i] < numAtoms) {
+                    ranks[atoms[i]][count[atoms[i]]++] = r;
                 }
-                r++;
             }
         }
-
-        //System.out.println("implication chain clauses: " + clauses.size());
-
-        return clauses;
+        return ranks;
     }
 
-
     /*
      * Stuff from the SimpleSatPlanner class
      */
     // supporting actions for positive atoms
-    private Map<Integer, List<Integer>> supportingActionsPositive;
+    private int[][] supportingActionsPositive;
     // supporting actions for negative atoms
-    private Map<Integer, List<Integer>> supportingActionsNegative;
-    final private List<Integer> empty = new ArrayList<>();
+    private int[][] supportingActionsNegative;
 
     /**
      * Calculates the assumptions that represent that the goal is reached
@@ -297,27 +351,19 @@ public class HegemannsSatPlanner extends Planner {
         List<int[]> clauses = new LinkedList<>();
 
         // actions imply their effects
-        int r = 0;
-        for (Action a : rankedActions) {
+        for (int r = 0; r < rankedIndices.length; r++) {
             int actionSatId = getActionSatVariable(r, 0);
-            for (int atomid = 0; atomid < numAtoms; atomid++) {
-                if (a.getEffectsPos().get(atomid)) {
-                    int atomSatId = getAtomSatVariable(atomid, 1);
-                    clauses.add(new int[] {-actionSatId, atomSatId});
-                }
-                if (a.getEffectsNeg().get(atomid)) {
-                    int atomSatId = getAtomSatVariable(atomid, 1);
-                    clauses.add(new int[] {-actionSatId, -atomSatId});
-                }
-            }
-            r++;
+            addImplications(clauses, actionSatId, actionTable.getEffectsPos(),
+                    actionTable.getEffectPosStart(), rankedIndices[r], 1, true);
+            addImplications(clauses, actionSatId, actionTable.getEffectsNeg(),
+                    actionTable.getEffectNegStart(), rankedIndices[r], 1, false);
         }
 
         // frame axioms -- if an atom changes then there must be an action causing it
         for (int atomId = 0; atomId < numAtoms; atomId++) {
             // change of atom from true to false
-            List<Integer> supports = getSupportingActions(atomId, false);
-            int[] p2n = new int[2+supports.size()];
+            int[] supports = getSupportingActions(atomId, false);
+            int[] p2n = new int[2+supports.length];
             p2n[0] = -getAtomSatVariable(atomId, 0);
             p2n[1] = getAtomSatVariable(atomId, 1);
             int next = 2;
@@ -329,7 +375,7 @@ public class HegemannsSatPlanner extends Planner {
 
             // change of atom from false to true
             supports = getSupportingActions(atomId, true);
-            int[] n2p = new int[2+supports.size()];
+            int[] n2p = new int[2+supports.length];
             n2p[0] = getAtomSatVariable(atomId, 0);
             n2p[1] = -getAtomSatVariable(atomId, 1);
             next = 2;
@@ -349,54 +395,41 @@ public class HegemannsSatPlanner extends Planner {
         List<int[]> clauses = new LinkedList<>();
 
         // actions imply their preconditions
-        int r = 0;
-        for (Action a : rankedActions) {
+        for (int r = 0; r < rankedIndices.length; r++) {
             int actionSatId = getActionSatVariable(r, 0);
-            for (int atomid = 0; atomid < numAtoms; atomid++) {
-                if (a.getPreconditionsPos().get(atomid)) {
-                    int atomSatId = getAtomSatVariable(atomid, 0);
-                    clauses.add(new int[] {-actionSatId, atomSatId});
-                }
-                if (a.getPreconditionsNeg().get(atomid)) {
-                    int atomSatId = getAtomSatVariable(atomid, 0);
-                    clauses.add(new int[] {-actionSatId, -atomSatId});
-                }
-            }
-            r++;
+            addImplications(clauses, actionSatId, actionTable.getPreconditionsPos(),
+                    actionTable.getPreconditionPosStart(), rankedIndices[r], 0, true);
+            addImplications(clauses, actionSatId, actionTable.getPreconditionsNeg(),
+                    actionTable.getPreconditionNegStart(), rankedIndices[r], 0, false);
         }
 
         return clauses;
     }
 
 
-    private List<Integer> getSupportingActions(int atomid, boolean positive) {
-        List<Integer> result = positive ? supportingActionsPositive.get(atomid) : supportingActionsNegative.get(atomid);
-        return result != null ? result : empty;
+    private int[] getSupportingActions(int atomid, boolean positive) {
+        return positive ? supportingActionsPositive[atomid] : supportingActionsNegative[atomid];
     }
 
 
     private void initializeSupports(GroundPlanningProblem problem) {
-        supportingActionsPositive = new HashMap<>();
-        supportingActionsNegative = new HashMap<>();
-
-        int r = 0;
-        for (Action a : rankedActions) {
-            // calculate atom supports
-            for (int atomid = 0; atomid < problem.getNumAtoms(); atomid++) {
-                if (a.getEffectsPos().get(atomid)) {
-                    if (!supportingActionsPositive.containsKey(atomid)) {
-                        supportingActionsPositive.put(atomid, new LinkedList<>());
-                    }
-                    supportingActionsPositive.get(atomid).add(r);
-                }
-                if (a.getEffectsNeg().get(atomid)) {
-                    if (!supportingActionsNegative.containsKey(atomid)) {
-                        supportingActionsNegative.put(atomid, new LinkedList<>());
-                    }
-                    supportingActionsNegative.get(atomid).add(r);
-                }
+        // calculate atom supports (by rank)
+        supportingActionsPositive = ranksByAtom(actionTable.getEffectsPos(), actionTable.getEffectPosStart());
+        supportingActionsNegative = ranksByAtom(actionTable.getEffectsNeg(), actionTable.getEffectNegStart());
+    }
+
+    /**
+     * Adds clauses stating that the provided action variable implies 
+     * each atom of the action's list (compressed form, see ActionTable)
+     * to have the provided value at the provided step.
+     */
+    private void addImplications(List<int[]> clauses, int actionSatId, int[] atoms, int[] start,
+            int actionIdx, int step, boolean value) {
+        for (int i = start[actionIdx]; i < start[actionIdx+1]; i++) {
+            if (atoms[i] < numAtoms) {
+                int atomSatId = getAtomSatVariable(atoms[i], step);
+                clauses.add(new int[] {-actionSatId, value ? atomSatId : -atomSatId});
             }
-            r++;
         }
     }
 }
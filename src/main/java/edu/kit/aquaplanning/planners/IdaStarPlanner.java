@@ -0,0 +1,235 @@
+package edu.kit.aquaplanning.planners;
+
+import java.util.Arrays;
+import java.util.List;
+
+import edu.kit.aquaplanning.Configuration;
+import edu.kit.aquaplanning.model.ground.Action;
+import edu.kit.aquaplanning.model.ground.Goal;
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
+import edu.kit.aquaplanning.model.ground.Plan;
+import edu.kit.aquaplanning.model.ground.State;
+import edu.kit.aquaplanning.planners.heuristic.Heuristic;
+import edu.kit.aquaplanning.util.Logger;
+
+/**
+ * Iterative deepening A* (Korf, 1985): a sequence of depth-first searches
+ * from the initial state, each of which prunes all nodes n with
+ * g(n)+h(n) larger than the current threshold. The next threshold is the
+ * lowest value which has been pruned in the previous iteration. With an
+ * admissible heuristic, the first plan found is optimal (w.r.t. its length).
+ *
+ * Apart from the current path, only a fixed-size transposition table is
+ * kept in memory (see TranspositionTable). It remembers heuristic values
+ * across iterations, and prunes a state which has already been reached
+ * at a lower or equal cost during the current iteration. Its size is set
+ * by the configured memory ceiling; without a table, states are only
+ * recognized on the current path.
+ */
+public class IdaStarPlanner extends Planner {
+
+	private List<Action> actions;
+	private Goal goal;
+	private SuccessorGenerator successorGenerator;
+	private Heuristic heuristic;
+	private TranspositionTable table;
+	private int iterations;
+
+	/**
+	 * The current path: the states, their applicable actions, the index
+	 * of the action to try next, and the action leading to each state.
+	 */
+	private State[] pathStates;
+	private int[][] pathActions;
+	private int[] pathNextAction;
+	private int[] pathIncomingAction;
+	private int pathLength;
+
+	public IdaStarPlanner(Configuration config) {
+		super(config);
+	}
+
+	/**
+	 * Sets a successor generator which has already been constructed
+	 * for the problem to solve. If none is set (or it belongs to a
+	 * different problem), a new one is constructed.
+	 */
+	public void setSuccessorGenerator(SuccessorGenerator successorGenerator) {
+		this.successorGenerator = successorGenerator;
+	}
+
+	@Override
+	public Plan findPlan(GroundPlanningProblem problem) {
+		startSearch();
+		actions = problem.getActions();
+		goal = problem.getGoal();
+		if (successorGenerator == null || successorGenerator.getProblem() != problem) {
+			successorGenerator = new SuccessorGenerator(problem);
+		}
+		heuristic = Heuristic.getHeuristic(problem, config);
+		table = (config.transpositionTableMb > 0 ?
+				new TranspositionTable(config.transpositionTableMb) : null);
+		iterations = 0;
+		pathStates = new State[64];
+		pathActions = new int[64][];
+		pathNextAction = new int[64];
+		pathIncomingAction = new int[64];
+
+		State initState = problem.getInitialState();
+		int initHeuristicValue = evaluate(initState, 0);
+		int threshold = initHeuristicValue;
+		int iteration = 0;
+		while (threshold != Integer.MAX_VALUE) {
+
+			Logger.log(Logger.INFO_V, "IDA* iteration " + iteration
+					+ " with threshold " + threshold + ".");
+			int nextThreshold = search(initState, initHeuristicValue, threshold, iteration);
+			if (nextThreshold < 0) {
+				Plan plan = extractPlan();
+				Logger.log(Logger.INFO, "IDA* found a plan of length " + plan.getLength()
+						+ " in iteration " + iteration + " after " + iterations
+						+ " expansions. Search time: "
+						+ (System.currentTimeMillis() - searchStartMillis) + "ms");
+				return plan;
+			}
+			if (!withinComputationalBounds(iterations)) {
+				Logger.log(Logger.INFO, "Interrupted and/or computational resources exhausted.");
+				return null;
+			}
+			threshold = nextThreshold;
+			iteration++;
+		}
+
+		Logger.log(Logger.INFO, "Search space exhausted after " + iterations
+				+ " expansions. Search time: "
+				+ (System.currentTimeMillis() - searchStartMillis) + "ms");
+		return null;
+	}
+
+	/**
+	 * Runs a depth-first search from the provided state, pruning all nodes
+	 * whose value of g+h exceeds the provided threshold. Returns -1 if a goal
+	 * state has been reached (the path to it remaining on the path stack),
+	 * or else the lowest pruned value (the maximum integer if none).
+	 */
+	private int search(State initState, int initHeuristicValue, int threshold, int iteration) {
+
+		int nextThreshold = Integer.MAX_VALUE;
+		pathLength = 0;
+		if (goal.isSatisfied(initState)) {
+			push(initState, -1);
+			return -1;
+		}
+		store(initState, 0, initHeuristicValue, iteration);
+		push(initState, -1);
+
+		while (pathLength > 0) {
+
+			int top = pathLength - 1;
+			if (pathActions[top] == null) {
+				// Expand the state
+				if (!withinComputationalBounds(++iterations)) {
+					return nextThreshold;
+				}
+				pathActions[top] = successorGenerator.getApplicableActionIndices(pathStates[top]);
+			}
+			if (pathNextAction[top] == pathActions[top].length) {
+				// All successors have been tried: backtrack
+				pathLength--;
+				continue;
+			}
+			int actionIdx = pathActions[top][pathNextAction[top]++];
+			State newState = successorGenerator.apply(actionIdx, pathStates[top]);
+			int cost = pathLength;
+
+			// Evaluate the new state, consulting the transposition table
+			int heuristicValue = -1;
+			if (table != null) {
+				int slot = table.find(newState.getHash());
+				if (slot >= 0) {
+					if (table.getIteration(slot) == iteration && table.getCost(slot) <= cost) {
+						// Already reached at a lower or equal cost in this iteration
+						continue;
+					}
+					if (heuristic.isCacheable()) {
+						heuristicValue = table.getHeuristicValue(slot);
+					}
+				}
+			} else if (isOnPath(newState)) {
+				continue;
+			}
+			if (heuristicValue < 0) {
+				heuristicValue = evaluate(newState, cost);
+			}
+			if (heuristicValue == Integer.MAX_VALUE) {
+				// Dead end
+				store(newState, cost, heuristicValue, iteration);
+				continue;
+			}
+			long f = (long) cost + heuristicValue;
+			if (f > threshold) {
+				nextThreshold = (int) Math.min(nextThreshold, f);
+				store(newState, cost, heuristicValue, iteration);
+				continue;
+			}
+			if (goal.isSatisfied(newState)) {
+				push(newState, actionIdx);
+				return -1;
+			}
+			store(newState, cost, heuristicValue, iteration);
+			push(newState, actionIdx);
+		}
+		return nextThreshold;
+	}
+
+	private void push(State state, int incomingAction) {
+
+		if (pathLength == pathStates.length) {
+			int capacity = 2 * pathLength;
+			pathStates = Arrays.copyOf(pathStates, capacity);
+			pathActions = Arrays.copyOf(pathActions, capacity);
+			pathNextAction = Arrays.copyOf(pathNextAction, capacity);
+			pathIncomingAction = Arrays.copyOf(pathIncomingAction, capacity);
+		}
+		pathStates[pathLength] = state;
+		pathActions[pathLength] = null;
+		pathNextAction[pathLength] = 0;
+		pathIncomingAction[pathLength] = incomingAction;
+		pathLength++;
+	}
+
+	/**
+	 * True iff the provided state is on the current path.
+	 * Only needed if there is no transposition table.
+	 */
+	private boolean isOnPath(State state) {
+
+		for (int i = 0; i < pathLength; i++) {
+			if (pathStates[i].getHash() == state.getHash() && pathStates[i].equals(state)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void store(State state, int cost, int heuristicValue, int iteration) {
+		if (table != null) {
+			table.store(state.getHash(), cost, heuristicValue, iteration);
+		}
+	}
+
+	private Plan extractPlan() {
+
+		Plan plan = new Plan();
+		for (int i = 1; i < pathLength; i++) {
+			plan.appendAtBack(actions.get(pathIncomingAction[i]));
+		}
+		return plan;
+	}
+
+	private int evaluate(State state, int depth) {
+		SearchNode node = new SearchNode(null, state);
+		node.depth = depth;
+		return heuristic.value(node);
+	}
+}
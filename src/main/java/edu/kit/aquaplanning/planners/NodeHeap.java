@@ -0,0 +1,138 @@
+package edu.kit.aquaplanning.planners;
+
+import java.util.Arrays;
+
+import edu.kit.aquaplanning.planners.SearchStrategy.TieBreaking;
+
+/**
+ * Binary min-heap of search node IDs with (long) priority keys,
+ * stored in two primitive arrays. As an open list, the key of a node
+ * is composed of its priority (upper 32 bits) and its tie-breaking 
+ * value (lower 32 bits).
+ */
+public class NodeHeap implements OpenList {
+
+	private int[] nodes;
+	private long[] keys;
+	private int size;
+	
+	private TieBreaking tieBreaking;
+	private int insertions;
+
+	public NodeHeap() {
+		this(TieBreaking.fifo);
+	}
+	
+	public NodeHeap(TieBreaking tieBreaking) {
+		this.tieBreaking = tieBreaking;
+		nodes = new int[64];
+		keys = new long[64];
+	}
+	
+	@Override
+	public void add(int node, int priority, int depth, int heuristicValue) {
+		
+		int tieBreakingValue;
+		switch (tieBreaking) {
+		case none:
+			tieBreakingValue = 0;
+			break;
+		case lifo:
+			tieBreakingValue = -insertions;
+			break;
+		case lowestH:
+			tieBreakingValue = heuristicValue;
+			break;
+		case highestG:
+			tieBreakingValue = -depth;
+			break;
+		default:
+			tieBreakingValue = insertions;
+			break;
+		}
+		insertions++;
+		// Shift the signed tie-breaking value into the unsigned range
+		long lowerBits = (tieBreakingValue ^ Integer.MIN_VALUE) & 0xffffffffL;
+		add(node, ((long) priority << 32) | lowerBits);
+	}
+
+	/**
+	 * Inserts a node with the provided key.
+	 */
+	public void add(int node, long key) {
+
+		if (size == nodes.length) {
+			nodes = Arrays.copyOf(nodes, 2 * size);
+			keys = Arrays.copyOf(keys, 2 * size);
+		}
+
+		// Sift up
+		int pos = size++;
+		while (pos > 0) {
+			int parent = (pos - 1) >>> 1;
+			if (keys[parent] <= key) {
+				break;
+			}
+			nodes[pos] = nodes[parent];
+			keys[pos] = keys[parent];
+			pos = parent;
+		}
+		nodes[pos] = node;
+		keys[pos] = key;
+	}
+
+	/**
+	 * Removes and returns a node with the smallest key.
+	 */
+	@Override
+	public int poll() {
+
+		int result = nodes[0];
+		size--;
+		int node = nodes[size];
+		long key = keys[size];
+
+		// Sift down
+		int pos = 0;
+		int half = size >>> 1;
+		while (pos < half) {
+			int child = 2 * pos + 1;
+			if (child + 1 < size && keys[child + 1] < keys[child]) {
+				child++;
+			}
+			if (key <= keys[child]) {
+				break;
+			}
+			nodes[pos] = nodes[child];
+			keys[pos] = keys[child];
+			pos = child;
+		}
+		nodes[pos] = node;
+		keys[pos] = key;
+		return result;
+	}
+
+	/**
+	 * Returns the smallest key in the heap without removing it.
+	 */
+	public long peekKey() {
+		return keys[0];
+	}
+
+	/**
+	 * Removes all nodes from the heap (keeping the allocated memory).
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+}
@@ -0,0 +1,137 @@
+package edu.kit.aquaplanning.planners;
+
+import java.util.Arrays;
+
+import edu.kit.aquaplanning.model.ground.AtomSet;
+import edu.kit.aquaplanning.model.ground.State;
+
+/**
+ * Records which atoms (width 1) and which pairs of atoms (width 2)
+ * have already been true in some state seen before, in order to compute
+ * the novelty of new states: A state has novelty 1 if it makes some atom
+ * true for the first time, novelty 2 if it makes some pair of atoms true
+ * for the first time (but no single atom), and novelty width+1 otherwise.
+ *
+ * Atoms are recorded in a bitmap indexed by atom ID, and pairs of atoms
+ * (i,j) with i < j in a triangular bitmap indexed by j*(j-1)/2 + i.
+ * Numeric atoms are not considered.
+ */
+public class NoveltyTable {
+
+	/**
+	 * Maximum total size of the pair bitmaps used by a search, 
+	 * in bits (i.e. 256 MB).
+	 */
+	private static final long MAX_PAIR_BITS = 1L << 31;
+
+	private int numAtoms;
+	private int width;
+	private long[] atoms;
+	private long[] pairs;
+
+	/**
+	 * Buffer for the true atoms of the evaluated state.
+	 */
+	private int[] trueAtoms;
+
+	/**
+	 * Creates a table for states over the provided amount of atoms,
+	 * computing novelties up to the provided width (1 or 2).
+	 */
+	public NoveltyTable(int numAtoms, int width) {
+
+		if (width < 1 || width > 2) {
+			throw new IllegalArgumentException("Only novelty tables of width 1 or 2 are supported.");
+		}
+		if (width == 2 && !fitsPairBitmap(numAtoms)) {
+			throw new IllegalArgumentException("Too many atoms (" + numAtoms
+					+ ") for a novelty table of width 2.");
+		}
+		this.numAtoms = numAtoms;
+		this.width = width;
+		atoms = new long[(numAtoms + 63) / 64];
+		if (width == 2) {
+			pairs = new long[(int) ((numPairs(numAtoms) + 63) / 64)];
+		}
+		trueAtoms = new int[64];
+	}
+
+	/**
+	 * True iff a novelty table of width 2 can be created
+	 * for the provided amount of atoms.
+	 */
+	public static boolean fitsPairBitmap(int numAtoms) {
+		return fitsPairBitmaps(numAtoms, 1);
+	}
+
+	/**
+	 * True iff the provided amount of novelty tables of width 2
+	 * for the provided amount of atoms can be created together.
+	 */
+	public static boolean fitsPairBitmaps(int numAtoms, int numTables) {
+		return numPairs(numAtoms) <= MAX_PAIR_BITS / Math.max(1, numTables);
+	}
+
+	/**
+	 * Returns the novelty of the provided state with respect to all
+	 * states evaluated before (a value between 1 and width+1), and
+	 * records the atoms (and pairs) of the state.
+	 */
+	public int evaluate(State state) {
+
+		// Collect true atoms
+		AtomSet atomSet = state.getAtomSet();
+		int size = 0;
+		for (int atom = atomSet.nextSetBit(0); atom >= 0 && atom < numAtoms;
+				atom = atomSet.nextSetBit(atom+1)) {
+			if (size == trueAtoms.length) {
+				trueAtoms = Arrays.copyOf(trueAtoms, 2 * size);
+			}
+			trueAtoms[size++] = atom;
+		}
+
+		int novelty = width + 1;
+		for (int i = 0; i < size; i++) {
+			if (testAndSet(atoms, trueAtoms[i])) {
+				novelty = 1;
+			}
+		}
+		if (width == 2) {
+			for (int j = 1; j < size; j++) {
+				long offset = numPairs(trueAtoms[j]);
+				for (int i = 0; i < j; i++) {
+					if (testAndSet(pairs, offset + trueAtoms[i])) {
+						novelty = Math.min(novelty, 2);
+					}
+				}
+			}
+		}
+		return novelty;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Sets the provided bit and returns true iff it has not been set before.
+	 */
+	private static boolean testAndSet(long[] bitmap, long bit) {
+
+		int word = (int) (bit >>> 6);
+		long mask = 1L << bit;
+		if ((bitmap[word] & mask) != 0) {
+			return false;
+		}
+		bitmap[word] |= mask;
+		return true;
+	}
+
+	/**
+	 * The amount of pairs (i,j) with i < j < n, i.e. the index of
+	 * the first pair with j = n in the triangular bitmap.
+	 */
+	private static long numPairs(int n) {
+		return (long) n * (n - 1) / 2;
+	}
+}
@@ -0,0 +1,26 @@
+package edu.kit.aquaplanning.planners;
+
+/**
+ * Priority queue of open search nodes (referred to by their node IDs)
+ * which always polls a node of the lowest priority value.
+ * Among nodes of equal priority, a node is picked according to 
+ * the tie-breaking rule the open list has been created with.
+ */
+public interface OpenList {
+
+	/**
+	 * Inserts a node with the provided (non-negative) priority value.
+	 * The depth and the heuristic value of the node are used
+	 * for tie-breaking purposes.
+	 */
+	public void add(int node, int priority, int depth, int heuristicValue);
+	
+	/**
+	 * Removes and returns a node of the lowest priority value.
+	 */
+	public int poll();
+	
+	public boolean isEmpty();
+	
+	public int size();
+}
@@ -1,5 +1,7 @@
 package edu.kit.aquaplanning.planners;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import edu.kit.aquaplanning.Configuration;
 import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
 import edu.kit.aquaplanning.model.ground.Plan;
@@ -14,11 +16,37 @@ public abstract class Planner {
 	
 	protected Configuration config;
 	protected long searchStartMillis = 0;
+	/**
+	 * Set to cooperatively cancel the search. May be shared by several
+	 * planners, which are then all cancelled at once.
+	 */
+	protected AtomicBoolean cancellationFlag = new AtomicBoolean(false);
 	
 	public Planner(Configuration config) {
 		this.config = config;
 	}
 	
+	/**
+	 * Replaces this planner's cancellation flag by the provided one,
+	 * e.g. a flag shared by all planners of a portfolio.
+	 */
+	public void setCancellationFlag(AtomicBoolean cancellationFlag) {
+		this.cancellationFlag = cancellationFlag;
+	}
+	
+	/**
+	 * Asks the planner (and all planners sharing its cancellation flag)
+	 * to stop its search as soon as possible. A cancelled planner 
+	 * returns null unless it has already found a plan.
+	 */
+	public void cancel() {
+		cancellationFlag.set(true);
+	}
+	
+	public boolean isCancelled() {
+		return cancellationFlag.get();
+	}
+	
 	protected void startSearch() {
 		searchStartMillis = System.currentTimeMillis();
 	}
@@ -30,7 +58,7 @@ public abstract class Planner {
 	 */
 	protected boolean withinComputationalBounds(int iterations) {
 		
-		if (Thread.interrupted())
+		if (Thread.interrupted() || cancellationFlag.get())
 			return false;
 		
 
@@ -76,6 +104,19 @@ public abstract class Planner {
 			Logger.log(Logger.INFO, "Doing parallel planning with up to " 
 						+ config.numThreads + " threads.");
 			return new SimpleParallelPlanner(config);
+		case hdaStar:
+			Logger.log(Logger.INFO, "Doing hash-distributed A* with " 
+						+ config.numThreads + " threads.");
+			return new HdaStarPlanner(config);
+		case portfolio:
+			return new PortfolioPlanner(config);
+		case enforcedHillClimbing:
+			return new EnforcedHillClimbingPlanner(config);
+		case iw:
+		case bfws:
+			return new WidthBasedPlanner(config);
+		case anytime:
+			return new AnytimePlanner(config);
 		}
 		return null;
 	}
@@ -0,0 +1,170 @@
+package edu.kit.aquaplanning.planners;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.kit.aquaplanning.Configuration;
+import edu.kit.aquaplanning.Configuration.HeuristicType;
+import edu.kit.aquaplanning.Configuration.PlannerType;
+
+/**
+ * One planner configuration of a PortfolioPlanner.
+ *
+ * A portfolio is specified as a string of members separated by ";".
+ * Each member is a list of "key=value" pairs separated by ",", e.g.
+ * "planner=forwardSSS,search=bestFirst,heuristic=hFF,time=50".
+ * The following keys are supported (each of them optional):
+ * <ul>
+ * <li>planner: the planner type (except for portfolio),</li>
+ * <li>search: the search strategy of a forward search,</li>
+ * <li>heuristic: the heuristic of a forward search,</li>
+ * <li>weight: the heuristic weight of a weighted search strategy,</li>
+ * <li>threads: the amount of threads of a parallel planner,</li>
+ * <li>time: the share of the overall search time (in percent) after
+ * which the member gives up.</li>
+ * </ul>
+ * Values which are not specified are taken from the
+ * portfolio's configuration.
+ */
+public class PortfolioMember {
+
+	/**
+	 * Used if no portfolio is specified: greedy searches with different
+	 * heuristics, a weighted A* search, and both SAT-based planners.
+	 */
+	public static final String DEFAULT_PORTFOLIO =
+			"planner=forwardSSS,search=dualQueue,heuristic=hFF;"
+			+ "planner=forwardSSS,search=bestFirst,heuristic=hAdd;"
+			+ "planner=forwardSSS,search=weightedAStar,heuristic=hFF,weight=3;"
+			+ "planner=satBased;"
+			+ "planner=hegemannSat";
+
+	private PlannerType plannerType;
+	private SearchStrategy.Mode searchStrategy;
+	private HeuristicType heuristic;
+	private int heuristicWeight;
+	private int numThreads;
+	private int timeShare = 100;
+
+	/**
+	 * Parses a portfolio specification (see the class description).
+	 */
+	public static List<PortfolioMember> parse(String portfolio) {
+
+		List<PortfolioMember> members = new ArrayList<>();
+		for (String memberSpec : portfolio.split(";")) {
+			if (memberSpec.trim().isEmpty()) {
+				continue;
+			}
+			PortfolioMember member = new PortfolioMember();
+			for (String pair : memberSpec.split(",")) {
+				String[] keyValue = pair.split("=");
+				if (keyValue.length != 2) {
+					throw new IllegalArgumentException("Invalid portfolio member \""
+							+ memberSpec.trim() + "\": expected key=value pairs.");
+				}
+				member.set(keyValue[0].trim(), keyValue[1].trim());
+			}
+			members.add(member);
+		}
+		if (members.isEmpty()) {
+			throw new IllegalArgumentException("The portfolio does not contain any members.");
+		}
+		return members;
+	}
+
+	private void set(String key, String value) {
+
+		try {
+			switch (key) {
+			case "planner":
+				plannerType = PlannerType.valueOf(value);
+				if (plannerType == PlannerType.portfolio) {
+					throw new IllegalArgumentException("Portfolios cannot be nested.");
+				}
+				break;
+			case "search":
+				searchStrategy = SearchStrategy.Mode.valueOf(value);
+				break;
+			case "heuristic":
+				heuristic = HeuristicType.valueOf(value);
+				break;
+			case "weight":
+				heuristicWeight = Integer.parseInt(value);
+				break;
+			case "threads":
+				numThreads = Integer.parseInt(value);
+				break;
+			case "time":
+				timeShare = Integer.parseInt(value);
+				if (timeShare <= 0 || timeShare > 100) {
+					throw new IllegalArgumentException("The time share of a portfolio member "
+							+ "must be a percentage between 1 and 100.");
+				}
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown key \"" + key
+						+ "\" of a portfolio member.");
+			}
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid number \"" + value
+					+ "\" for the key \"" + key + "\" of a portfolio member.");
+		}
+	}
+
+	/**
+	 * Returns the configuration of this member, based on the provided
+	 * configuration of the portfolio.
+	 */
+	public Configuration getConfiguration(Configuration portfolioConfig) {
+
+		Configuration config = portfolioConfig.copy();
+		config.plannerType = (plannerType != null ? plannerType : PlannerType.forwardSSS);
+		if (searchStrategy != null) {
+			config.searchStrategy = searchStrategy;
+		}
+		if (heuristic != null) {
+			config.heuristic = heuristic;
+		}
+		if (heuristicWeight > 0) {
+			config.heuristicWeight = heuristicWeight;
+		}
+		config.numThreads = (numThreads > 0 ? numThreads : 1);
+		if (timeShare < 100) {
+			if (portfolioConfig.searchTimeSeconds > 0) {
+				config.searchTimeSeconds = Math.max(1,
+						portfolioConfig.searchTimeSeconds * timeShare / 100);
+			} else if (portfolioConfig.maxTimeSeconds > 0) {
+				// Share of the time remaining for the search
+				long remainingMillis = portfolioConfig.maxTimeSeconds * 1000L
+						- (System.currentTimeMillis() - portfolioConfig.startTimeMillis);
+				config.searchTimeSeconds = (int) Math.max(1,
+						remainingMillis / 1000 * timeShare / 100);
+			}
+		}
+		return config;
+	}
+
+	@Override
+	public String toString() {
+
+		StringBuilder sb = new StringBuilder();
+		sb.append("planner=" + (plannerType != null ? plannerType : PlannerType.forwardSSS));
+		if (searchStrategy != null) {
+			sb.append(",search=" + searchStrategy);
+		}
+		if (heuristic != null) {
+			sb.append(",heuristic=" + heuristic);
+		}
+		if (heuristicWeight > 0) {
+			sb.append(",weight=" + heuristicWeight);
+		}
+		if (numThreads > 0) {
+			sb.append(",threads=" + numThreads);
+		}
+		if (timeShare < 100) {
+			sb.append(",time=" + timeShare);
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,156 @@
+package edu.kit.aquaplanning.planners;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import edu.kit.aquaplanning.Configuration;
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
+import edu.kit.aquaplanning.model.ground.Plan;
+import edu.kit.aquaplanning.util.Logger;
+
+/**
+ * A portfolio planner which runs a configurable mix of planners
+ * (see PortfolioMember) concurrently on a fixed pool of threads and
+ * returns the first plan found by any of them.
+ *
+ * The amount of pool threads is the configured amount of threads.
+ * If there are more members than pool threads, the remaining members
+ * are started in the given order whenever some member has given up.
+ * All members share one cancellation flag, which is set as soon as
+ * a plan has been found; forward search members additionally share
+ * their search data (see SharedSearchData).
+ */
+public class PortfolioPlanner extends Planner {
+
+	private List<PortfolioMember> members;
+	private List<Planner> planners;
+	private Plan plan;
+	private int winner;
+
+	public PortfolioPlanner(Configuration config) {
+		super(config);
+		members = PortfolioMember.parse(config.portfolio != null ?
+				config.portfolio : PortfolioMember.DEFAULT_PORTFOLIO);
+	}
+
+	/**
+	 * Callback for when the member of the provided index finds a plan.
+	 */
+	private synchronized void onPlanFound(int member, Plan plan) {
+
+		if (this.plan != null) {
+			// Another member already found a plan
+			return;
+		}
+		this.plan = plan;
+		this.winner = member;
+		cancel();
+	}
+
+	/**
+	 * Cancels the portfolio and each of its members (not only by the
+	 * shared flag, but also by whatever a member needs to abort
+	 * a long computation).
+	 */
+	@Override
+	public void cancel() {
+		super.cancel();
+		List<Planner> planners = this.planners;
+		if (planners != null) {
+			for (Planner planner : planners) {
+				planner.cancel();
+			}
+		}
+	}
+
+	@Override
+	public Plan findPlan(GroundPlanningProblem problem) {
+		startSearch();
+		plan = null;
+		winner = -1;
+		SharedSearchData sharedData = new SharedSearchData(
+				new SuccessorGenerator(problem), config);
+
+		// Create the members' planners
+		planners = new ArrayList<>();
+		for (PortfolioMember member : members) {
+			Configuration memberConfig = member.getConfiguration(config);
+			Planner planner = Planner.getPlanner(memberConfig);
+			if (planner instanceof ForwardSearchPlanner) {
+				sharedData.share((ForwardSearchPlanner) planner, memberConfig);
+			}
+			planner.setCancellationFlag(cancellationFlag);
+			planners.add(planner);
+		}
+
+		// Submit all members to the thread pool
+		int numThreads = Math.max(1, Math.min(config.numThreads, members.size()));
+		Logger.log(Logger.INFO, "Running a portfolio of " + members.size()
+				+ " planners on " + numThreads + " threads.");
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < planners.size(); i++) {
+			final int member = i;
+			futures.add(executor.submit(() -> {
+				if (isCancelled()) {
+					// Never started before a plan was found
+					return;
+				}
+				Logger.log(Logger.INFO_V, "Starting portfolio member #" + member
+						+ " (" + members.get(member) + ").");
+				Plan plan = planners.get(member).findPlan(problem);
+				if (plan != null) {
+					onPlanFound(member, plan);
+				}
+			}));
+		}
+		executor.shutdown();
+
+		// Wait for all members to finish
+		// (if some plan has been found, all members are cancelled)
+		try {
+			while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+				if (!withinComputationalBounds(0)) {
+					// Out of time, or the portfolio itself has been interrupted
+					cancel();
+				}
+			}
+		} catch (InterruptedException e) {
+			cancel();
+			Thread.currentThread().interrupt();
+		}
+		for (int i = 0; i < futures.size(); i++) {
+			try {
+				futures.get(i).get();
+			} catch (ExecutionException e) {
+				Logger.log(Logger.WARN, "Portfolio member #" + i + " (" + members.get(i)
+						+ ") failed: " + e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		if (plan != null) {
+			Logger.log(Logger.INFO, "Portfolio member #" + winner
+					+ " (" + members.get(winner) + ") found a plan.");
+		}
+		return plan;
+	}
+
+	/**
+	 * Returns the member which found the plan during the last search,
+	 * or null if no plan has been found.
+	 */
+	public PortfolioMember getWinner() {
+		return (winner >= 0 ? members.get(winner) : null);
+	}
+
+	public List<PortfolioMember> getMembers() {
+		return members;
+	}
+}
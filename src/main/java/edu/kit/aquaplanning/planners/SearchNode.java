@@ -8,6 +8,9 @@ import edu.kit.aquaplanning.model.ground.State;
  * Contains the parent node (the previous state), the current state,
  * the most recent action leading to this state, and other freely 
  * accessible information.
+ * The forward search itself keeps its nodes in a (more compact) 
+ * SearchSpace; objects of this class are used to hand a node 
+ * over to a heuristic.
  */
 public class SearchNode {
 	
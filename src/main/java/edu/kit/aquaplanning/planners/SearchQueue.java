@@ -1,174 +1,370 @@
 package edu.kit.aquaplanning.planners;
 
-import java.util.ArrayDeque;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.PriorityQueue;
-import java.util.Queue;
+import java.util.BitSet;
 import java.util.Random;
-import java.util.Set;
-import java.util.Stack;
 
+import edu.kit.aquaplanning.model.ground.State;
 import edu.kit.aquaplanning.planners.SearchStrategy.Mode;
 import edu.kit.aquaplanning.planners.heuristic.Heuristic;
 
 /**
  * Maintains a structure of search nodes. Nodes can be added and polled
  * from the structure. Which node is polled depends on the chosen strategy.
+ *
+ * The nodes themselves live inside a SearchSpace and are referred to
+ * by their node IDs; this structure only holds these IDs.
  */
 public class SearchQueue {
 
+	/**
+	 * By how many polls the preferred open list of the dual-queue mode
+	 * is prioritized each time a better heuristic score has been found.
+	 */
+	private static final int PREFERRED_BOOST = 1000;
+
 	private SearchStrategy strategy;
 	private Heuristic h;
-	
-	// Different data structures used depending on the employed strategy
-	private Queue<SearchNode> queue;
-	private Stack<SearchNode> stack;
-	private List<SearchNode> list;
+	private SearchSpace space;
+
+	// Different data structures used depending on the employed strategy:
+	// an open list for heuristical strategies, and a plain array
+	// otherwise (used as a ring buffer, as a stack, or as a list)
+	private OpenList openList;
+	private int[] nodes;
+	private int first;
+	private int size;
 	private Random random;
-	
+
+	// Only for the dual-queue mode: a second open list with the nodes
+	// reached by preferred actions, and the preferred actions of the
+	// most recent parent node
+	private OpenList preferredOpenList;
+	private int regularPriority;
+	private int preferredPriority;
+	private int bestHeuristicValue = Integer.MAX_VALUE;
+	private BitSet preferredActions;
+	private int preferredActionsNode = -1;
+	private BitSet polledNodes;
+
 	/**
-	 * Contains the hashes of all states which have already been visited.
+	 * The next node to visit, if it has already been polled
+	 * by a call to isEmpty() (or -1).
 	 */
-	private Set<Integer> visitedStates;
-	
+	private int pendingNode = -1;
+
+	/**
+	 * Contains the IDs of all states which have already been visited.
+	 */
+	private BitSet visitedStates;
+	/**
+	 * If set, contains all states which have already been visited
+	 * by this search or by any other search sharing the set.
+	 */
+	private ConcurrentStateSet sharedVisitedStates;
+
 	/**
 	 * Initializes a forward search queue with a non-heuristical strategy.
 	 */
-	public SearchQueue(SearchStrategy s) {
+	public SearchQueue(SearchStrategy s, SearchSpace space) {
 		this.strategy = s;
+		this.space = space;
 		if (s.isHeuristical()) {
 			throw new IllegalArgumentException(
 					"A heuristic must be provided in the constructor.");
 		}
 		initFrontier();
 	}
-	
+
 	/**
-	 * Initializes a forward search queue with a heuristical strategy 
+	 * Initializes a forward search queue with a heuristical strategy
 	 * and a corresponding heuristic.
 	 */
-	public SearchQueue(SearchStrategy s, Heuristic h) {
+	public SearchQueue(SearchStrategy s, SearchSpace space, Heuristic h) {
 		this.strategy = s;
+		this.space = space;
 		this.h = h;
 		initFrontier();
 	}
-	
+
 	private void initFrontier() {
-		
-		switch (strategy.getMode()) {
-		case breadthFirst:
-			queue = new ArrayDeque<>();
-			break;
-		case depthFirst:
-			stack = new Stack<>();
-			break;
-		case bestFirst:
-			queue = new PriorityQueue<SearchNode>((n1, n2) ->
-					// Compare heuristic scores
-					n1.heuristicValue - n2.heuristicValue
-			);
-			break;
-		case aStar:
-			queue = new PriorityQueue<SearchNode>((n1, n2) ->
-					// Compare (cost so far + heuristic scores)
-					n1.depth + n1.heuristicValue - (n2.depth + n2.heuristicValue)
-			);
-			break;
-		case weightedAStar:
-			int heuristicWeight = strategy.getHeuristicWeight();
-			queue = new PriorityQueue<SearchNode>((n1, n2) ->
-					// Compare (cost so far + heuristic scores)
-					n1.depth + heuristicWeight * n1.heuristicValue 
-					- (n2.depth + heuristicWeight * n2.heuristicValue)
-			);
-			break;
-		case randomChoice:
-			list = new ArrayList<>();
+
+		if (strategy.isHeuristical()) {
+			openList = strategy.createOpenList();
+			if (strategy.getMode() == Mode.dualQueue) {
+				preferredOpenList = strategy.createOpenList();
+				preferredActions = new BitSet();
+				polledNodes = new BitSet();
+			}
+		} else {
+			nodes = new int[64];
+		}
+		if (strategy.getMode() == Mode.randomChoice) {
 			random = new Random(strategy.getSeed());
-			break;
 		}
-		visitedStates = new HashSet<>();
+		visitedStates = new BitSet();
+	}
+
+	/**
+	 * Makes this queue share its visited states with all other queues
+	 * using the provided set, so that each state is visited by only one
+	 * of the searches. Has no effect if revisiting states is allowed.
+	 */
+	public void setSharedVisitedStates(ConcurrentStateSet sharedVisitedStates) {
+		this.sharedVisitedStates = sharedVisitedStates;
 	}
-	
+
 	/**
-	 * Returns true if the provided node is unneeded 
+	 * Returns true if a node with the provided state ID is unneeded
 	 * and should be discarded.
 	 */
-	public boolean canBePruned(SearchNode node) {
-		
+	public boolean canBePruned(int stateId) {
+
 		// If revisiting states is forbidden:
 		// Has the state already been visited?
-		if (!strategy.canRevisitStates() && 
-				visitedStates.contains(node.state.hashCode())) {
+		if (!strategy.canRevisitStates() && visitedStates.get(stateId)) {
 			return true;
 		}
 		return false;
 	}
-	
+
 	/**
-	 * Proposes to add a search node to the structure. 
+	 * Proposes to add a search node to the structure, which is reached
+	 * from the provided parent node (-1 for the root node) by the action
+	 * of the provided index (-1 for the root node) and has the provided state.
 	 * It may be internally decided that the node is not needed,
 	 * discarding the node instead.
 	 */
-	public void add(SearchNode node) {
-		
+	public void add(int parent, int actionIndex, State state) {
+
 		// Should the node be pruned away?
-		if (canBePruned(node))
+		int stateId = space.getStateRegistry().register(state);
+		if (canBePruned(stateId))
 			return;
-		
+		if (sharedVisitedStates != null && !strategy.canRevisitStates()
+				&& sharedVisitedStates.contains(state))
+			return;
+
 		if (strategy.isHeuristical()) {
-			// Compute heuristic value for the node
-			node.heuristicValue = h.value(node);
-			if (node.heuristicValue < Integer.MAX_VALUE) {
-				// Only add node if heuristic does not return infinity
-				queue.add(node);
+			// Is the node reached by a preferred action?
+			boolean preferred = preferredOpenList != null && parent >= 0 
+					&& isPreferred(parent, actionIndex);
+
+			int depth = (parent < 0 ? 0 : space.getDepth(parent) + 1);
+			int heuristicValue;
+			if (strategy.isLazy()) {
+				// Defer evaluation: use the parent's heuristic value for now
+				heuristicValue = (parent < 0 ? 0 : space.getHeuristicValue(parent));
+			} else {
+				// Compute heuristic value for the node
+				SearchNode node = new SearchNode(null, state);
+				node.depth = depth;
+				heuristicValue = h.value(node);
+				if (heuristicValue == Integer.MAX_VALUE) {
+					// Only add node if heuristic does not return infinity
+					return;
+				}
+				onEvaluation(heuristicValue);
+			}
+			int id = space.addNode(parent, actionIndex, stateId, heuristicValue);
+			int priority = strategy.priority(depth, heuristicValue);
+			openList.add(id, priority, depth, heuristicValue);
+			if (preferred) {
+				preferredOpenList.add(id, priority, depth, heuristicValue);
 			}
-		} else if (strategy.getMode() == Mode.breadthFirst) {
-			queue.add(node);
-		} else if (strategy.getMode() == Mode.depthFirst) {
-			stack.push(node);
-		} else if (strategy.getMode() == Mode.randomChoice) {
-			list.add(node);
-		}
-	}
-	
-	/**
-	 * Polls a node according to the employed strategy.
-	 */
-	public SearchNode get() {
-		
-		SearchNode node;
-		if (strategy.getMode() == Mode.depthFirst) {
-			node = stack.pop();
-		} else if (strategy.getMode() == Mode.randomChoice) {
-			int r = random.nextInt(list.size());
-			node = list.remove(r);
 		} else {
-			node = queue.poll();
+			int id = space.addNode(parent, actionIndex, stateId, 0);
+			push(id);
 		}
-		
-		// If revisiting states during the search is forbidden:
-		if (!strategy.canRevisitStates()) {			
-			// Add the state's hash code to the visited states
-			visitedStates.add(node.state.hashCode());
-		}
-		
+	}
+
+	/**
+	 * Polls a node according to the employed strategy
+	 * and returns its ID.
+	 */
+	public int get() {
+
+		int node = (pendingNode >= 0 ? pendingNode : pollNode());
+		pendingNode = -1;
 		return node;
 	}
-	
+
 	/**
 	 * Returns true iff there are no nodes left to visit.
 	 */
 	public boolean isEmpty() {
-		
-		if (strategy.getMode() == Mode.depthFirst) {
-			return stack.isEmpty();
-		} else if (strategy.getMode() == Mode.randomChoice) {
-			return list.isEmpty();
+
+		// Look ahead for a node which can actually be visited
+		if (pendingNode < 0) {
+			pendingNode = pollNode();
+		}
+		return pendingNode < 0;
+	}
+
+	/**
+	 * Removes the next node to visit according to the employed strategy,
+	 * marks its state as visited, and returns its ID (or -1 if there is
+	 * no node left). Nodes whose state has been visited by another search
+	 * sharing the visited states in the meantime are skipped.
+	 */
+	private int pollNode() {
+
+		while (true) {
+			int node;
+			if (strategy.isHeuristical()) {
+				node = pollOpenNode();
+			} else if (size == 0) {
+				node = -1;
+			} else if (strategy.getMode() == Mode.depthFirst) {
+				node = nodes[--size];
+			} else if (strategy.getMode() == Mode.randomChoice) {
+				int r = random.nextInt(size);
+				node = nodes[r];
+				nodes[r] = nodes[--size];
+			} else {
+				node = nodes[first];
+				first = (first + 1) % nodes.length;
+				size--;
+			}
+			if (node < 0 || strategy.canRevisitStates()) {
+				return node;
+			}
+
+			// Revisiting states during the search is forbidden:
+			// Add the state to the visited states
+			visitedStates.set(space.getStateId(node));
+			if (sharedVisitedStates == null 
+					|| sharedVisitedStates.add(space.getState(node))) {
+				return node;
+			}
+		}
+	}
+
+	/**
+	 * Polls the next node to visit from the open list(s), or returns -1
+	 * if there is none. With lazy evaluation, the node's heuristic value 
+	 * is computed now, and nodes which turn out to be dead ends 
+	 * (or to have a state which has been visited in the meantime) 
+	 * are skipped.
+	 */
+	private int pollOpenNode() {
+
+		while (true) {
+			int node;
+			if (preferredOpenList != null) {
+				node = pollDualQueue();
+			} else {
+				node = (openList.isEmpty() ? -1 : openList.poll());
+			}
+			if (node < 0 || !strategy.isLazy()) {
+				return node;
+			}
+			if (canBePruned(space.getStateId(node))) {
+				continue;
+			}
+
+			// Deferred evaluation (which also computes the node's 
+			// preferred actions, if needed)
+			SearchNode searchNode = new SearchNode(null, space.getState(node));
+			searchNode.depth = space.getDepth(node);
+			int heuristicValue;
+			if (preferredOpenList != null) {
+				preferredActions.clear();
+				heuristicValue = h.value(searchNode, preferredActions);
+				preferredActionsNode = node;
+			} else {
+				heuristicValue = h.value(searchNode);
+			}
+			if (heuristicValue == Integer.MAX_VALUE) {
+				// Dead end
+				continue;
+			}
+			space.setHeuristicValue(node, heuristicValue);
+			onEvaluation(heuristicValue);
+			return node;
+		}
+	}
+
+	/**
+	 * Boosts the preferred open list of the dual-queue mode 
+	 * whenever a better heuristic value has been computed.
+	 */
+	private void onEvaluation(int heuristicValue) {
+
+		if (preferredOpenList != null && heuristicValue < bestHeuristicValue) {
+			if (bestHeuristicValue < Integer.MAX_VALUE) {
+				preferredPriority -= PREFERRED_BOOST;
+			}
+			bestHeuristicValue = heuristicValue;
+		}
+	}
+
+	/**
+	 * True iff the action of the provided index is preferred
+	 * in the state of the provided (parent) node.
+	 */
+	private boolean isPreferred(int parent, int actionIndex) {
+
+		if (!h.providesPreferredActions()) {
+			return false;
+		}
+		if (parent != preferredActionsNode) {
+			// Eager evaluation: compute the preferred actions of the parent
+			// now that it is expanded (only the current parent's are kept)
+			SearchNode searchNode = new SearchNode(null, space.getState(parent));
+			searchNode.depth = space.getDepth(parent);
+			preferredActions.clear();
+			h.value(searchNode, preferredActions);
+			preferredActionsNode = parent;
+		}
+		return preferredActions.get(actionIndex);
+	}
+
+	/**
+	 * Polls a node from the open list of lower priority (the preferred one,
+	 * in case of a tie) in the dual-queue mode, skipping nodes which have
+	 * already been polled from the other open list. Returns -1 if both
+	 * open lists are exhausted.
+	 */
+	private int pollDualQueue() {
+
+		while (!openList.isEmpty() || !preferredOpenList.isEmpty()) {
+			int node;
+			if (!preferredOpenList.isEmpty() 
+					&& (openList.isEmpty() || preferredPriority <= regularPriority)) {
+				node = preferredOpenList.poll();
+				preferredPriority++;
+			} else {
+				node = openList.poll();
+				regularPriority++;
+			}
+			if (!polledNodes.get(node)) {
+				polledNodes.set(node);
+				return node;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Adds a node ID to the plain array of nodes,
+	 * growing the array if necessary.
+	 */
+	private void push(int node) {
+
+		if (size == nodes.length) {
+			// Grow array (and linearize the ring buffer)
+			int[] newNodes = new int[2 * nodes.length];
+			for (int i = 0; i < size; i++) {
+				newNodes[i] = nodes[(first + i) % nodes.length];
+			}
+			nodes = newNodes;
+			first = 0;
+		}
+		if (strategy.getMode() == Mode.breadthFirst) {
+			nodes[(first + size) % nodes.length] = node;
 		} else {
-			return queue.isEmpty();
+			nodes[size] = node;
 		}
+		size++;
 	}
 }
@@ -0,0 +1,123 @@
+package edu.kit.aquaplanning.planners;
+
+import java.util.Arrays;
+import java.util.List;
+
+import edu.kit.aquaplanning.model.ground.Action;
+import edu.kit.aquaplanning.model.ground.Plan;
+import edu.kit.aquaplanning.model.ground.State;
+
+/**
+ * Stores all search nodes generated during a state-space search.
+ * Instead of one object per node, the properties of the nodes (state ID,
+ * parent node, most recent action, depth, and heuristic value) are kept
+ * in parallel primitive arrays which are indexed by a node ID.
+ * States are interned in a StateRegistry, so each distinct state
+ * is only stored once, however often it is reached.
+ */
+public class SearchSpace {
+
+	private static final int INITIAL_CAPACITY = 1 << 10;
+
+	private StateRegistry registry;
+
+	private int[] stateIds;
+	private int[] parents;
+	private int[] lastActions;
+	private int[] depths;
+	private int[] heuristicValues;
+	private int size;
+
+	public SearchSpace(StateRegistry registry) {
+		this.registry = registry;
+		stateIds = new int[INITIAL_CAPACITY];
+		parents = new int[INITIAL_CAPACITY];
+		lastActions = new int[INITIAL_CAPACITY];
+		depths = new int[INITIAL_CAPACITY];
+		heuristicValues = new int[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Creates a new node and returns its ID.
+	 *
+	 * @param parent the ID of the parent node, or -1 for a root node
+	 * @param lastAction the index of the action leading from the parent
+	 * to this node, or -1 for a root node
+	 * @param stateId the ID of the node's state inside the state registry
+	 * @param heuristicValue the heuristic value of the node (if applicable)
+	 */
+	public int addNode(int parent, int lastAction, int stateId, int heuristicValue) {
+
+		if (size == stateIds.length) {
+			int capacity = 2 * size;
+			stateIds = Arrays.copyOf(stateIds, capacity);
+			parents = Arrays.copyOf(parents, capacity);
+			lastActions = Arrays.copyOf(lastActions, capacity);
+			depths = Arrays.copyOf(depths, capacity);
+			heuristicValues = Arrays.copyOf(heuristicValues, capacity);
+		}
+		int node = size++;
+		stateIds[node] = stateId;
+		parents[node] = parent;
+		lastActions[node] = lastAction;
+		depths[node] = (parent < 0 ? 0 : depths[parent] + 1);
+		heuristicValues[node] = heuristicValue;
+		return node;
+	}
+
+	/**
+	 * Assembles the plan leading from the root node to the provided node.
+	 * Action indices of the nodes refer to the provided list of actions.
+	 */
+	public Plan extractPlan(int node, List<Action> actions) {
+
+		Plan plan = new Plan();
+		while (node >= 0 && lastActions[node] >= 0) {
+			plan.appendAtFront(actions.get(lastActions[node]));
+			node = parents[node];
+		}
+		return plan;
+	}
+
+	/**
+	 * Reconstructs the state of the provided node.
+	 */
+	public State getState(int node) {
+		return registry.getState(stateIds[node]);
+	}
+
+	public int getStateId(int node) {
+		return stateIds[node];
+	}
+
+	public int getParent(int node) {
+		return parents[node];
+	}
+
+	public int getLastAction(int node) {
+		return lastActions[node];
+	}
+
+	public int getDepth(int node) {
+		return depths[node];
+	}
+
+	public int getHeuristicValue(int node) {
+		return heuristicValues[node];
+	}
+
+	public void setHeuristicValue(int node, int heuristicValue) {
+		heuristicValues[node] = heuristicValue;
+	}
+
+	public StateRegistry getStateRegistry() {
+		return registry;
+	}
+
+	/**
+	 * The amount of nodes created so far.
+	 */
+	public int size() {
+		return size;
+	}
+}
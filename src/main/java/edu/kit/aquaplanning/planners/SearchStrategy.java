@@ -37,12 +37,80 @@ public class SearchStrategy {
 		 * cost so far, i.e. the node with the lowest value of
 		 * f(n)+c*h(n) is picked where c is a constant set separately.
 		 */
-		weightedAStar;
+		weightedAStar, 
+		/**
+		 * Like best-first search, but with a second open list which 
+		 * only holds the nodes reached by actions that the heuristic 
+		 * prefers in the parent's state (e.g. helpful actions of FF). 
+		 * Nodes are alternately taken from both open lists, and the 
+		 * preferred list is boosted whenever a better heuristic score
+		 * has been found.
+		 */
+		dualQueue, 
+		/**
+		 * Iterative deepening A*: a sequence of depth-first searches,
+		 * each of which prunes all nodes whose value of f(n)+h(n) exceeds 
+		 * a threshold; the threshold is raised to the lowest pruned value
+		 * after each iteration. Only the current path is kept in memory, 
+		 * plus a fixed-size transposition table.
+		 */
+		idaStar;
 	}	
 	
+	/**
+	 * The data structure which holds the open nodes of heuristical modes.
+	 */
+	public enum OpenListType {
+		/**
+		 * A binary heap; works for arbitrary priority values.
+		 */
+		heap, 
+		/**
+		 * An array of buckets, one for each priority value, with 
+		 * constant-time insertion and (amortized) constant-time polling.
+		 */
+		buckets;
+	}
+	
+	/**
+	 * Decides which node is picked among several nodes of equal priority.
+	 */
+	public enum TieBreaking {
+		/**
+		 * No explicit rule: the order is determined by the open list 
+		 * (arbitrary for the heap, as fifo for the buckets).
+		 */
+		none, 
+		/**
+		 * The node which has been added first.
+		 */
+		fifo, 
+		/**
+		 * The node which has been added last.
+		 */
+		lifo, 
+		/**
+		 * The node with the lowest heuristic score.
+		 */
+		lowestH, 
+		/**
+		 * The node with the highest cost so far.
+		 */
+		highestG;
+	}
+	
 	private Mode mode;
 	private int heuristicWeight = 10; // only for heuristic modes
 	private int seed = 1337;
+	private OpenListType openListType = OpenListType.heap;
+	private TieBreaking tieBreaking = TieBreaking.none;
+	
+	/**
+	 * Denotes whether the heuristic value of a node is computed only when
+	 * the node is polled (true), as opposed to when it is added (false).
+	 * A lazily evaluated node is added with the value of its parent.
+	 */
+	private boolean lazyEvaluation = false;
 	
 	/**
 	 * Denotes whether a state can be visited multiple times during a search
@@ -56,7 +124,12 @@ public class SearchStrategy {
 		this.mode = config.searchStrategy;
 		this.heuristicWeight = config.heuristicWeight;
 		this.revisitStates = config.revisitStates;
+		this.lazyEvaluation = config.lazyEvaluation;
 		this.seed = config.seed;
+		if (config.openList != null)
+			this.openListType = config.openList;
+		if (config.tieBreaking != null)
+			this.tieBreaking = config.tieBreaking;
 	}
 	
 	/**
@@ -88,8 +161,49 @@ public class SearchStrategy {
 		this.revisitStates = revisitStates;
 	}
 	
+	/**
+	 * Computes the priority of a node inside an open list
+	 * (lower is better) according to this strategy.
+	 * Computed without overflows, and capped at the maximum integer.
+	 */
+	public int priority(int depth, int heuristicValue) {
+
+		long priority;
+		switch (mode) {
+		case aStar:
+		case idaStar:
+			// cost so far + heuristic score
+			priority = (long) depth + heuristicValue;
+			break;
+		case weightedAStar:
+			// cost so far + weighted heuristic score
+			priority = (long) depth + (long) heuristicWeight * heuristicValue;
+			break;
+		default:
+			// heuristic score
+			priority = heuristicValue;
+			break;
+		}
+		return (int) Math.min(priority, Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * Creates an empty open list of the type and with the 
+	 * tie-breaking rule of this strategy.
+	 */
+	public OpenList createOpenList() {
+		
+		switch (openListType) {
+		case buckets:
+			return new BucketQueue(tieBreaking);
+		default:
+			return new NodeHeap(tieBreaking);
+		}
+	}
+	
 	public boolean isHeuristical() {
-		if (mode == Mode.aStar || mode == Mode.weightedAStar || mode == Mode.bestFirst) {
+		if (mode == Mode.aStar || mode == Mode.weightedAStar || mode == Mode.bestFirst
+				|| mode == Mode.dualQueue || mode == Mode.idaStar) {
 			return true;
 		}
 		return false;
@@ -102,6 +216,18 @@ public class SearchStrategy {
 		return false;
 	}
 	
+	/**
+	 * Decides whether the heuristic value of a node is computed only when
+	 * the node is polled (true), as opposed to when it is added (false).
+	 */
+	public void setLazyEvaluation(boolean lazyEvaluation) {
+		this.lazyEvaluation = lazyEvaluation;
+	}
+	
+	public boolean isLazy() {
+		return lazyEvaluation && isHeuristical();
+	}
+	
 	public boolean canRevisitStates() {
 		return revisitStates;
 	}
@@ -117,4 +243,12 @@ public class SearchStrategy {
 	public int getSeed() {
 		return seed;
 	}
+	
+	public OpenListType getOpenListType() {
+		return openListType;
+	}
+	
+	public TieBreaking getTieBreaking() {
+		return tieBreaking;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,69 @@
+package edu.kit.aquaplanning.planners;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import edu.kit.aquaplanning.Configuration;
+import edu.kit.aquaplanning.Configuration.HeuristicType;
+import edu.kit.aquaplanning.planners.heuristic.HeuristicCache;
+
+/**
+ * Search data which is shared by the forward search planners of a portfolio,
+ * as far as enabled in the configuration: the successor generator,
+ * a set of visited states, and a bounded cache of heuristic values
+ * for each heuristic.
+ */
+public class SharedSearchData {
+
+	private Configuration config;
+	private SuccessorGenerator successorGenerator;
+	private ConcurrentStateSet visitedStates;
+	private Map<HeuristicType, HeuristicCache> heuristicCaches;
+
+	public SharedSearchData(SuccessorGenerator successorGenerator, Configuration config) {
+		this.config = config;
+		this.successorGenerator = successorGenerator;
+		this.visitedStates = (config.shareVisitedStates ? new ConcurrentStateSet() : null);
+		this.heuristicCaches = new EnumMap<>(HeuristicType.class);
+	}
+
+	/**
+	 * Lets the provided planner, which searches according to the provided
+	 * configuration, use the shared search data.
+	 */
+	public synchronized void share(ForwardSearchPlanner planner, Configuration plannerConfig) {
+
+		planner.setSuccessorGenerator(successorGenerator);
+		planner.setSharedVisitedStates(visitedStates);
+		planner.setHeuristicCache(getHeuristicCache(plannerConfig));
+	}
+
+	/**
+	 * Returns the heuristic cache to be shared by all planners with
+	 * the heuristic of the provided configuration, or null if
+	 * there is none.
+	 */
+	private HeuristicCache getHeuristicCache(Configuration plannerConfig) {
+
+		if (config.heuristicCacheSize <= 0 
+				|| !new SearchStrategy(plannerConfig).isHeuristical()) {
+			return null;
+		}
+		HeuristicType heuristic = (plannerConfig.heuristic != null ? plannerConfig.heuristic 
+				: Configuration.DEFAULT_HEURISTIC);
+		HeuristicCache cache = heuristicCaches.get(heuristic);
+		if (cache == null) {
+			cache = new HeuristicCache(config.heuristicCacheSize);
+			heuristicCaches.put(heuristic, cache);
+		}
+		return cache;
+	}
+
+	/**
+	 * The amount of distinct states visited by all planners together,
+	 * or -1 if the visited states are not shared.
+	 */
+	public int getNumVisitedStates() {
+		return (visitedStates != null ? visitedStates.size() : -1);
+	}
+}
@@ -8,10 +8,14 @@ import edu.kit.aquaplanning.Configuration;
 import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
 import edu.kit.aquaplanning.model.ground.Plan;
 import edu.kit.aquaplanning.planners.SearchStrategy.Mode;
+import edu.kit.aquaplanning.util.Logger;
 
 /**
  * A trivial portfolio planner which launches a number of forward search planners,
  * each with an uninformed, random search strategy and a different seed.
+ * 
+ * Optionally, the planners share their visited states (so that no state
+ * is expanded by more than one planner).
  */
 public class SimpleParallelPlanner extends Planner {
 
@@ -33,13 +37,10 @@ public class SimpleParallelPlanner extends Planner {
 			return;
 		}
 		this.plan = plan;
-		// Interrupt all planners
-		List<Thread> myThreadsList = new ArrayList<>(threads);
-		for (Thread thread : myThreadsList) {
-			// This interruption is acknowledged inside each planner thread
-			// when withinComputationalBounds() is checked the next time.
-			thread.interrupt();
-		}
+		// Cancel all planners (they share this planner's cancellation flag):
+		// This is acknowledged inside each planner thread
+		// when withinComputationalBounds() is checked the next time.
+		cancel();
 	}
 	
 	@Override
@@ -47,6 +48,12 @@ public class SimpleParallelPlanner extends Planner {
 		startSearch();
 		threads = new ArrayList<>();
 		Random random = new Random(this.config.seed); // seed generator
+		// Index of applicable actions (and visited states, 
+		// if enabled) shared by all planners
+		Configuration sharedConfig = config.copy();
+		sharedConfig.heuristicCacheSize = 0;
+		SharedSearchData sharedData = new SharedSearchData(
+				new SuccessorGenerator(problem), sharedConfig);
 		
 		for (int i = 1; i <= numThreads; i++) {
 			
@@ -54,7 +61,9 @@ public class SimpleParallelPlanner extends Planner {
 			Configuration config = this.config.copy();
 			config.searchStrategy = Mode.randomChoice;	
 			config.seed = random.nextInt();
-			Planner planner = new ForwardSearchPlanner(config);
+			ForwardSearchPlanner planner = new ForwardSearchPlanner(config);
+			sharedData.share(planner, config);
+			planner.setCancellationFlag(cancellationFlag);
 			
 			// Create a thread running the planner
 			Thread thread = new Thread(new Runnable() {
@@ -73,7 +82,7 @@ public class SimpleParallelPlanner extends Planner {
 		}
 		
 		// Wait for all threads to finish
-		// (if some plan has been found, all threads are interrupted)
+		// (if some plan has been found, all planners are cancelled)
 		for (Thread thread : threads) {
 			try {
 				thread.join();
@@ -82,6 +91,11 @@ public class SimpleParallelPlanner extends Planner {
 			}
 		}
 		
+		if (sharedData.getNumVisitedStates() >= 0) {
+			Logger.log(Logger.INFO, "Visited " + sharedData.getNumVisitedStates() 
+					+ " distinct states in total.");
+		}
+		
 		// Plan is not null iff any planner was successful
 		return plan;
 	}
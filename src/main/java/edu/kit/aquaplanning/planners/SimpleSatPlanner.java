@@ -7,6 +7,7 @@ import java.util.Map;
 
 import edu.kit.aquaplanning.Configuration;
 import edu.kit.aquaplanning.model.ground.Action;
+import edu.kit.aquaplanning.model.ground.ActionTable;
 import edu.kit.aquaplanning.model.ground.Atom;
 import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
 import edu.kit.aquaplanning.model.ground.Plan;
@@ -21,6 +22,8 @@ public class SimpleSatPlanner extends Planner {
 	private Map<Integer, List<Action> > supportingActionsNegative;
 	private List<Action> empty = new ArrayList<>();
 	private boolean ignoreAtMostOneAction = false;
+	// the solver of the current search, if any
+	private volatile SatSolver solver;
 	
 	
 	public SimpleSatPlanner(Configuration config) {
@@ -44,20 +47,28 @@ public class SimpleSatPlanner extends Planner {
 		supportingActionsNegative = new HashMap<>();
 
 		int nextId = problem.getNumAtoms();
-		for (Action a : problem.getActions()) {
+		ActionTable table = problem.getActionTable();
+		for (int i = 0; i < table.getNumActions(); i++) {
+			Action a = table.getAction(i);
 			// set action IDs
 			actionIds.put(a.getName(), nextId);
 			nextId++;
 			
 			// calculate atom supports
-			for (int atomid = 0; atomid < problem.getNumAtoms(); atomid++) {
-				if (a.getEffectsPos().get(atomid)) {
+			int[] effStart = table.getEffectPosStart();
+			for (int j = effStart[i]; j < effStart[i+1]; j++) {
+				int atomid = table.getEffectsPos()[j];
+				if (atomid < problem.getNumAtoms()) {
 					if (!supportingActionsPositive.containsKey(atomid)) {
 						supportingActionsPositive.put(atomid, new ArrayList<>());
 					}
 					supportingActionsPositive.get(atomid).add(a);
 				}
-				if (a.getEffectsNeg().get(atomid)) {
+			}
+			effStart = table.getEffectNegStart();
+			for (int j = effStart[i]; j < effStart[i+1]; j++) {
+				int atomid = table.getEffectsNeg()[j];
+				if (atomid < problem.getNumAtoms()) {
 					if (!supportingActionsNegative.containsKey(atomid)) {
 						supportingActionsNegative.put(atomid, new ArrayList<>());
 					}
@@ -92,6 +103,7 @@ public class SimpleSatPlanner extends Planner {
 		
 		// initialize the SAT solver
 		SatSolver solver = new SatSolver();
+		this.solver = solver;
 		
 		// add the initial state unit clauses
 		addInitialStateClauses(problem, solver);
@@ -109,7 +121,8 @@ public class SimpleSatPlanner extends Planner {
 			// we will assume that the goal is satisfied after this step
 			int[] assumptions = calculateGoalAssumptions(problem, step+1);
 			
-			if (solver.isSatisfiable(assumptions)) {
+			Boolean result = solver.isSatisfiable(assumptions);
+			if (result != null && result) {
 				// We found a Plan!
 				break;
 			} else {
@@ -118,6 +131,7 @@ public class SimpleSatPlanner extends Planner {
 			}
 		}
 		
+		this.solver = null;
 		if (!withinComputationalBounds(step+1)) {
 			// No plan found in the given computational bounds
 			return null;
@@ -136,6 +150,16 @@ public class SimpleSatPlanner extends Planner {
 		return plan;
 	}
 	
+	@Override
+	public void cancel() {
+		super.cancel();
+		// abort the current solve call
+		SatSolver solver = this.solver;
+		if (solver != null) {
+			solver.interrupt();
+		}
+	}
+	
 	/**
 	 * Calculates the assumptions that represent that the goal is reached
 	 * @param problem
@@ -175,18 +199,13 @@ public class SimpleSatPlanner extends Planner {
 	 */
 	private void addTransitionalClauses(GroundPlanningProblem problem, SatSolver solver, int step) {
 		// actions imply their effects
-		for (Action a : problem.getActions()) {
-			int actionSatId = getActionSatVariable(a.getName(), step);
-			for (int atomid = 0; atomid < problem.getNumAtoms(); atomid++) {
-				if (a.getEffectsPos().get(atomid)) {
-					int atomSatId = getAtomSatVariable(atomid, step+1);
-					solver.addClause(new int[] {-actionSatId, atomSatId});
-				}
-				if (a.getEffectsNeg().get(atomid)) {
-					int atomSatId = getAtomSatVariable(atomid, step+1);
-					solver.addClause(new int[] {-actionSatId, -atomSatId});
-				}
-			}
+		ActionTable table = problem.getActionTable();
+		for (int i = 0; i < table.getNumActions(); i++) {
+			int actionSatId = getActionSatVariable(table.getAction(i).getName(), step);
+			addImplications(problem, solver, actionSatId, table.getEffectsPos(), 
+					table.getEffectPosStart(), i, step+1, true);
+			addImplications(problem, solver, actionSatId, table.getEffectsNeg(), 
+					table.getEffectNegStart(), i, step+1, false);
 		}
 		
 		// frame axioms -- if an atom changes then there must be an action causing it
@@ -225,18 +244,13 @@ public class SimpleSatPlanner extends Planner {
 	 */
 	private void addUniversalClauses(GroundPlanningProblem problem, SatSolver solver, int step) {	
 		// actions imply their preconditions
-		for (Action a : problem.getActions()) {
-			int actionSatId = getActionSatVariable(a.getName(), step);
-			for (int atomid = 0; atomid < problem.getNumAtoms(); atomid++) {
-				if (a.getPreconditionsPos().get(atomid)) {
-					int atomSatId = getAtomSatVariable(atomid, step);
-					solver.addClause(new int[] {-actionSatId, atomSatId});
-				}
-				if (a.getPreconditionsNeg().get(atomid)) {
-					int atomSatId = getAtomSatVariable(atomid, step);
-					solver.addClause(new int[] {-actionSatId, -atomSatId});
-				}
-			}
+		ActionTable table = problem.getActionTable();
+		for (int i = 0; i < table.getNumActions(); i++) {
+			int actionSatId = getActionSatVariable(table.getAction(i).getName(), step);
+			addImplications(problem, solver, actionSatId, table.getPreconditionsPos(), 
+					table.getPreconditionPosStart(), i, step, true);
+			addImplications(problem, solver, actionSatId, table.getPreconditionsNeg(), 
+					table.getPreconditionNegStart(), i, step, false);
 		}
 		// at least one action
 		int[] clause = new int[problem.getActions().size()];
@@ -259,5 +273,19 @@ public class SimpleSatPlanner extends Planner {
 			}
 		}
 	}
-
+	
+	/**
+	 * Adds clauses stating that the provided action variable implies 
+	 * each atom of the action's list (compressed form, see ActionTable)
+	 * to have the provided value at the provided step.
+	 */
+	private void addImplications(GroundPlanningProblem problem, SatSolver solver, int actionSatId, 
+			int[] atoms, int[] start, int actionIdx, int step, boolean value) {
+		for (int i = start[actionIdx]; i < start[actionIdx+1]; i++) {
+			if (atoms[i] < problem.getNumAtoms()) {
+				int atomSatId = getAtomSatVariable(atoms[i], step);
+				solver.addClause(new int[] {-actionSatId, value ? atomSatId : -atomSatId});
+			}
+		}
+	}
 }
@@ -0,0 +1,184 @@
+package edu.kit.aquaplanning.planners;
+
+import java.util.Arrays;
+
+import edu.kit.aquaplanning.model.ground.State;
+
+/**
+ * Interns states and hands out a unique integer ID for each of them,
+ * with exact duplicate detection.
+ *
+ * Each state is stored in its packed form (see State.pack()) inside
+ * one large array of 64-bit words. An open-addressing hash table
+ * with linear probing maps a state's (Zobrist) hash to its ID, and 
+ * states are compared word by word, so hash collisions never lead to 
+ * two different states being considered equal. Apart from the packed words themselves,
+ * each state costs one int for its position and (at the maximum load)
+ * four ints in the hash table. State IDs are assigned consecutively,
+ * starting at zero.
+ */
+public class StateRegistry {
+
+	private static final int INITIAL_CAPACITY = 1 << 10;
+	private static final float MAX_LOAD = 0.5f;
+
+	/**
+	 * All packed states, one after another.
+	 */
+	private long[] data;
+	private int dataSize;
+
+	/**
+	 * At index i, contains the position of the state of ID i inside data.
+	 */
+	private int[] positions;
+	private int size;
+
+	/**
+	 * Hash table: ID of each stored state plus one (zero denotes
+	 * an empty slot), and the (full) hash of the state.
+	 */
+	private int[] slotIds;
+	private int[] slotHashes;
+
+	/**
+	 * The snapshot depth of the reconstructed states (see State.setSnapshotDepth).
+	 */
+	private int snapshotDepth;
+
+	public StateRegistry() {
+		this(State.DEFAULT_SNAPSHOT_DEPTH);
+	}
+
+	/**
+	 * Creates a registry whose reconstructed states (see getState(int)) 
+	 * have the provided snapshot depth (see State.setSnapshotDepth).
+	 */
+	public StateRegistry(int snapshotDepth) {
+		this.snapshotDepth = snapshotDepth;
+		data = new long[INITIAL_CAPACITY];
+		positions = new int[INITIAL_CAPACITY];
+		slotIds = new int[INITIAL_CAPACITY];
+		slotHashes = new int[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Returns the ID of the provided state,
+	 * or -1 if the state has not been registered before.
+	 */
+	public int getId(State state) {
+
+		long[] packed = state.pack();
+		return slotIds[findSlot(packed, state.hashCode())] - 1;
+	}
+
+	/**
+	 * Registers the provided state, if it has not been registered before,
+	 * and returns its ID.
+	 */
+	public int register(State state) {
+
+		long[] packed = state.pack();
+		int hash = state.hashCode();
+		int slot = findSlot(packed, hash);
+		if (slotIds[slot] != 0) {
+			// Already registered
+			return slotIds[slot] - 1;
+		}
+
+		// Copy packed state to the end of the data array
+		if (dataSize + packed.length > data.length) {
+			int newLength = Math.max(2 * data.length, dataSize + packed.length);
+			if (newLength < 0) {
+				newLength = Integer.MAX_VALUE - 8;
+			}
+			data = Arrays.copyOf(data, newLength);
+		}
+		System.arraycopy(packed, 0, data, dataSize, packed.length);
+		if (size == positions.length) {
+			positions = Arrays.copyOf(positions, 2 * size);
+		}
+		int id = size++;
+		positions[id] = dataSize;
+		dataSize += packed.length;
+		slotIds[slot] = id + 1;
+		slotHashes[slot] = hash;
+
+		if (size > MAX_LOAD * slotIds.length) {
+			grow();
+		}
+		return id;
+	}
+
+	/**
+	 * Reconstructs the state of the provided ID.
+	 */
+	public State getState(int id) {
+
+		return State.unpack(data, positions[id], snapshotDepth);
+	}
+
+	/**
+	 * The amount of registered states.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the slot of the provided packed state inside the hash table,
+	 * or the empty slot where it would be inserted.
+	 */
+	private int findSlot(long[] packed, int hash) {
+
+		int mask = slotIds.length - 1;
+		int slot = hash & mask;
+		while (slotIds[slot] != 0) {
+			if (slotHashes[slot] == hash && equalsAt(positions[slotIds[slot] - 1], packed)) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * True iff the packed state stored at the given position
+	 * is equal to the provided packed state.
+	 */
+	private boolean equalsAt(int position, long[] packed) {
+
+		// The header word determines the length of the packed state
+		if (data[position] != packed[0]) {
+			return false;
+		}
+		for (int i = 1; i < packed.length; i++) {
+			if (data[position + i] != packed[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Doubles the size of the hash table and re-inserts all states.
+	 */
+	private void grow() {
+
+		int[] oldIds = slotIds;
+		int[] oldHashes = slotHashes;
+		slotIds = new int[2 * oldIds.length];
+		slotHashes = new int[2 * oldHashes.length];
+		int mask = slotIds.length - 1;
+		for (int i = 0; i < oldIds.length; i++) {
+			if (oldIds[i] != 0) {
+				int slot = oldHashes[i] & mask;
+				while (slotIds[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				slotIds[slot] = oldIds[i];
+				slotHashes[slot] = oldHashes[i];
+			}
+		}
+	}
+}
@@ -0,0 +1,223 @@
+package edu.kit.aquaplanning.planners;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.kit.aquaplanning.model.ground.Action;
+import edu.kit.aquaplanning.model.ground.ActionTable;
+import edu.kit.aquaplanning.model.ground.AtomSet;
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
+import edu.kit.aquaplanning.model.ground.State;
+
+/**
+ * Precomputed index over the actions of a ground planning problem
+ * which retrieves the applicable actions of a state without checking
+ * each and every action.
+ *
+ * Each action is "watched" by one of its positive (simple) preconditions,
+ * namely the one which occurs in the fewest preconditions overall.
+ * For a given state, only the actions watched by some true atom
+ * (and the actions without any positive simple precondition)
+ * need to be checked for applicability.
+ * If code has been generated for the problem's action table (before this
+ * structure is created), all actions may be checked by the generated code
+ * instead, one block at a time: this is done if checking all actions with
+ * the generated code is expected to be cheaper than checking the watched
+ * actions, judging from the initial state.
+ * The structure is immutable after construction and may be shared
+ * between multiple threads.
+ */
+public class SuccessorGenerator {
+
+	private GroundPlanningProblem problem;
+	private List<Action> actions;
+	private ActionTable actionTable;
+
+	/**
+	 * At index i, contains the indices of all actions watched by the atom of ID i.
+	 */
+	private int[][] watchingActions;
+	/**
+	 * Indices of all actions which cannot be watched by any atom.
+	 */
+	private int[] unwatchedActions;
+	/**
+	 * True iff the applicable actions are found by generated code.
+	 */
+	private boolean useGeneratedCode;
+
+	public SuccessorGenerator(GroundPlanningProblem problem) {
+
+		this.problem = problem;
+		this.actions = problem.getActions();
+		this.actionTable = problem.getActionTable();
+		int numActions = actionTable.getNumActions();
+		int[] preStart = actionTable.getPreconditionPosStart();
+		int[] pre = actionTable.getPreconditionsPos();
+
+		// Find the largest occurring atom ID
+		int numAtoms = problem.getNumAtoms();
+		for (int atom : pre) {
+			numAtoms = Math.max(numAtoms, atom+1);
+		}
+
+		// Count the occurrences of each atom in positive preconditions
+		int[] occurrences = new int[numAtoms];
+		for (int atom : pre) {
+			occurrences[atom]++;
+		}
+
+		// Choose the rarest precondition atom of each action as its watcher
+		int[] watcher = new int[numActions];
+		int[] numWatched = new int[numAtoms];
+		int numUnwatched = 0;
+		for (int actionIdx = 0; actionIdx < numActions; actionIdx++) {
+			int best = -1;
+			for (int i = preStart[actionIdx]; i < preStart[actionIdx+1]; i++) {
+				if (best < 0 || occurrences[pre[i]] < occurrences[best]) {
+					best = pre[i];
+				}
+			}
+			watcher[actionIdx] = best;
+			if (best >= 0) {
+				numWatched[best]++;
+			} else {
+				numUnwatched++;
+			}
+		}
+
+		// Assemble index (action indices remain in ascending order)
+		watchingActions = new int[numAtoms][];
+		for (int atom = 0; atom < numAtoms; atom++) {
+			watchingActions[atom] = new int[numWatched[atom]];
+			numWatched[atom] = 0;
+		}
+		unwatchedActions = new int[numUnwatched];
+		numUnwatched = 0;
+		for (int actionIdx = 0; actionIdx < numActions; actionIdx++) {
+			int atom = watcher[actionIdx];
+			if (atom >= 0) {
+				watchingActions[atom][numWatched[atom]++] = actionIdx;
+			} else {
+				unwatchedActions[numUnwatched++] = actionIdx;
+			}
+		}
+
+		if (actionTable.hasGeneratedCode()) {
+			// A generated check is about four times as fast as a check 
+			// of an action in the table (which involves loops and array accesses)
+			int numCandidates = unwatchedActions.length;
+			AtomSet atoms = problem.getInitialState().getAtomSet();
+			for (int atom = atoms.nextSetBit(0); atom >= 0 && atom < watchingActions.length;
+					atom = atoms.nextSetBit(atom+1)) {
+				numCandidates += watchingActions[atom].length;
+			}
+			useGeneratedCode = numActions < 4 * numCandidates;
+		}
+	}
+
+	/**
+	 * Returns all actions which are applicable in the provided state,
+	 * in the same order as in the action list of the planning problem.
+	 */
+	public List<Action> getApplicableActions(State state) {
+
+		int[] applicable = getApplicableActionIndices(state);
+		List<Action> result = new ArrayList<>(applicable.length);
+		for (int actionIdx : applicable) {
+			result.add(actions.get(actionIdx));
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the indices (inside the action list of the planning problem)
+	 * of all actions which are applicable in the provided state, in ascending order.
+	 */
+	public int[] getApplicableActionIndices(State state) {
+
+		if (useGeneratedCode) {
+			return getApplicableActionIndicesByBlocks(state);
+		}
+
+		int[] applicable = new int[16];
+		int numApplicable = 0;
+
+		// Check actions watched by some true atom
+		AtomSet atoms = state.getAtomSet();
+		for (int atom = atoms.nextSetBit(0); atom >= 0 && atom < watchingActions.length;
+				atom = atoms.nextSetBit(atom+1)) {
+			for (int actionIdx : watchingActions[atom]) {
+				if (actionTable.isApplicable(actionIdx, state)) {
+					if (numApplicable == applicable.length) {
+						applicable = Arrays.copyOf(applicable, 2*numApplicable);
+					}
+					applicable[numApplicable++] = actionIdx;
+				}
+			}
+		}
+
+		// Check actions without any positive simple preconditions
+		for (int actionIdx : unwatchedActions) {
+			if (actionTable.isApplicable(actionIdx, state)) {
+				if (numApplicable == applicable.length) {
+					applicable = Arrays.copyOf(applicable, 2*numApplicable);
+				}
+				applicable[numApplicable++] = actionIdx;
+			}
+		}
+
+		// Restore the original order of actions
+		Arrays.sort(applicable, 0, numApplicable);
+		return Arrays.copyOf(applicable, numApplicable);
+	}
+
+	/**
+	 * Finds the applicable actions by the generated code of the action table.
+	 */
+	private int[] getApplicableActionIndicesByBlocks(State state) {
+
+		int numBlocks = actionTable.getNumBlocks();
+		long[] masks = new long[numBlocks];
+		int numApplicable = 0;
+		for (int block = 0; block < numBlocks; block++) {
+			masks[block] = actionTable.getApplicableMask(block, state);
+			numApplicable += Long.bitCount(masks[block]);
+		}
+		int[] applicable = new int[numApplicable];
+		numApplicable = 0;
+		for (int block = 0; block < numBlocks; block++) {
+			int firstAction = actionTable.getFirstAction(block);
+			for (long bits = masks[block]; bits != 0; bits &= bits - 1) {
+				applicable[numApplicable++] = firstAction + Long.numberOfTrailingZeros(bits);
+			}
+		}
+		return applicable;
+	}
+
+	/**
+	 * True iff the provided action is one of the problem's actions
+	 * and is applicable in the provided state.
+	 */
+	public boolean isApplicable(Action action, State state) {
+
+		int actionIdx = actionTable.indexOf(action);
+		return actionIdx >= 0 && actionTable.isApplicable(actionIdx, state);
+	}
+
+	/**
+	 * Returns the result of applying the action of the provided index
+	 * to the provided state (which is not checked for applicability).
+	 */
+	public State apply(int actionIdx, State state) {
+		return actionTable.apply(actionIdx, state);
+	}
+
+	/**
+	 * Returns the planning problem this index was constructed for.
+	 */
+	public GroundPlanningProblem getProblem() {
+		return problem;
+	}
+}
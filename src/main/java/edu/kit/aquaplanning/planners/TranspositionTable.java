@@ -0,0 +1,89 @@
+package edu.kit.aquaplanning.planners;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size table which remembers, for states identified by their
+ * 64-bit Zobrist hash, the lowest cost at which the state has been reached
+ * during some iteration of a search, together with its heuristic value.
+ *
+ * Each hash maps to exactly one slot, and a new entry simply replaces the
+ * old entry of its slot, so the memory use never grows. States are only
+ * identified by their hash: Two distinct states with the same 64-bit hash
+ * are (very rarely) confused with one another.
+ */
+public class TranspositionTable {
+
+	/**
+	 * Memory used by one entry, in bytes.
+	 */
+	public static final int ENTRY_BYTES = 8 + 3 * 4;
+
+	private long[] keys;
+	private int[] costs;
+	private int[] heuristicValues;
+	private int[] iterations;
+	private int mask;
+
+	/**
+	 * Creates a table which uses (roughly) at most the provided
+	 * amount of megabytes.
+	 */
+	public TranspositionTable(int megabytes) {
+
+		if (megabytes <= 0) {
+			throw new IllegalArgumentException("The size of a transposition table must be positive.");
+		}
+		long maxEntries = (megabytes * 1024L * 1024L) / ENTRY_BYTES;
+		int size = Integer.highestOneBit((int) Math.min(maxEntries, 1 << 30));
+		keys = new long[size];
+		costs = new int[size];
+		heuristicValues = new int[size];
+		iterations = new int[size];
+		// No entry has been stored in iteration 0
+		Arrays.fill(iterations, -1);
+		mask = size - 1;
+	}
+
+	/**
+	 * Returns the slot of the provided hash if it holds an entry
+	 * for this hash, or -1 otherwise.
+	 */
+	public int find(long hash) {
+
+		int slot = slot(hash);
+		return (iterations[slot] >= 0 && keys[slot] == hash) ? slot : -1;
+	}
+
+	/**
+	 * Stores an entry for the provided hash, replacing any other entry.
+	 */
+	public void store(long hash, int cost, int heuristicValue, int iteration) {
+
+		int slot = slot(hash);
+		keys[slot] = hash;
+		costs[slot] = cost;
+		heuristicValues[slot] = heuristicValue;
+		iterations[slot] = iteration;
+	}
+
+	public int getCost(int slot) {
+		return costs[slot];
+	}
+
+	public int getHeuristicValue(int slot) {
+		return heuristicValues[slot];
+	}
+
+	public int getIteration(int slot) {
+		return iterations[slot];
+	}
+
+	public int getCapacity() {
+		return keys.length;
+	}
+
+	private int slot(long hash) {
+		return (int) (hash ^ (hash >>> 32)) & mask;
+	}
+}
@@ -0,0 +1,215 @@
+package edu.kit.aquaplanning.planners;
+
+import java.util.List;
+
+import edu.kit.aquaplanning.Configuration;
+import edu.kit.aquaplanning.Configuration.PlannerType;
+import edu.kit.aquaplanning.model.ground.Action;
+import edu.kit.aquaplanning.model.ground.Atom;
+import edu.kit.aquaplanning.model.ground.Goal;
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
+import edu.kit.aquaplanning.model.ground.Plan;
+import edu.kit.aquaplanning.model.ground.State;
+import edu.kit.aquaplanning.planners.SearchStrategy.TieBreaking;
+import edu.kit.aquaplanning.util.Logger;
+
+/**
+ * Width-based planners (Lipovetzky and Geffner), which guide the search
+ * by the novelty of states (see NoveltyTable) instead of a heuristic.
+ *
+ * IW(k) is a breadth-first search which prunes each newly generated state
+ * whose novelty is larger than k. It runs in time exponential in k only,
+ * but is incomplete. If no width is configured, IW(1) is run first,
+ * and IW(2) if IW(1) fails.
+ *
+ * Best-first width search (BFWS) is a complete best-first search which
+ * expands states in order of their novelty and then of their amount of
+ * unsatisfied goals. The novelty of a state is computed only with respect
+ * to the states with the same amount of unsatisfied goals. If no width
+ * is configured, novelties up to 2 are distinguished, unless the novelty
+ * tables of width 2 would exceed their memory budget together.
+ */
+public class WidthBasedPlanner extends Planner {
+
+	private List<Action> actions;
+	private Goal goal;
+	private SuccessorGenerator successorGenerator;
+	private int numAtoms;
+	private int iterations;
+
+	public WidthBasedPlanner(Configuration config) {
+		super(config);
+	}
+
+	@Override
+	public Plan findPlan(GroundPlanningProblem problem) {
+		startSearch();
+		actions = problem.getActions();
+		goal = problem.getGoal();
+		successorGenerator = new SuccessorGenerator(problem);
+		numAtoms = problem.getNumAtoms();
+		iterations = 0;
+
+		// BFWS may need a novelty table for each amount of unsatisfied goals,
+		// all of which must fit into the memory budget together
+		boolean bfws = (config.plannerType == PlannerType.bfws);
+		boolean pairsFit = NoveltyTable.fitsPairBitmaps(numAtoms, 
+				bfws ? getMaxUnsatisfiedGoals() : 1);
+		int width = config.width;
+		if (width > 2 || (width == 2 && !pairsFit)) {
+			Logger.log(Logger.WARN, "Novelty width " + width
+					+ " is not supported for this problem; using width 1.");
+			width = 1;
+		}
+
+		Plan plan;
+		if (bfws) {
+			if (width <= 0) {
+				width = (pairsFit ? 2 : 1);
+			}
+			plan = bestFirstWidthSearch(problem.getInitialState(), width);
+		} else if (width > 0) {
+			plan = iteratedWidth(problem.getInitialState(), width);
+		} else {
+			plan = iteratedWidth(problem.getInitialState(), 1);
+			if (plan == null && withinComputationalBounds(iterations) && pairsFit) {
+				plan = iteratedWidth(problem.getInitialState(), 2);
+			}
+		}
+
+		Logger.log(Logger.INFO, "Width-based search " + (plan != null ? "found a plan" : "failed")
+				+ " after " + iterations + " expansions. Search time: "
+				+ (System.currentTimeMillis() - searchStartMillis) + "ms");
+		return plan;
+	}
+
+	/**
+	 * IW(width): breadth-first search, pruning all states whose
+	 * novelty exceeds the provided width.
+	 */
+	private Plan iteratedWidth(State initState, int width) {
+
+		Logger.log(Logger.INFO_V, "Running IW(" + width + ").");
+		if (goal.isSatisfied(initState)) {
+			return new Plan();
+		}
+		NoveltyTable noveltyTable = new NoveltyTable(numAtoms, width);
+		SearchSpace space = new SearchSpace(new StateRegistry(config.snapshotDepth));
+		StateRegistry registry = space.getStateRegistry();
+		noveltyTable.evaluate(initState);
+		space.addNode(-1, -1, registry.register(initState), 0);
+
+		// Nodes are created in breadth-first order, so the search space
+		// itself serves as the queue
+		for (int node = 0; node < space.size(); node++) {
+
+			if (!withinComputationalBounds(++iterations)) {
+				return null;
+			}
+			State state = space.getState(node);
+			for (int actionIdx : successorGenerator.getApplicableActionIndices(state)) {
+
+				State newState = successorGenerator.apply(actionIdx, state);
+				int numStates = registry.size();
+				int stateId = registry.register(newState);
+				if (stateId < numStates) {
+					// Duplicate (which cannot be novel anyway)
+					continue;
+				}
+				if (goal.isSatisfied(newState)) {
+					int goalNode = space.addNode(node, actionIdx, stateId, 0);
+					return space.extractPlan(goalNode, actions);
+				}
+				if (noveltyTable.evaluate(newState) > width) {
+					continue;
+				}
+				space.addNode(node, actionIdx, stateId, 0);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * BFWS: best-first search by the novelty of a state (computed
+	 * up to the provided width) and then by its amount of unsatisfied goals.
+	 */
+	private Plan bestFirstWidthSearch(State initState, int width) {
+
+		Logger.log(Logger.INFO_V, "Running BFWS with novelty width " + width + ".");
+		if (goal.isSatisfied(initState)) {
+			return new Plan();
+		}
+		int maxUnsatisfiedGoals = getMaxUnsatisfiedGoals();
+		// One novelty table for each amount of unsatisfied goals
+		NoveltyTable[] noveltyTables = new NoveltyTable[maxUnsatisfiedGoals + 1];
+		SearchSpace space = new SearchSpace(new StateRegistry(config.snapshotDepth));
+		StateRegistry registry = space.getStateRegistry();
+		OpenList openList = new BucketQueue(TieBreaking.fifo);
+
+		int unsatisfiedGoals = countUnsatisfiedGoals(initState);
+		noveltyTables[unsatisfiedGoals] = new NoveltyTable(numAtoms, width);
+		noveltyTables[unsatisfiedGoals].evaluate(initState);
+		int root = space.addNode(-1, -1, registry.register(initState), unsatisfiedGoals);
+		openList.add(root, 0, 0, unsatisfiedGoals);
+
+		while (!openList.isEmpty()) {
+
+			if (!withinComputationalBounds(++iterations)) {
+				return null;
+			}
+			int node = openList.poll();
+			State state = space.getState(node);
+			for (int actionIdx : successorGenerator.getApplicableActionIndices(state)) {
+
+				State newState = successorGenerator.apply(actionIdx, state);
+				int numStates = registry.size();
+				int stateId = registry.register(newState);
+				if (stateId < numStates) {
+					// Already reached
+					continue;
+				}
+				if (goal.isSatisfied(newState)) {
+					int goalNode = space.addNode(node, actionIdx, stateId, 0);
+					return space.extractPlan(goalNode, actions);
+				}
+
+				// Evaluate <novelty, #unsatisfied goals>
+				unsatisfiedGoals = countUnsatisfiedGoals(newState);
+				if (noveltyTables[unsatisfiedGoals] == null) {
+					noveltyTables[unsatisfiedGoals] = new NoveltyTable(numAtoms, width);
+				}
+				int novelty = noveltyTables[unsatisfiedGoals].evaluate(newState);
+				int priority = novelty * (maxUnsatisfiedGoals + 1) + unsatisfiedGoals;
+				int newNode = space.addNode(node, actionIdx, stateId, unsatisfiedGoals);
+				openList.add(newNode, priority, space.getDepth(newNode), unsatisfiedGoals);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * The maximum amount of unsatisfied goals of a non-goal state
+	 * (see countUnsatisfiedGoals).
+	 */
+	private int getMaxUnsatisfiedGoals() {
+		return (goal.isComplex() ? 1 : goal.getAtoms().size());
+	}
+
+	/**
+	 * The amount of goal atoms which do not hold in the provided state
+	 * (or, for a complex goal, 1 iff the goal is not satisfied).
+	 */
+	private int countUnsatisfiedGoals(State state) {
+
+		if (goal.isComplex()) {
+			return (goal.isSatisfied(state) ? 0 : 1);
+		}
+		int unsatisfiedGoals = 0;
+		for (Atom atom : goal.getAtoms()) {
+			if (!state.holds(atom)) {
+				unsatisfiedGoals++;
+			}
+		}
+		return unsatisfiedGoals;
+	}
+}
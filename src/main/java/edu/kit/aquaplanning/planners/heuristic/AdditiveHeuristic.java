@@ -0,0 +1,33 @@
+package edu.kit.aquaplanning.planners.heuristic;
+
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
+import edu.kit.aquaplanning.planners.SearchNode;
+
+/**
+ * The additive heuristic h_add (Bonet and Geffner, 2001): The cost of
+ * an atom in the delete relaxation is the cheapest cost of an operator 
+ * achieving it plus the sum of the costs of the operator's preconditions. 
+ * Returns the sum of the costs of all goal atoms, or INT_MAX if the goals 
+ * are unreachable even in the relaxation. Each action has a cost 
+ * of one (see RelaxedTask). Not admissible.
+ */
+public class AdditiveHeuristic extends RelaxationHeuristic {
+
+	public AdditiveHeuristic(GroundPlanningProblem p) {
+		super(new RelaxedTask(p), true);
+	}
+
+	@Override
+	public int value(SearchNode node) {
+
+		if (!propagate(node.state)) {
+			// Goals are unreachable
+			return Integer.MAX_VALUE;
+		}
+		int sum = 0;
+		for (int goal : task.getGoalAtoms()) {
+			sum = add(sum, atomCosts[goal]);
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,52 @@
+package edu.kit.aquaplanning.planners.heuristic;
+
+import java.util.BitSet;
+
+import edu.kit.aquaplanning.planners.SearchNode;
+
+/**
+ * Looks up the values of some heuristic in a (possibly shared) cache
+ * before computing them. The heuristic must be cacheable
+ * (see Heuristic.isCacheable()).
+ *
+ * Evaluations which also ask for preferred actions are always computed,
+ * because the cache does not store the preferred actions.
+ */
+public class CachedHeuristic extends Heuristic {
+
+	private Heuristic heuristic;
+	private HeuristicCache cache;
+
+	public CachedHeuristic(Heuristic heuristic, HeuristicCache cache) {
+		if (!heuristic.isCacheable()) {
+			throw new IllegalArgumentException("The heuristic "
+					+ heuristic.getClass().getSimpleName() + " cannot be cached.");
+		}
+		this.heuristic = heuristic;
+		this.cache = cache;
+	}
+
+	@Override
+	public int value(SearchNode node) {
+
+		int value = cache.get(node.state);
+		if (value < 0) {
+			value = heuristic.value(node);
+			cache.put(node.state, value);
+		}
+		return value;
+	}
+
+	@Override
+	public int value(SearchNode node, BitSet preferredActions) {
+
+		int value = heuristic.value(node, preferredActions);
+		cache.put(node.state, value);
+		return value;
+	}
+
+	@Override
+	public boolean providesPreferredActions() {
+		return heuristic.providesPreferredActions();
+	}
+}
@@ -0,0 +1,155 @@
+package edu.kit.aquaplanning.planners.heuristic;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
+import edu.kit.aquaplanning.planners.SearchNode;
+
+/**
+ * The FF heuristic (Hoffmann and Nebel, 2001): Computes the costs of
+ * all atoms in the delete relaxation of the problem like the additive
+ * heuristic, and then extracts a relaxed plan by going back from the
+ * goal atoms along the cheapest supporting operators. Returns the amount
+ * of distinct actions in this relaxed plan, or INT_MAX if the goals are
+ * unreachable even in the relaxation.
+ * Not admissible, but usually much more informed than RelaxedPathLength.
+ * 
+ * Also reports the helpful actions of a state as its preferred actions:
+ * all actions applicable in the state which achieve an atom that the 
+ * relaxed plan achieves in its first step.
+ */
+public class FFHeuristic extends RelaxationHeuristic {
+
+	/**
+	 * Atoms which still need to be achieved in the relaxed plan.
+	 */
+	private int[] openAtoms;
+	/**
+	 * Atoms achieved by the relaxed plan in its first step.
+	 */
+	private int[] firstStepAtoms;
+	private int numFirstStepAtoms;
+
+	// Markers of atoms, operators and actions which are part of
+	// the current relaxed plan: An entry is marked iff it equals
+	// the current evaluation's stamp (avoids clearing the arrays).
+	private int[] atomMarks;
+	private int[] operatorMarks;
+	private int[] actionMarks;
+	private int stamp;
+
+	public FFHeuristic(GroundPlanningProblem p) {
+		super(p);
+		openAtoms = new int[task.getNumAtoms()];
+		firstStepAtoms = new int[task.getNumAtoms()];
+		atomMarks = new int[task.getNumAtoms()];
+		operatorMarks = new int[task.getNumOperators()];
+		actionMarks = new int[p.getActions().size()];
+	}
+
+	@Override
+	public int value(SearchNode node) {
+		return value(node, null);
+	}
+
+	@Override
+	public int value(SearchNode node, BitSet preferredActions) {
+
+		if (!propagate(node.state)) {
+			// Goals are unreachable
+			return Integer.MAX_VALUE;
+		}
+
+		nextStamp();
+		int numOpenAtoms = 0;
+		numFirstStepAtoms = 0;
+		for (int goal : task.getGoalAtoms()) {
+			if (atomMarks[goal] != stamp) {
+				atomMarks[goal] = stamp;
+				openAtoms[numOpenAtoms++] = goal;
+			}
+		}
+
+		// Extract relaxed plan, going backwards from the goals
+		int[] preconditionStart = task.getPreconditionStart();
+		int[] preconditions = task.getPreconditions();
+		long cost = 0;
+		while (numOpenAtoms > 0) {
+			int atom = openAtoms[--numOpenAtoms];
+			int op = supporters[atom];
+			if (op < 0 || operatorMarks[op] == stamp) {
+				// Atom holds initially, or operator is already in the plan
+				continue;
+			}
+			operatorMarks[op] = stamp;
+			int action = task.getAction(op);
+			if (actionMarks[action] != stamp) {
+				actionMarks[action] = stamp;
+				cost += task.getCost(op);
+			}
+			boolean firstStep = true;
+			for (int i = preconditionStart[op]; i < preconditionStart[op+1]; i++) {
+				int pre = preconditions[i];
+				if (!holdsInState(pre)) {
+					firstStep = false;
+				}
+				if (atomMarks[pre] != stamp) {
+					atomMarks[pre] = stamp;
+					openAtoms[numOpenAtoms++] = pre;
+				}
+			}
+			if (firstStep) {
+				firstStepAtoms[numFirstStepAtoms++] = atom;
+			}
+		}
+
+		if (preferredActions != null) {
+			collectHelpfulActions(preferredActions);
+		}
+		return (int) Math.min(cost, INFINITY - 1);
+	}
+
+	@Override
+	public boolean providesPreferredActions() {
+		return true;
+	}
+
+	/**
+	 * Adds all actions to the provided set which are (relaxed) applicable 
+	 * in the evaluated state and achieve some atom which the relaxed plan 
+	 * achieves in its first step.
+	 */
+	private void collectHelpfulActions(BitSet preferredActions) {
+
+		int[] preconditionStart = task.getPreconditionStart();
+		int[] preconditions = task.getPreconditions();
+		int[] achieverStart = task.getAchieverStart();
+		int[] achievers = task.getAchievers();
+		for (int i = 0; i < numFirstStepAtoms; i++) {
+			int atom = firstStepAtoms[i];
+			for (int j = achieverStart[atom]; j < achieverStart[atom+1]; j++) {
+				int op = achievers[j];
+				boolean applicable = true;
+				for (int k = preconditionStart[op]; applicable && k < preconditionStart[op+1]; k++) {
+					applicable = holdsInState(preconditions[k]);
+				}
+				if (applicable) {
+					preferredActions.set(task.getAction(op));
+				}
+			}
+		}
+	}
+
+	private void nextStamp() {
+
+		stamp++;
+		if (stamp == 0) {
+			// Overflow: all old marks need to be cleared
+			Arrays.fill(atomMarks, 0);
+			Arrays.fill(operatorMarks, 0);
+			Arrays.fill(actionMarks, 0);
+			stamp = 1;
+		}
+	}
+}
@@ -1,6 +1,9 @@
 package edu.kit.aquaplanning.planners.heuristic;
 
+import java.util.BitSet;
+
 import edu.kit.aquaplanning.Configuration;
+import edu.kit.aquaplanning.Configuration.HeuristicType;
 import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
 import edu.kit.aquaplanning.planners.SearchNode;
 
@@ -15,14 +18,52 @@ public abstract class Heuristic {
 	 */
 	public abstract int value(SearchNode node);
 	
+	/**
+	 * Evaluates the heuristic for some search node, and additionally
+	 * adds the indices of all actions which are preferred in the node's 
+	 * state to the provided set. By default, no action is preferred.
+	 */
+	public int value(SearchNode node, BitSet preferredActions) {
+		return value(node);
+	}
+	
+	/**
+	 * True iff this heuristic reports preferred actions 
+	 * (see value(SearchNode, BitSet)).
+	 */
+	public boolean providesPreferredActions() {
+		return false;
+	}
+	
+	/**
+	 * True iff the heuristic value of a node only depends on the node's 
+	 * state, so that it may be cached and reused for other nodes 
+	 * with the same state (see CachedHeuristic).
+	 */
+	public boolean isCacheable() {
+		return true;
+	}
+	
+	/**
+	 * Returns the heuristic of the provided configuration, or the default
+	 * heuristic (see Configuration.DEFAULT_HEURISTIC) if none is configured.
+	 */
 	public static Heuristic getHeuristic(GroundPlanningProblem p, Configuration config) {
-		switch (config.heuristic) {
+		HeuristicType type = (config.heuristic != null ? config.heuristic 
+				: Configuration.DEFAULT_HEURISTIC);
+		switch (type) {
 		case relaxedPathLength:
 			return new RelaxedPathLengthHeuristic(p);
 		case manhattanGoalDistance:
 			return new ManhattanGoalDistanceHeuristic(p);
 		case actionInterferenceRelaxation:
 			return new SatAbstractionHeuristic(p, config);
+		case hFF:
+			return new FFHeuristic(p);
+		case hAdd:
+			return new AdditiveHeuristic(p);
+		case hMax:
+			return new MaxHeuristic(p);
 		default:
 			break;
 		}
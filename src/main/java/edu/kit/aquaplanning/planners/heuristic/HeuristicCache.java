@@ -0,0 +1,89 @@
+package edu.kit.aquaplanning.planners.heuristic;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import edu.kit.aquaplanning.model.ground.State;
+
+/**
+ * A bounded cache of heuristic values which can be accessed
+ * by several threads at once without locking.
+ *
+ * The cache is direct-mapped: Each state has exactly one slot,
+ * determined by its Zobrist hash, and a new entry simply replaces
+ * the old entry of its slot. Entries are immutable, so a thread
+ * either sees a complete entry or none at all. Each entry contains
+ * the packed state (see State.pack()) instead of the state object,
+ * so it neither depends on later modifications of the state nor keeps
+ * the bases of a delta-encoded state alive. An entry is found by the
+ * Zobrist hash of the state, and only then is the state compared with
+ * the packed state (without packing the state itself), so a cached value 
+ * is never returned for a wrong state.
+ */
+public class HeuristicCache {
+
+	private static class Entry {
+
+		final long hash;
+		final long[] packedState;
+		final int value;
+
+		Entry(State state, int value) {
+			this.hash = state.getHash();
+			this.packedState = state.pack();
+			this.value = value;
+		}
+	}
+
+	private AtomicReferenceArray<Entry> entries;
+	private int mask;
+
+	/**
+	 * Creates a cache with space for at least the provided amount
+	 * of entries (rounded up to a power of two).
+	 */
+	public HeuristicCache(int capacity) {
+
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("The capacity of a heuristic cache must be positive.");
+		}
+		int size = Integer.highestOneBit(Math.min(capacity, 1 << 30));
+		if (size < capacity) {
+			size <<= 1;
+		}
+		entries = new AtomicReferenceArray<>(size);
+		mask = size - 1;
+	}
+
+	/**
+	 * Returns the cached heuristic value of the provided state,
+	 * or -1 if there is none.
+	 */
+	public int get(State state) {
+
+		long hash = state.getHash();
+		Entry entry = entries.get(slot(hash));
+		if (entry != null && entry.hash == hash 
+				&& state.equalsPacked(entry.packedState, 0)) {
+			return entry.value;
+		}
+		return -1;
+	}
+
+	/**
+	 * Stores the heuristic value of the provided state,
+	 * possibly replacing the value of some other state.
+	 */
+	public void put(State state, int value) {
+
+		Entry entry = new Entry(state, value);
+		entries.lazySet(slot(entry.hash), entry);
+	}
+
+	public int getCapacity() {
+		return mask + 1;
+	}
+
+	private int slot(long hash) {
+		return (int) (hash ^ (hash >>> 32)) & mask;
+	}
+}
@@ -29,4 +29,10 @@ public class ManhattanGoalDistanceHeuristic extends Heuristic {
 		}
 		return node.depth + unsatisfiedGoals;
 	}
+	
+	@Override
+	public boolean isCacheable() {
+		// Includes the depth of the node
+		return false;
+	}
 }
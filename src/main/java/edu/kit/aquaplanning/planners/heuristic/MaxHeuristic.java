@@ -0,0 +1,33 @@
+package edu.kit.aquaplanning.planners.heuristic;
+
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
+import edu.kit.aquaplanning.planners.SearchNode;
+
+/**
+ * The max heuristic h_max (Bonet and Geffner, 2001): The cost of an 
+ * atom in the delete relaxation is the cheapest cost of an operator 
+ * achieving it plus the maximum cost of the operator's preconditions. 
+ * Returns the maximum cost of all goal atoms, or INT_MAX if the goals 
+ * are unreachable even in the relaxation. Each action has a cost 
+ * of one (see RelaxedTask). Admissible.
+ */
+public class MaxHeuristic extends RelaxationHeuristic {
+
+	public MaxHeuristic(GroundPlanningProblem p) {
+		super(new RelaxedTask(p), false);
+	}
+
+	@Override
+	public int value(SearchNode node) {
+
+		if (!propagate(node.state)) {
+			// Goals are unreachable
+			return Integer.MAX_VALUE;
+		}
+		int max = 0;
+		for (int goal : task.getGoalAtoms()) {
+			max = Math.max(max, atomCosts[goal]);
+		}
+		return max;
+	}
+}
@@ -0,0 +1,156 @@
+package edu.kit.aquaplanning.planners.heuristic;
+
+import java.util.Arrays;
+
+import edu.kit.aquaplanning.model.ground.AtomSet;
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
+import edu.kit.aquaplanning.model.ground.State;
+import edu.kit.aquaplanning.planners.NodeHeap;
+
+/**
+ * Base class for heuristics which propagate costs through the
+ * delete relaxation of a problem (see RelaxedTask).
+ *
+ * Starting with cost 0 for all atoms of a given state, atoms are
+ * processed in order of increasing cost, as in Dijkstra's algorithm.
+ * Each operator counts its preconditions which have not been reached
+ * yet; as soon as this counter drops to zero, the operator is applied
+ * and offers its effects at the cost of its preconditions (either 
+ * summed up or maximized) plus its own cost. The propagation stops 
+ * as soon as all goal atoms have been reached.
+ *
+ * All data structures are allocated once and reused for each
+ * evaluation, so an instance must not be used by several threads
+ * at the same time.
+ */
+public abstract class RelaxationHeuristic extends Heuristic {
+
+	protected static final int INFINITY = Integer.MAX_VALUE;
+
+	protected RelaxedTask task;
+	/**
+	 * True iff the costs of preconditions are summed up (h_add);
+	 * otherwise, their maximum is used (h_max).
+	 */
+	private boolean additive;
+
+	/**
+	 * The cost of each atom, or INFINITY if the atom is unreachable.
+	 */
+	protected int[] atomCosts;
+	/**
+	 * For each atom, the operator which reached the atom at its cost,
+	 * or -1 if the atom holds in the evaluated state (or is unreachable).
+	 */
+	protected int[] supporters;
+
+	private int[] unsatisfiedPreconditions;
+	private int[] preconditionCosts;
+	private NodeHeap queue;
+
+	public RelaxationHeuristic(GroundPlanningProblem p) {
+		this(new RelaxedTask(p), true);
+	}
+
+	public RelaxationHeuristic(RelaxedTask task, boolean additive) {
+		this.task = task;
+		this.additive = additive;
+		atomCosts = new int[task.getNumAtoms()];
+		supporters = new int[task.getNumAtoms()];
+		unsatisfiedPreconditions = new int[task.getNumOperators()];
+		preconditionCosts = new int[task.getNumOperators()];
+		queue = new NodeHeap();
+	}
+
+	/**
+	 * Computes the costs and supporters of all atoms (at least until
+	 * all goal atoms are reached) when starting in the provided state.
+	 * Returns false iff some goal atom is unreachable.
+	 */
+	protected boolean propagate(State state) {
+
+		Arrays.fill(atomCosts, INFINITY);
+		Arrays.fill(supporters, -1);
+		Arrays.fill(preconditionCosts, 0);
+		int[] preconditionStart = task.getPreconditionStart();
+		for (int op = 0; op < unsatisfiedPreconditions.length; op++) {
+			unsatisfiedPreconditions[op] = preconditionStart[op+1] - preconditionStart[op];
+		}
+		queue.clear();
+
+		// Atoms of the state are reached at zero cost
+		AtomSet atoms = state.getAtomSet();
+		for (int atom = atoms.nextSetBit(0); atom >= 0 && atom < atomCosts.length;
+				atom = atoms.nextSetBit(atom+1)) {
+			atomCosts[atom] = 0;
+			queue.add(atom, 0);
+		}
+		for (int op : task.getOperatorsWithoutPreconditions()) {
+			applyOperator(op);
+		}
+
+		int[] preconditionOfStart = task.getPreconditionOfStart();
+		int[] preconditionOf = task.getPreconditionOf();
+		int unreachedGoals = task.getGoalAtoms().length;
+		while (unreachedGoals > 0 && !queue.isEmpty()) {
+
+			long cost = queue.peekKey();
+			int atom = queue.poll();
+			if (cost > atomCosts[atom]) {
+				// Outdated entry: atom has been reached cheaper before
+				continue;
+			}
+			if (task.isGoal(atom)) {
+				unreachedGoals--;
+			}
+
+			// Update all operators with this precondition
+			for (int i = preconditionOfStart[atom]; i < preconditionOfStart[atom+1]; i++) {
+				int op = preconditionOf[i];
+				if (additive) {
+					preconditionCosts[op] = add(preconditionCosts[op], (int) cost);
+				} else {
+					preconditionCosts[op] = Math.max(preconditionCosts[op], (int) cost);
+				}
+				if (--unsatisfiedPreconditions[op] == 0) {
+					applyOperator(op);
+				}
+			}
+		}
+		return unreachedGoals == 0;
+	}
+
+	/**
+	 * Offers the effects of the provided operator, all preconditions
+	 * of which have been reached.
+	 */
+	private void applyOperator(int op) {
+
+		int cost = add(preconditionCosts[op], task.getCost(op));
+		int[] effectStart = task.getEffectStart();
+		int[] effects = task.getEffects();
+		for (int i = effectStart[op]; i < effectStart[op+1]; i++) {
+			int atom = effects[i];
+			if (cost < atomCosts[atom]) {
+				atomCosts[atom] = cost;
+				supporters[atom] = op;
+				queue.add(atom, cost);
+			}
+		}
+	}
+
+	/**
+	 * After a propagation, returns true iff the provided atom 
+	 * holds in the state the propagation started from.
+	 */
+	protected boolean holdsInState(int atom) {
+		return atomCosts[atom] == 0 && supporters[atom] < 0;
+	}
+
+	/**
+	 * Adds two costs without overflows (capped below INFINITY).
+	 */
+	protected static int add(int cost1, int cost2) {
+		return (int) Math.min((long) cost1 + cost2, INFINITY - 1);
+	}
+}
@@ -0,0 +1,396 @@
+package edu.kit.aquaplanning.planners.heuristic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import edu.kit.aquaplanning.model.ground.Action;
+import edu.kit.aquaplanning.model.ground.ActionTable;
+import edu.kit.aquaplanning.model.ground.Atom;
+import edu.kit.aquaplanning.model.ground.AtomSet;
+import edu.kit.aquaplanning.model.ground.ConditionalEffect;
+import edu.kit.aquaplanning.model.ground.Effect;
+import edu.kit.aquaplanning.model.ground.Goal;
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
+import edu.kit.aquaplanning.model.ground.Precondition;
+
+/**
+ * Delete-relaxed version of a ground planning problem, compiled into
+ * flat int arrays for fast and allocation-free heuristic computations.
+ *
+ * Each action is split into one or more relaxed operators: one for its
+ * unconditional effects, and one for each of its conditional effects
+ * (with the effect's condition added to the preconditions). An operator
+ * only keeps the positive atoms of its preconditions and effects.
+ * Parts of complex preconditions and effects which are no plain
+ * conjunctions of atoms (disjunctions, negations, derived atoms,
+ * numeric conditions and effects) are dropped, which relaxes the
+ * problem even further.
+ *
+ * Each operator has a cost of one, just like each step of a path in the
+ * forward searches (which measure the cost of a path by its length).
+ *
+ * All lists are stored in compressed form: the elements of list i
+ * are found at the indices start[i] (inclusive) to start[i+1] (exclusive)
+ * of the respective array.
+ */
+public class RelaxedTask {
+
+	private int numAtoms;
+	private int numOperators;
+
+	private int[] preconditionStart;
+	private int[] preconditions;
+	private int[] effectStart;
+	private int[] effects;
+	private int[] operatorActions;
+	private int[] operatorCosts;
+
+	/**
+	 * For each atom, the operators which have the atom as a precondition.
+	 */
+	private int[] preconditionOfStart;
+	private int[] preconditionOf;
+	/**
+	 * For each atom, the operators which have the atom as an effect.
+	 */
+	private int[] achieverStart;
+	private int[] achievers;
+	private int[] operatorsWithoutPreconditions;
+
+	private int[] goalAtoms;
+	private boolean[] isGoal;
+
+	// Only used during construction
+	private ActionTable actionTable;
+	private List<int[]> preconditionLists;
+	private List<int[]> effectLists;
+	private List<Integer> actionList;
+
+	/**
+	 * Compiles the provided problem. Each operator has a cost of one.
+	 */
+	public RelaxedTask(GroundPlanningProblem problem) {
+
+		numAtoms = problem.getNumAtoms();
+		preconditionLists = new ArrayList<>();
+		effectLists = new ArrayList<>();
+		actionList = new ArrayList<>();
+		actionTable = problem.getActionTable();
+		for (int i = 0; i < actionTable.getNumActions(); i++) {
+			compileAction(i, actionTable.getAction(i));
+		}
+
+		// Goal atoms
+		Set<Integer> goal = new TreeSet<>();
+		Goal g = problem.getGoal();
+		if (g.isComplex()) {
+			collectConjunctiveAtoms(g.getComplexCondition(), goal);
+		} else {
+			for (Atom atom : g.getPositiveAtoms()) {
+				goal.add(atom.getId());
+			}
+		}
+		goalAtoms = toArray(goal);
+		for (int atom : goalAtoms) {
+			numAtoms = Math.max(numAtoms, atom+1);
+		}
+		isGoal = new boolean[numAtoms];
+		for (int atom : goalAtoms) {
+			isGoal[atom] = true;
+		}
+
+		// Flatten operators
+		numOperators = actionList.size();
+		preconditionStart = new int[numOperators+1];
+		effectStart = new int[numOperators+1];
+		preconditions = flatten(preconditionLists, preconditionStart);
+		effects = flatten(effectLists, effectStart);
+		operatorActions = new int[numOperators];
+		operatorCosts = new int[numOperators];
+		for (int op = 0; op < numOperators; op++) {
+			operatorActions[op] = actionList.get(op);
+			operatorCosts[op] = 1;
+		}
+		preconditionLists = null;
+		effectLists = null;
+		actionList = null;
+		actionTable = null;
+
+		// Index operators by their preconditions and by their effects
+		preconditionOfStart = new int[numAtoms+1];
+		preconditionOf = invert(preconditionStart, preconditions, preconditionOfStart);
+		achieverStart = new int[numAtoms+1];
+		achievers = invert(effectStart, effects, achieverStart);
+		int numWithoutPreconditions = 0;
+		for (int op = 0; op < numOperators; op++) {
+			if (getNumPreconditions(op) == 0) {
+				numWithoutPreconditions++;
+			}
+		}
+		operatorsWithoutPreconditions = new int[numWithoutPreconditions];
+		numWithoutPreconditions = 0;
+		for (int op = 0; op < numOperators; op++) {
+			if (getNumPreconditions(op) == 0) {
+				operatorsWithoutPreconditions[numWithoutPreconditions++] = op;
+			}
+		}
+	}
+
+	private void compileAction(int actionIndex, Action action) {
+
+		// Preconditions
+		Set<Integer> pre = new TreeSet<>();
+		addAll(actionTable.getPreconditionsPos(), actionTable.getPreconditionPosStart(), actionIndex, pre);
+		Precondition complexPre = action.getComplexPrecondition();
+		if (complexPre != null) {
+			collectConjunctiveAtoms(complexPre, pre);
+		}
+
+		// Unconditional effects
+		Set<Integer> eff = new TreeSet<>();
+		addAll(actionTable.getEffectsPos(), actionTable.getEffectPosStart(), actionIndex, eff);
+		List<Effect> conditionalEffects = new ArrayList<>();
+		Effect complexEff = action.getComplexEffect();
+		if (complexEff != null) {
+			collectEffects(complexEff, eff, conditionalEffects);
+		}
+		addOperator(actionIndex, pre, eff);
+
+		// Conditional effects
+		for (ConditionalEffect condEff : action.getConditionalEffects()) {
+			Set<Integer> condPre = new TreeSet<>(pre);
+			addAll(condEff.getConditionsPos(), condPre);
+			Set<Integer> condEffects = new TreeSet<>();
+			addAll(condEff.getEffectsPos(), condEffects);
+			addOperator(actionIndex, condPre, condEffects);
+		}
+		for (Effect condEff : conditionalEffects) {
+			compileConditionalEffect(actionIndex, pre, condEff);
+		}
+	}
+
+	private void compileConditionalEffect(int actionIndex, Set<Integer> pre, Effect condEff) {
+
+		Set<Integer> condPre = new TreeSet<>(pre);
+		collectConjunctiveAtoms(condEff.getCondition(), condPre);
+		Set<Integer> eff = new TreeSet<>();
+		List<Effect> nestedEffects = new ArrayList<>();
+		collectEffects(condEff.getSingleChild(), eff, nestedEffects);
+		addOperator(actionIndex, condPre, eff);
+		for (Effect nestedEff : nestedEffects) {
+			compileConditionalEffect(actionIndex, condPre, nestedEff);
+		}
+	}
+
+	private void addOperator(int actionIndex, Set<Integer> pre, Set<Integer> eff) {
+
+		if (eff.isEmpty()) {
+			// Operator is useless in the relaxed problem
+			return;
+		}
+		for (int atom : eff) {
+			numAtoms = Math.max(numAtoms, atom+1);
+		}
+		for (int atom : pre) {
+			numAtoms = Math.max(numAtoms, atom+1);
+		}
+		preconditionLists.add(toArray(pre));
+		effectLists.add(toArray(eff));
+		actionList.add(actionIndex);
+	}
+
+	/**
+	 * Adds the IDs of all positive atoms which must hold for the
+	 * provided precondition to hold (as far as they can be determined
+	 * without further case distinctions) to the provided set.
+	 */
+	private static void collectConjunctiveAtoms(Precondition pre, Set<Integer> atoms) {
+
+		switch (pre.getType()) {
+		case atom:
+			if (pre.getAtom().getValue()) {
+				atoms.add(pre.getAtom().getId());
+			}
+			break;
+		case conjunction:
+			for (Precondition child : pre.getChildren()) {
+				collectConjunctiveAtoms(child, atoms);
+			}
+			break;
+		default:
+			// Relaxed: ignore
+			break;
+		}
+	}
+
+	/**
+	 * Adds the IDs of all unconditional positive atom effects
+	 * to the provided set and all conditional effects
+	 * to the provided list.
+	 */
+	private static void collectEffects(Effect eff, Set<Integer> atoms, List<Effect> conditionalEffects) {
+
+		switch (eff.getType()) {
+		case atom:
+			if (eff.getAtom().getValue()) {
+				atoms.add(eff.getAtom().getId());
+			}
+			break;
+		case conjunction:
+			for (Effect child : eff.getChildren()) {
+				collectEffects(child, atoms, conditionalEffects);
+			}
+			break;
+		case condition:
+			conditionalEffects.add(eff);
+			break;
+		default:
+			// Relaxed: ignore numeric effects
+			break;
+		}
+	}
+
+	/**
+	 * Adds the atoms of the provided action in the provided 
+	 * compressed list to the provided set.
+	 */
+	private static void addAll(int[] list, int[] start, int actionIndex, Set<Integer> atoms) {
+		for (int i = start[actionIndex]; i < start[actionIndex+1]; i++) {
+			atoms.add(list[i]);
+		}
+	}
+
+	private static void addAll(AtomSet atomSet, Set<Integer> atoms) {
+		for (int i = atomSet.nextSetBit(0); i >= 0; i = atomSet.nextSetBit(i+1)) {
+			atoms.add(i);
+		}
+	}
+
+	private static int[] toArray(Set<Integer> set) {
+		int[] array = new int[set.size()];
+		int i = 0;
+		for (int element : set) {
+			array[i++] = element;
+		}
+		return array;
+	}
+
+	/**
+	 * Given a list of atoms for each operator (compressed form), 
+	 * returns the list of operators for each atom (compressed form,
+	 * with the start indices written into the provided array).
+	 */
+	private int[] invert(int[] start, int[] atoms, int[] invertedStart) {
+
+		for (int atom : atoms) {
+			invertedStart[atom+1]++;
+		}
+		for (int atom = 0; atom < numAtoms; atom++) {
+			invertedStart[atom+1] += invertedStart[atom];
+		}
+		int[] inverted = new int[atoms.length];
+		int[] fill = new int[numAtoms];
+		for (int op = 0; op < numOperators; op++) {
+			for (int i = start[op]; i < start[op+1]; i++) {
+				int atom = atoms[i];
+				inverted[invertedStart[atom] + fill[atom]++] = op;
+			}
+		}
+		return inverted;
+	}
+
+	private static int[] flatten(List<int[]> lists, int[] start) {
+		for (int i = 0; i < lists.size(); i++) {
+			start[i+1] = start[i] + lists.get(i).length;
+		}
+		int[] flat = new int[start[lists.size()]];
+		for (int i = 0; i < lists.size(); i++) {
+			System.arraycopy(lists.get(i), 0, flat, start[i], lists.get(i).length);
+		}
+		return flat;
+	}
+
+	public int getNumAtoms() {
+		return numAtoms;
+	}
+
+	public int getNumOperators() {
+		return numOperators;
+	}
+
+	public int getNumPreconditions(int op) {
+		return preconditionStart[op+1] - preconditionStart[op];
+	}
+
+	/**
+	 * Start indices of each operator's preconditions (compressed form).
+	 */
+	public int[] getPreconditionStart() {
+		return preconditionStart;
+	}
+
+	public int[] getPreconditions() {
+		return preconditions;
+	}
+
+	/**
+	 * Start indices of each operator's effects (compressed form).
+	 */
+	public int[] getEffectStart() {
+		return effectStart;
+	}
+
+	public int[] getEffects() {
+		return effects;
+	}
+
+	/**
+	 * Start indices of each atom's list of operators which
+	 * have the atom as a precondition (compressed form).
+	 */
+	public int[] getPreconditionOfStart() {
+		return preconditionOfStart;
+	}
+
+	public int[] getPreconditionOf() {
+		return preconditionOf;
+	}
+
+	/**
+	 * Start indices of each atom's list of operators which
+	 * have the atom as an effect (compressed form).
+	 */
+	public int[] getAchieverStart() {
+		return achieverStart;
+	}
+
+	public int[] getAchievers() {
+		return achievers;
+	}
+
+	public int[] getOperatorsWithoutPreconditions() {
+		return operatorsWithoutPreconditions;
+	}
+
+	/**
+	 * Returns the index of the action the provided operator
+	 * originates from.
+	 */
+	public int getAction(int op) {
+		return operatorActions[op];
+	}
+
+	public int getCost(int op) {
+		return operatorCosts[op];
+	}
+
+	public int[] getGoalAtoms() {
+		return goalAtoms;
+	}
+
+	public boolean isGoal(int atom) {
+		return isGoal[atom];
+	}
+}
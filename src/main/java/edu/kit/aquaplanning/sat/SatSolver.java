@@ -42,6 +42,14 @@ public class SatSolver {
 		solver.setTimeout(seconds);
 	}
 	
+	/**
+	 * Aborts a running solve call (possibly from another thread), 
+	 * which then returns null as if its time limit had been reached.
+	 */
+	public void interrupt() {
+		solver.expireTimeout();
+	}
+	
 	/**
 	 * Return true if the formula specified by the addClause calls is satisfiable under
 	 * the given assumptions and false it is unsatisfiable. Return null in case of the
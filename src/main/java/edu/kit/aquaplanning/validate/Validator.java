@@ -1,6 +1,7 @@
 package edu.kit.aquaplanning.validate;
 
 import edu.kit.aquaplanning.model.ground.Action;
+import edu.kit.aquaplanning.model.ground.ActionTable;
 import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
 import edu.kit.aquaplanning.model.ground.Plan;
 import edu.kit.aquaplanning.model.ground.State;
@@ -20,17 +21,19 @@ public class Validator {
 	public static boolean planIsValid(GroundPlanningProblem problem, Plan plan) {
 		
 		State state = problem.getInitialState();
+		ActionTable actionTable = problem.getActionTable();
 		int step = 1;
 		
 		for (Action action : plan) {
 			
-			if (!action.isApplicable(state)) {
+			int actionIdx = actionTable.indexOf(action);
+			if (actionIdx < 0 || !actionTable.isApplicable(actionIdx, state)) {
 				Logger.log(Logger.ERROR, "Error at step " + step + ": Action " 
 						+ action + " is not applicable in state " + problem.stateToString(state) + ".");
 				return false;
 			}
 			
-			state = action.apply(state);
+			state = actionTable.apply(actionIdx, state);
 			step++;
 		}
 		
@@ -2,23 +2,46 @@ package edu.kit.aquaplanning.aquaplanning;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import edu.kit.aquaplanning.Configuration;
 import edu.kit.aquaplanning.Configuration.HeuristicType;
 import edu.kit.aquaplanning.Configuration.PlannerType;
+import edu.kit.aquaplanning.grounding.ArgumentCombination;
+import edu.kit.aquaplanning.grounding.DatalogGrounder;
+import edu.kit.aquaplanning.grounding.FactTable;
 import edu.kit.aquaplanning.grounding.Grounder;
+import edu.kit.aquaplanning.grounding.JoinRule;
+import edu.kit.aquaplanning.grounding.Preprocessor;
 import edu.kit.aquaplanning.grounding.RelaxedPlanningGraphGrounder;
 import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
 import edu.kit.aquaplanning.model.ground.Plan;
+import edu.kit.aquaplanning.model.lifted.AbstractCondition;
+import edu.kit.aquaplanning.model.lifted.AbstractCondition.ConditionType;
+import edu.kit.aquaplanning.model.lifted.Argument;
+import edu.kit.aquaplanning.model.lifted.Condition;
+import edu.kit.aquaplanning.model.lifted.ConditionSet;
+import edu.kit.aquaplanning.model.lifted.Operator;
 import edu.kit.aquaplanning.model.lifted.PlanningProblem;
+import edu.kit.aquaplanning.model.lifted.Quantification;
 import edu.kit.aquaplanning.optimization.Clock;
 import edu.kit.aquaplanning.optimization.SimplePlanOptimizer;
 import edu.kit.aquaplanning.parsing.ProblemParser;
+import edu.kit.aquaplanning.planners.AnytimePlanner;
+import edu.kit.aquaplanning.planners.EnforcedHillClimbingPlanner;
 import edu.kit.aquaplanning.planners.ForwardSearchPlanner;
+import edu.kit.aquaplanning.planners.HdaStarPlanner;
 import edu.kit.aquaplanning.planners.HegemannsSatPlanner;
 import edu.kit.aquaplanning.planners.Planner;
+import edu.kit.aquaplanning.planners.PortfolioMember;
+import edu.kit.aquaplanning.planners.PortfolioPlanner;
 import edu.kit.aquaplanning.planners.SearchStrategy.Mode;
 import edu.kit.aquaplanning.planners.SimpleSatPlanner;
+import edu.kit.aquaplanning.planners.WidthBasedPlanner;
 import edu.kit.aquaplanning.validate.Validator;
 import junit.framework.TestCase;
 
@@ -29,6 +52,7 @@ public class TestPlanners extends TestCase {
 	public static final String[] SAT_TEST_DOMAINS = {"barman", "rover", "childsnack", 
 			"gripper", "zenotravel", "nurikabe"};
 	public static final String[] ADL_TEST_DOMAINS = {"openstacks"};
+	public static final String[] SEARCH_TEST_DOMAINS = {"gripper", "rover", "childsnack", "barman"};
 	
 	private PlanningProblem pp;
 	private GroundPlanningProblem gpp;
@@ -94,6 +118,351 @@ public class TestPlanners extends TestCase {
 		}
 	}
 	
+	public void testDatalogGrounder() throws FileNotFoundException, IOException {
+		
+		List<String[]> problems = new ArrayList<>();
+		for (String domain : DEFAULT_TEST_DOMAINS) {
+			problems.add(new String[] {"testfiles/" + domain + "/domain.pddl", 
+					"testfiles/" + domain + "/p01.pddl"});
+		}
+		for (String domain : ADL_TEST_DOMAINS) {
+			problems.add(new String[] {"testfiles/" + domain + "/domain.pddl", 
+					"testfiles/" + domain + "/p01.pddl"});
+		}
+		problems.add(new String[] {"testfiles/quantifications/domain.pddl", "testfiles/quantifications/p1.pddl"});
+		problems.add(new String[] {"testfiles/derivedPredicates/domain3.pddl", "testfiles/derivedPredicates/p3.pddl"});
+		problems.add(new String[] {"testfiles/adl/domain1.pddl", "testfiles/adl/p1.pddl"});
+		problems.add(new String[] {"testfiles/adl/domain2.pddl", "testfiles/adl/p2.pddl"});
+		
+		for (boolean keepDisjunctions : new boolean[] {false, true}) {
+			Configuration config = new Configuration();
+			config.keepDisjunctions = keepDisjunctions;
+			config.keepEqualities = keepDisjunctions;
+			for (String[] files : problems) {
+				System.out.println("Grounding problem \"" + files[1] + "\" by a Datalog program.");
+				
+				// Both grounders must find exactly the same actions and atoms
+				GroundPlanningProblem expected = new RelaxedPlanningGraphGrounder(config)
+						.ground(new ProblemParser().parse(files[0], files[1]));
+				gpp = new DatalogGrounder(config).ground(new ProblemParser().parse(files[0], files[1]));
+				Set<String> expectedActions = new HashSet<>();
+				expected.getActions().forEach(a -> expectedActions.add(a.getName()));
+				Set<String> actions = new HashSet<>();
+				gpp.getActions().forEach(a -> actions.add(a.getName()));
+				assertEquals(expectedActions, actions);
+				assertEquals(new HashSet<>(expected.getAtomNames()), new HashSet<>(gpp.getAtomNames()));
+				
+				if (!keepDisjunctions) {
+					Configuration c = new Configuration();
+					c.searchStrategy = Mode.bestFirst;
+					c.heuristic = HeuristicType.relaxedPathLength;
+					Plan plan = new ForwardSearchPlanner(c).findPlan(gpp);
+					assertNotNull(plan);
+					assertTrue(Validator.planIsValid(gpp, plan));
+				}
+			}
+		}
+	}
+	
+	public void testJoinRules() throws FileNotFoundException, IOException {
+		
+		System.out.println("Testing join rules on domain \"joins\".");
+		pp = new ProblemParser().parse("testfiles/joins/domain.pddl", "testfiles/joins/p01.pddl");
+		new Preprocessor(new Configuration()).preprocess(pp);
+		FactTable facts = new FactTable(pp.getConstants());
+		Set<String> initialFacts = new HashSet<>();
+		for (Condition cond : pp.getInitialState()) {
+			if (!cond.isNegated()) {
+				facts.add(cond, 0);
+				initialFacts.add(cond.toString());
+			}
+		}
+		facts.processAll();
+		
+		for (Operator op : pp.getOperators()) {
+			
+			// Bindings found by joining the precondition's atoms
+			JoinRule rule = new JoinRule(op, facts, pp);
+			rule.addCondition(op.getPrecondition());
+			Set<List<String>> bindings = getBindings(rule, facts);
+			
+			// Bindings found by enumerating all combinations of arguments
+			Set<List<String>> expectedBindings = new HashSet<>();
+			int numCombinations = 0;
+			ArgumentCombination.Iterator it = ArgumentCombination.iterator(
+					ArgumentCombination.getEligibleArguments(op.getArguments(), pp, pp.getConstants()));
+			while (it.hasNext()) {
+				List<Argument> args = it.next();
+				numCombinations++;
+				Operator groundOp = op.getOperatorWithGroundArguments(args);
+				if (holdsRelaxed(groundOp.getPrecondition(), initialFacts)) {
+					List<String> names = new ArrayList<>();
+					args.forEach(arg -> names.add(arg.getName()));
+					expectedBindings.add(names);
+				}
+			}
+			
+			// ?any is unconstrained: each binding occurs with all four places
+			assertEquals(expectedBindings, bindings);
+			assertTrue(bindings.size() > 0 && bindings.size() % 4 == 0);
+			assertTrue(bindings.size() < numCombinations);
+		}
+		
+		System.out.println("Testing join rules with existential variables.");
+		pp = new ProblemParser().parse("testfiles/joins/domain2.pddl", "testfiles/joins/p01.pddl");
+		for (Operator op : pp.getOperators()) {
+			
+			// Existential preconditions: instantiated for each constant,
+			// and as atoms over variables which are not operator arguments
+			JoinRule instantiated = new JoinRule(op, facts, pp);
+			JoinRule lifted = new JoinRule(op, facts, pp);
+			instantiated.addCondition(op.getPrecondition());
+			for (AbstractCondition cond : ((ConditionSet) op.getPrecondition()).getConditions()) {
+				lifted.addCondition(cond.getConditionType() == ConditionType.quantification ? 
+						((Quantification) cond).getCondition() : cond);
+			}
+			assertFalse(lifted.getResidualConditions().isEmpty());
+			
+			Set<List<String>> expectedBindings = new HashSet<>();
+			ArgumentCombination.Iterator it = ArgumentCombination.iterator(
+					ArgumentCombination.getEligibleArguments(op.getArguments(), pp, pp.getConstants()));
+			while (it.hasNext()) {
+				List<Argument> args = it.next();
+				if (holdsRelaxed(op.getOperatorWithGroundArguments(args).getPrecondition(), initialFacts)) {
+					List<String> names = new ArrayList<>();
+					args.forEach(arg -> names.add(arg.getName()));
+					expectedBindings.add(names);
+				}
+			}
+			assertFalse(expectedBindings.isEmpty());
+			assertEquals(expectedBindings, getBindings(instantiated, facts));
+			assertEquals(expectedBindings, getBindings(lifted, facts));
+		}
+	}
+	
+	/**
+	 * Returns all bindings of the rule, each as the names of the constants.
+	 */
+	private Set<List<String>> getBindings(JoinRule rule, FactTable facts) {
+		
+		Set<List<String>> bindings = new HashSet<>();
+		rule.setOnMatch(binding -> {
+			List<String> args = new ArrayList<>();
+			for (int constant : binding) {
+				args.add(facts.getConstant(constant).getName());
+			}
+			assertTrue("Binding found twice: " + args, bindings.add(args));
+		});
+		rule.fire();
+		return bindings;
+	}
+	
+	/**
+	 * Checks whether the provided ground condition holds in a delete-relaxed
+	 * sense, given the (positive) facts as strings.
+	 */
+	private boolean holdsRelaxed(AbstractCondition cond, Set<String> facts) {
+		
+		switch (cond.getConditionType()) {
+		case atomic:
+			Condition c = (Condition) cond;
+			if (c.getPredicate().getName().equals("=")) {
+				boolean equal = c.getArguments().get(0).getName().equals(
+						c.getArguments().get(1).getName());
+				return equal != c.isNegated();
+			}
+			return c.isNegated() || facts.contains(c.toString());
+		case conjunction:
+			for (AbstractCondition child : ((ConditionSet) cond).getConditions()) {
+				if (!holdsRelaxed(child, facts)) {
+					return false;
+				}
+			}
+			return true;
+		case disjunction:
+			for (AbstractCondition child : ((ConditionSet) cond).getConditions()) {
+				if (holdsRelaxed(child, facts)) {
+					return true;
+				}
+			}
+			return false;
+		case quantification:
+			return holdsRelaxed(ArgumentCombination.resolveQuantification(
+					(Quantification) cond, pp, pp.getConstants()), facts);
+		default:
+			fail("Unexpected condition " + cond);
+			return false;
+		}
+	}
+	
+	public void testRelaxationHeuristics() throws FileNotFoundException, IOException {
+		
+		for (String domain : SEARCH_TEST_DOMAINS) {
+			parseAndGround(domain, "relaxation heuristics");
+			for (HeuristicType heuristic : new HeuristicType[] {HeuristicType.hFF, 
+					HeuristicType.hAdd, HeuristicType.hMax}) {
+				Configuration config = new Configuration();
+				config.heuristic = heuristic;
+				// h_max is too uninformed for a greedy search
+				config.searchStrategy = (heuristic == HeuristicType.hMax ? Mode.aStar : Mode.bestFirst);
+				Plan plan = new ForwardSearchPlanner(config).findPlan(gpp);
+				assertNotNull("No plan found with " + heuristic + ".", plan);
+				assertTrue(Validator.planIsValid(gpp, plan));
+			}
+			
+			// Dual-queue search with the helpful actions of FF
+			Configuration config = new Configuration();
+			config.heuristic = HeuristicType.hFF;
+			config.searchStrategy = Mode.dualQueue;
+			Plan plan = new ForwardSearchPlanner(config).findPlan(gpp);
+			assertNotNull("No plan found with dual-queue search.", plan);
+			assertTrue(Validator.planIsValid(gpp, plan));
+			
+			// ... and with lazy evaluation
+			config.lazyEvaluation = true;
+			plan = new ForwardSearchPlanner(config).findPlan(gpp);
+			assertNotNull("No plan found with lazy dual-queue search.", plan);
+			assertTrue(Validator.planIsValid(gpp, plan));
+		}
+	}
+
+	public void testHdaStar() throws FileNotFoundException, IOException {
+
+		for (String domain : SEARCH_TEST_DOMAINS) {
+			parseAndGround(domain, "HDA*");
+
+			int optimalLength = optimalPlanLength(gpp);
+			Configuration config = new Configuration();
+			config.heuristic = HeuristicType.hMax;
+			config.numThreads = 4;
+			Plan plan = new HdaStarPlanner(config).findPlan(gpp);
+			assertNotNull("No plan found with HDA*.", plan);
+			assertTrue(Validator.planIsValid(gpp, plan));
+			assertEquals(optimalLength, plan.getLength());
+		}
+	}
+
+	public void testIdaStar() throws FileNotFoundException, IOException {
+
+		for (String domain : SEARCH_TEST_DOMAINS) {
+			parseAndGround(domain, "IDA*");
+
+			int optimalLength = optimalPlanLength(gpp);
+			Configuration config = new Configuration();
+			config.heuristic = HeuristicType.hMax;
+
+			// With and without a transposition table
+			config.searchStrategy = Mode.idaStar;
+			for (int megabytes : new int[] {0, 16}) {
+				config.transpositionTableMb = megabytes;
+				Plan plan = new ForwardSearchPlanner(config).findPlan(gpp);
+				assertNotNull("No plan found with IDA*.", plan);
+				assertTrue(Validator.planIsValid(gpp, plan));
+				assertEquals(optimalLength, plan.getLength());
+			}
+		}
+	}
+
+	public void testAnytimeSearch() throws FileNotFoundException, IOException {
+
+		for (String domain : SEARCH_TEST_DOMAINS) {
+			parseAndGround(domain, "anytime search");
+
+			int optimalLength = optimalPlanLength(gpp);
+			Configuration config = new Configuration();
+			config.heuristic = HeuristicType.hFF;
+			config.heuristicWeight = 8;
+			config.searchTimeSeconds = 60;
+			AnytimePlanner planner = new AnytimePlanner(config);
+			List<Plan> plans = new ArrayList<>();
+			planner.setPlanListener(plans::add);
+			Plan plan = planner.findPlan(gpp);
+			assertNotNull("No plan found with anytime search.", plan);
+
+			// Each plan is valid and shorter than the one before
+			assertFalse(plans.isEmpty());
+			for (int i = 0; i < plans.size(); i++) {
+				assertTrue(Validator.planIsValid(gpp, plans.get(i)));
+				if (i > 0) {
+					assertTrue(plans.get(i).getLength() < plans.get(i-1).getLength());
+				}
+			}
+			assertSame(plans.get(plans.size()-1), plan);
+			// The search space has been exhausted
+			assertEquals(optimalLength, plan.getLength());
+		}
+	}
+
+	public void testEnforcedHillClimbing() throws FileNotFoundException, IOException {
+
+		for (String domain : concat(SEARCH_TEST_DOMAINS, ADL_TEST_DOMAINS)) {
+			parseAndGround(domain, "enforced hill-climbing");
+			for (boolean helpfulActions : new boolean[] {false, true}) {
+				// No heuristic configured: hFF, with its helpful actions
+				Configuration config = new Configuration();
+				config.helpfulActions = helpfulActions;
+				Plan plan = new EnforcedHillClimbingPlanner(config).findPlan(gpp);
+				assertNotNull("No plan found with enforced hill-climbing.", plan);
+				assertTrue(Validator.planIsValid(gpp, plan));
+			}
+
+			// A heuristic without helpful actions: all actions are considered
+			Configuration config = new Configuration();
+			config.heuristic = HeuristicType.hAdd;
+			config.helpfulActions = true;
+			Plan plan = new EnforcedHillClimbingPlanner(config).findPlan(gpp);
+			assertNotNull("No plan found with enforced hill-climbing and hAdd.", plan);
+			assertTrue(Validator.planIsValid(gpp, plan));
+		}
+	}
+
+	public void testWidthBasedSearch() throws FileNotFoundException, IOException {
+
+		for (String domain : concat(SEARCH_TEST_DOMAINS, "nurikabe", "openstacks")) {
+			parseAndGround(domain, "width-based search");
+			Configuration config = new Configuration();
+			config.plannerType = PlannerType.bfws;
+			Plan plan = new WidthBasedPlanner(config).findPlan(gpp);
+			assertNotNull("No plan found with BFWS.", plan);
+			assertTrue(Validator.planIsValid(gpp, plan));
+		}
+
+		// IW is incomplete, but solves these problems with width 2
+		for (String domain : new String[] {"rover", "nurikabe"}) {
+			parseAndGround(domain, "IW(2)");
+			Configuration config = new Configuration();
+			config.plannerType = PlannerType.iw;
+			config.width = 2;
+			Plan plan = new WidthBasedPlanner(config).findPlan(gpp);
+			assertNotNull("No plan found with IW(2).", plan);
+			assertTrue(Validator.planIsValid(gpp, plan));
+		}
+	}
+
+	public void testPortfolio() throws FileNotFoundException, IOException {
+
+		for (String domain : SEARCH_TEST_DOMAINS) {
+			parseAndGround(domain, "the default portfolio");
+			Configuration config = new Configuration();
+			config.numThreads = 4;
+			config.heuristicCacheSize = 1 << 16;
+			PortfolioPlanner planner = new PortfolioPlanner(config);
+			Plan plan = planner.findPlan(gpp);
+			assertNotNull("No plan found with the portfolio.", plan);
+			assertTrue(Validator.planIsValid(gpp, plan));
+			assertNotNull(planner.getWinner());
+		}
+
+		// Invalid portfolios
+		for (String portfolio : new String[] {"planner=portfolio", "search=bestFirst,time=0",
+				"planner=forwardSSS,unknown=1", ";"}) {
+			try {
+				PortfolioMember.parse(portfolio);
+				fail("Invalid portfolio \"" + portfolio + "\" has been accepted.");
+			} catch (IllegalArgumentException e) {}
+		}
+	}
+
 	public void testSatPlan() throws FileNotFoundException, IOException {
 		Grounder grounder = new RelaxedPlanningGraphGrounder(new Configuration());
 		for (String domain : SAT_TEST_DOMAINS) {
@@ -130,6 +499,40 @@ public class TestPlanners extends TestCase {
 		fullTest("testfiles/TM/domain.pddl", "testfiles/TM/p_det.pddl");
 	}
 	
+	/**
+	 * Parses and grounds the first problem of the provided test domain
+	 * into pp and gpp.
+	 */
+	private void parseAndGround(String domain, String description) 
+			throws FileNotFoundException, IOException {
+		
+		System.out.println("Testing domain \"" + domain + "\" with " + description + ".");
+		pp = new ProblemParser().parse("testfiles/" + domain + "/domain.pddl", 
+				"testfiles/" + domain + "/p01.pddl");
+		gpp = new RelaxedPlanningGraphGrounder(new Configuration()).ground(pp);
+	}
+	
+	/**
+	 * Finds an optimal plan with sequential A* and returns its length,
+	 * as a reference for the optimal planners.
+	 */
+	private int optimalPlanLength(GroundPlanningProblem gpp) {
+		
+		Configuration config = new Configuration();
+		config.heuristic = HeuristicType.hMax;
+		config.searchStrategy = Mode.aStar;
+		Plan plan = new ForwardSearchPlanner(config).findPlan(gpp);
+		assertNotNull(plan);
+		return plan.getLength();
+	}
+	
+	private static String[] concat(String[] domains, String... moreDomains) {
+		
+		String[] result = Arrays.copyOf(domains, domains.length + moreDomains.length);
+		System.arraycopy(moreDomains, 0, result, domains.length, moreDomains.length);
+		return result;
+	}
+	
 	private void fullTest(String domainFile, String problemFile) throws FileNotFoundException, IOException {
 		fullTest(domainFile, problemFile, new Configuration());
 	}
@@ -0,0 +1,749 @@
+package edu.kit.aquaplanning.aquaplanning;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import edu.kit.aquaplanning.Configuration;
+import edu.kit.aquaplanning.grounding.RelaxedPlanningGraphGrounder;
+import edu.kit.aquaplanning.model.ground.Action;
+import edu.kit.aquaplanning.model.ground.ActionTable;
+import edu.kit.aquaplanning.model.ground.Atom;
+import edu.kit.aquaplanning.model.ground.AtomSet;
+import edu.kit.aquaplanning.model.ground.DerivedAtom;
+import edu.kit.aquaplanning.model.ground.DerivedAtomEvaluator;
+import edu.kit.aquaplanning.model.ground.Effect;
+import edu.kit.aquaplanning.model.ground.Effect.EffectType;
+import edu.kit.aquaplanning.model.ground.GroundNumericExpression;
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
+import edu.kit.aquaplanning.model.ground.NumericAtom;
+import edu.kit.aquaplanning.model.ground.Precondition;
+import edu.kit.aquaplanning.model.ground.Precondition.PreconditionType;
+import edu.kit.aquaplanning.model.ground.State;
+import edu.kit.aquaplanning.model.lifted.NumericCondition.Comparator;
+import edu.kit.aquaplanning.model.lifted.NumericExpression.TermType;
+import edu.kit.aquaplanning.parsing.ProblemParser;
+import edu.kit.aquaplanning.planners.BucketQueue;
+import edu.kit.aquaplanning.planners.ConcurrentStateSet;
+import edu.kit.aquaplanning.planners.NodeHeap;
+import edu.kit.aquaplanning.planners.NoveltyTable;
+import edu.kit.aquaplanning.planners.OpenList;
+import edu.kit.aquaplanning.planners.SearchStrategy.TieBreaking;
+import edu.kit.aquaplanning.planners.StateRegistry;
+import edu.kit.aquaplanning.planners.heuristic.HeuristicCache;
+import junit.framework.TestCase;
+
+public class TestSearchDataStructures extends TestCase {
+
+	public void testStateRegistry() {
+
+		Random random = new Random(1337);
+		List<State> states = new ArrayList<>();
+		StateRegistry registry = new StateRegistry();
+
+		// Register many random states, including duplicates
+		for (int i = 0; i < 10000; i++) {
+			State state = randomState(random, 200);
+			int expectedId = states.indexOf(state);
+			if (expectedId < 0) {
+				assertEquals(-1, registry.getId(state));
+				expectedId = states.size();
+				states.add(state);
+			}
+			assertEquals(expectedId, registry.register(state));
+			assertEquals(expectedId, registry.getId(state));
+		}
+		assertEquals(states.size(), registry.size());
+
+		// Registered states are reconstructed exactly
+		for (int id = 0; id < states.size(); id++) {
+			assertEquals(states.get(id), registry.getState(id));
+			assertEquals(id, registry.getId(new State(states.get(id))));
+		}
+	}
+
+	public void testZobristHash() {
+
+		Random random = new Random(1337);
+		State state = randomState(random, 200);
+		for (int i = 0; i < 1000; i++) {
+
+			// Modify the state by single atoms and by sets of atoms
+			state.set(new Atom(random.nextInt(250), "", random.nextBoolean()));
+			List<Atom> atoms = new ArrayList<>();
+			for (int j = 0; j < 5; j++) {
+				atoms.add(new Atom(random.nextInt(250), "", true));
+			}
+			if (random.nextBoolean()) {
+				state.addAll(new AtomSet(atoms));
+			} else {
+				state.removeAll(new AtomSet(atoms));
+			}
+
+			// The incrementally updated hash must equal the hash 
+			// of the same state created from scratch
+			State reconstructed = State.unpack(state.pack(), 0);
+			assertEquals(reconstructed, state);
+			assertEquals(reconstructed.getHash(), state.getHash());
+			assertEquals(reconstructed.getHash(), new State(state).getHash());
+
+			// Fused application of add and delete sets
+			AtomSet add = new AtomSet(atoms);
+			AtomSet delete = new AtomSet(Arrays.asList(new Atom(random.nextInt(250), "", true)));
+			State expected = new State(state);
+			expected.addAll(add);
+			expected.removeAll(delete);
+			State applied = state.apply(add, delete);
+			assertEquals(expected, applied);
+			assertEquals(expected.getHash(), applied.getHash());
+			assertEquals(State.unpack(applied.pack(), 0).getHash(), applied.getHash());
+			assertEquals(expected.size(), applied.size());
+		}
+	}
+
+	public void testDeltaStates() {
+
+		for (int depth : new int[] {0, 1, 3, 8}) {
+			Random random = new Random(1337);
+			List<State> states = new ArrayList<>();
+			List<AtomSet> expected = new ArrayList<>();
+			// The snapshot depth is inherited by all copies
+			states.add(randomState(random, 200));
+			states.get(0).setSnapshotDepth(depth);
+			expected.add(new AtomSet(states.get(0).getAtomSet().toLongArray()));
+
+			for (int i = 0; i < 2000; i++) {
+				// Copy or modify some state (also states which have been copied before)
+				int idx = random.nextInt(states.size());
+				State state = states.get(idx);
+				AtomSet atoms = new AtomSet(expected.get(idx).toLongArray());
+				Atom atom = new Atom(random.nextInt(250), "", random.nextBoolean());
+				AtomSet add = new AtomSet(Arrays.asList(new Atom(random.nextInt(250), "", true)));
+				AtomSet delete = new AtomSet(Arrays.asList(new Atom(random.nextInt(250), "", true)));
+				switch (random.nextInt(3)) {
+				case 0:
+					state = new State(state);
+					state.set(atom);
+					atoms.set(atom);
+					break;
+				case 1:
+					state = state.apply(add, delete);
+					atoms.applyTrueAtoms(add);
+					atoms.applyTrueAtomsAsFalse(delete);
+					break;
+				default:
+					state.set(atom);
+					atoms.set(atom);
+					states.remove(idx);
+					expected.remove(idx);
+				}
+				states.add(state);
+				expected.add(atoms);
+			}
+
+			// Copying a state does not modify it, so the states
+			// may also be copied concurrently
+			List<State> copies = states.parallelStream()
+					.map(state -> new State(state)).collect(Collectors.toList());
+
+			// No state has been affected by modifications of other states
+			for (int idx = 0; idx < states.size(); idx++) {
+				State state = states.get(idx);
+				State reference = new State(expected.get(idx));
+				assertEquals(reference, state);
+				assertEquals(reference, copies.get(idx));
+				assertEquals(reference.getHash(), state.getHash());
+				assertEquals(reference.size(), state.size());
+				assertTrue(Arrays.equals(reference.pack(), state.pack()));
+				assertTrue(state.equalsPacked(reference.pack(), 0));
+				assertEquals(expected.get(idx), state.getAtomSet());
+			}
+		}
+
+		// Numeric values are not affected by modifications of copies
+		// nor by modifications of the original state
+		NumericAtom numericAtom = new NumericAtom(0, "f0", 0);
+		State original = stateOf(1);
+		original.set(numericAtom, 1);
+		State copy = new State(original);
+		original.set(numericAtom, 2);
+		State copyOfCopy = new State(copy);
+		copy.set(numericAtom, 3);
+		assertEquals(2f, original.get(numericAtom));
+		assertEquals(3f, copy.get(numericAtom));
+		assertEquals(1f, copyOfCopy.get(numericAtom));
+
+		// Successors share the numeric values until one of the states
+		// modifies them, and plain copies leave the copied state unmarked
+		State successor = original.apply(new AtomSet(new long[0]), new AtomSet(new long[0]));
+		successor.set(numericAtom, 4);
+		original.set(numericAtom, 5);
+		assertEquals(4f, successor.get(numericAtom));
+		assertEquals(5f, original.get(numericAtom));
+		assertTrue(successor.equalsPacked(successor.pack(), 0));
+		assertFalse(original.equalsPacked(successor.pack(), 0));
+		State owner = stateOf(1);
+		new State(owner);
+		assertFalse(owner.getAtomSet().isImmutable());
+
+		// Reconstructed states have the snapshot depth of their registry
+		StateRegistry registry = new StateRegistry(3);
+		assertEquals(3, registry.getState(registry.register(owner)).getSnapshotDepth());
+	}
+
+	public void testActionTable() throws FileNotFoundException, IOException {
+
+		String[][] problems = {
+				{"testfiles/gripper/domain.pddl", "testfiles/gripper/p01.pddl"},
+				{"testfiles/rover/domain.pddl", "testfiles/rover/p01.pddl"},
+				{"testfiles/openstacks/domain.pddl", "testfiles/openstacks/p01.pddl"},
+				{"testfiles/adl/domain1.pddl", "testfiles/adl/p1.pddl"},
+				{"testfiles/adl/domain2.pddl", "testfiles/adl/p2.pddl"}};
+		for (String[] files : problems) {
+			GroundPlanningProblem gpp = new RelaxedPlanningGraphGrounder(new Configuration())
+					.ground(new ProblemParser().parse(files[0], files[1]));
+			List<Action> actions = gpp.getActions();
+			ActionTable table = gpp.getActionTable();
+			assertEquals(actions.size(), table.getNumActions());
+			// Another table with generated code (if a compiler is available)
+			ActionTable generated = new ActionTable(actions);
+			boolean hasCode = generated.generateCode();
+
+			// The tables behave like the actions themselves in all states
+			// of a breadth-first exploration of the state space
+			List<State> states = new ArrayList<>();
+			StateRegistry registry = new StateRegistry();
+			states.add(gpp.getInitialState());
+			registry.register(gpp.getInitialState());
+			for (int i = 0; i < states.size() && states.size() < 2000; i++) {
+				State state = states.get(i);
+				for (int a = 0; a < actions.size(); a++) {
+					assertEquals(a, table.indexOf(actions.get(a)));
+					assertEquals(actions.get(a).isApplicable(state), table.isApplicable(a, state));
+					if (hasCode) {
+						int block = 0;
+						while (block+1 < generated.getNumBlocks() && generated.getFirstAction(block+1) <= a) {
+							block++;
+						}
+						long mask = generated.getApplicableMask(block, state);
+						int bit = a - generated.getFirstAction(block);
+						assertTrue(bit < 64);
+						assertEquals(table.isApplicable(a, state), (mask & (1L << bit)) != 0);
+					}
+					if (!table.isApplicable(a, state)) {
+						continue;
+					}
+					State newState = table.apply(a, state);
+					assertEquals(actions.get(a).apply(state), newState);
+					assertEquals(new State(newState.getAtomSet()).getHash(), newState.getHash());
+
+					if (registry.register(newState) == states.size()) {
+						states.add(newState);
+					}
+				}
+			}
+		}
+	}
+
+	public void testOpenLists() {
+
+		// Small values, values beyond the initial buckets,
+		// and values beyond the maximum amount of buckets
+		for (int maxValue : new int[] {30, 5000, 4 * BucketQueue.MAX_BUCKETS}) {
+			for (TieBreaking tieBreaking : TieBreaking.values()) {
+				checkOpenLists(tieBreaking, maxValue);
+			}
+		}
+
+		// Without tie-breaking, the heap polls nodes of equal priority
+		// in the same order as a PriorityQueue ordered by priority
+		Random random = new Random(1337);
+		int[] priorities = new int[5000];
+		OpenList heap = new NodeHeap(TieBreaking.none);
+		PriorityQueue<Integer> queue = new PriorityQueue<>(
+				(n1, n2) -> priorities[n1] - priorities[n2]);
+		for (int node = 0; node < priorities.length; node++) {
+			priorities[node] = random.nextInt(30);
+			heap.add(node, priorities[node], 0, priorities[node]);
+			queue.add(node);
+			if (node % 4 == 3) {
+				assertEquals((int) queue.poll(), heap.poll());
+			}
+		}
+		while (!queue.isEmpty()) {
+			assertEquals((int) queue.poll(), heap.poll());
+		}
+	}
+
+	private void checkOpenLists(TieBreaking tieBreaking, int maxValue) {
+
+		// Fill a bucket queue and a heap with the same nodes,
+		// polling a node from both of them every now and then
+		Random random = new Random(1337);
+		OpenList buckets = new BucketQueue(tieBreaking);
+		OpenList heap = new NodeHeap(tieBreaking);
+		int numNodes = 5000;
+		int[] depths = new int[numNodes];
+		int[] heuristicValues = new int[numNodes];
+		for (int node = 0; node < numNodes; node++) {
+			depths[node] = random.nextInt(maxValue);
+			heuristicValues[node] = random.nextInt(maxValue);
+			int priority = depths[node] + heuristicValues[node];
+			buckets.add(node, priority, depths[node], heuristicValues[node]);
+			heap.add(node, priority, depths[node], heuristicValues[node]);
+			if (node % 4 == 3) {
+				checkPoll(tieBreaking, heap, buckets, depths, heuristicValues);
+			}
+		}
+		assertEquals(heap.size(), buckets.size());
+
+		// Both open lists must poll the nodes in the same order
+		// (up to ties which are not resolved by the tie-breaking rule)
+		while (!heap.isEmpty()) {
+			checkPoll(tieBreaking, heap, buckets, depths, heuristicValues);
+		}
+		assertTrue(buckets.isEmpty());
+	}
+
+	private void checkPoll(TieBreaking tieBreaking, OpenList heap, OpenList buckets, 
+			int[] depths, int[] heuristicValues) {
+
+		int expected = heap.poll();
+		int actual = buckets.poll();
+		assertEquals(depths[expected] + heuristicValues[expected],
+				depths[actual] + heuristicValues[actual]);
+		if (tieBreaking == TieBreaking.fifo || tieBreaking == TieBreaking.lifo) {
+			assertEquals(expected, actual);
+		} else if (tieBreaking != TieBreaking.none) {
+			assertEquals(heuristicValues[expected], heuristicValues[actual]);
+		}
+	}
+
+	public void testSharedSearchData() throws InterruptedException {
+
+		// Some threads add the same random states to a shared set
+		ConcurrentStateSet set = new ConcurrentStateSet();
+		HeuristicCache cache = new HeuristicCache(64);
+		AtomicInteger numAdded = new AtomicInteger();
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			threads.add(new Thread(() -> {
+				Random random = new Random(1337);
+				for (int i = 0; i < 2000; i++) {
+					State state = randomState(random, 200);
+					if (set.add(state)) {
+						numAdded.incrementAndGet();
+					}
+					cache.put(state, state.getHash() % 2 == 0 ? 0 : 1);
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		// Each distinct state must have been added exactly once
+		Random random = new Random(1337);
+		List<State> states = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			State state = randomState(random, 200);
+			if (!states.contains(state)) {
+				states.add(state);
+			}
+		}
+		assertEquals(states.size(), numAdded.get());
+		assertEquals(states.size(), set.size());
+
+		// Cached values may be missing, but never wrong
+		for (State state : states) {
+			int value = cache.get(state);
+			assertTrue(value == -1 || value == (state.getHash() % 2 == 0 ? 0 : 1));
+		}
+
+		// Modifying a state does not affect the cached value of the original state
+		State state = states.get(0);
+		State original = new State(state);
+		cache.put(state, 5);
+		state.set(new Atom(0, "a0", !state.holds(new Atom(0, "a0", true))));
+		assertEquals(5, cache.get(original));
+	}
+
+	public void testNumericPrograms() {
+
+		Random random = new Random(1337);
+		List<NumericAtom> numericAtoms = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			numericAtoms.add(new NumericAtom(i, "f" + i, random.nextInt(20) - 5));
+		}
+		for (int i = 0; i < 1000; i++) {
+			State state = randomState(random, 20);
+			for (NumericAtom atom : numericAtoms) {
+				state.set(atom, random.nextInt(20) - 5);
+			}
+			GroundNumericExpression left = randomExpression(random, numericAtoms, 3);
+			GroundNumericExpression right = randomExpression(random, numericAtoms, 3);
+
+			// Compiled programs yield the same values as the expression trees
+			float expected = evaluate(left, state);
+			assertEquals(Float.floatToIntBits(expected), Float.floatToIntBits(left.evaluate(state)));
+			float expectedRight = evaluate(right, state);
+			for (Comparator comparator : Comparator.values()) {
+				Precondition pre = new Precondition(PreconditionType.numeric);
+				pre.setComparator(comparator);
+				pre.setExpLeft(left);
+				pre.setExpRight(right);
+				boolean holds = (comparator == Comparator.greater ? expected > expectedRight
+						: comparator == Comparator.greaterEquals ? expected >= expectedRight
+						: comparator == Comparator.lower ? expected < expectedRight
+						: comparator == Comparator.lowerEquals ? expected <= expectedRight
+						: Math.abs(expected - expectedRight) < 0.00001f);
+				assertEquals(holds, pre.holds(state));
+			}
+
+			// Numeric values are part of the packed state and of its hash
+			State reconstructed = State.unpack(state.pack(), 0);
+			assertEquals(state, reconstructed);
+			assertEquals(state.getHash(), reconstructed.getHash());
+		}
+	}
+
+	public void testConditionPrograms() {
+
+		Random random = new Random(1337);
+		List<NumericAtom> numericAtoms = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			numericAtoms.add(new NumericAtom(i, "f" + i, 0));
+		}
+		for (int i = 0; i < 2000; i++) {
+			State state = randomState(random, 12);
+			for (NumericAtom atom : numericAtoms) {
+				state.set(atom, random.nextInt(6));
+			}
+
+			// Compiled preconditions hold iff the precondition trees hold
+			Precondition pre = randomPrecondition(random, numericAtoms, 4);
+			assertEquals(holds(pre, state, false), pre.holds(state));
+			assertEquals(holds(pre, state, true), pre.holdsRelaxed(state));
+
+			// Compiled effects yield the same states as the effect trees
+			Effect effect = randomEffect(random, numericAtoms, 3);
+			for (boolean relaxed : new boolean[] {false, true}) {
+				State expected = new State(state);
+				apply(effect, state, expected, relaxed);
+				State result = relaxed ? effect.applyRelaxedTo(state) : effect.applyTo(state);
+				assertEquals(expected, result);
+				assertEquals(expected.getHash(), result.getHash());
+			}
+		}
+	}
+
+	public void testDerivedAtomEvaluator() {
+
+		// reach(i,j) <- edge(i,j) or exists k: edge(i,k) and reach(k,j)
+		// unreachable(i,j) <- not reach(i,j)
+		int n = 6;
+		DerivedAtom[][] reach = new DerivedAtom[n][n];
+		DerivedAtom[][] unreachable = new DerivedAtom[n][n];
+		List<DerivedAtom> derivedAtoms = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				reach[i][j] = new DerivedAtom(-1 - derivedAtoms.size(), "reach", null);
+				derivedAtoms.add(reach[i][j]);
+				unreachable[i][j] = new DerivedAtom(-1 - derivedAtoms.size(), "unreachable", null);
+				derivedAtoms.add(unreachable[i][j]);
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				Precondition reachCondition = new Precondition(PreconditionType.disjunction);
+				reachCondition.add(atomPrecondition(i * n + j));
+				for (int k = 0; k < n; k++) {
+					Precondition step = new Precondition(PreconditionType.conjunction);
+					step.add(atomPrecondition(i * n + k));
+					step.add(derivedPrecondition(reach[k][j]));
+					reachCondition.add(step);
+				}
+				reach[i][j].setCondition(reachCondition);
+				Precondition negation = new Precondition(PreconditionType.negation);
+				negation.add(derivedPrecondition(reach[i][j]));
+				unreachable[i][j].setCondition(negation);
+			}
+		}
+		DerivedAtomEvaluator evaluator = DerivedAtomEvaluator.stratify(derivedAtoms);
+		assertNotNull(evaluator);
+		assertEquals(2, evaluator.getNumStrata());
+
+		Random random = new Random(1337);
+		for (int iteration = 0; iteration < 200; iteration++) {
+			// Random graph (possibly with cycles)
+			List<Atom> edges = new ArrayList<>();
+			for (int id = 0; id < n * n; id++) {
+				edges.add(new Atom(id, "edge", random.nextInt(5) == 0));
+			}
+			State state = new State(edges);
+			checkReachability(state, reach, unreachable);
+			// Values are recomputed after the state has been modified
+			int id = random.nextInt(n * n);
+			state.set(new Atom(id, "edge", !state.holds(new Atom(id, "edge", true))));
+			checkReachability(state, reach, unreachable);
+		}
+
+		// A negative cycle cannot be stratified
+		DerivedAtom a = new DerivedAtom(-1, "a", null);
+		Precondition notA = new Precondition(PreconditionType.negation);
+		notA.add(derivedPrecondition(a));
+		a.setCondition(notA);
+		assertNull(DerivedAtomEvaluator.stratify(Arrays.asList(a)));
+		assertNull(a.getEvaluator());
+	}
+
+	private void checkReachability(State state, DerivedAtom[][] reach, DerivedAtom[][] unreachable) {
+		int n = reach.length;
+		boolean[][] closure = new boolean[n][n];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				closure[i][j] = state.holds(new Atom(i * n + j, "edge", true));
+			}
+		}
+		for (int k = 0; k < n; k++) {
+			for (int i = 0; i < n; i++) {
+				for (int j = 0; j < n; j++) {
+					closure[i][j] |= closure[i][k] && closure[k][j];
+				}
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				assertEquals(closure[i][j], state.holds(reach[i][j]));
+				assertEquals(!closure[i][j], state.holds(unreachable[i][j]));
+			}
+		}
+	}
+
+	private Precondition atomPrecondition(int id) {
+		Precondition pre = new Precondition(PreconditionType.atom);
+		pre.setAtom(new Atom(id, "edge", true));
+		return pre;
+	}
+
+	private Precondition derivedPrecondition(DerivedAtom atom) {
+		Precondition pre = new Precondition(PreconditionType.derived);
+		pre.setDerivedAtom(atom);
+		return pre;
+	}
+
+	public void testNoveltyTable() {
+
+		NoveltyTable width1 = new NoveltyTable(100, 1);
+		NoveltyTable width2 = new NoveltyTable(100, 2);
+		State a = stateOf(1, 2);
+		State b = stateOf(2, 3);
+		State c = stateOf(1, 3);
+		State d = stateOf(1, 2, 3);
+		for (NoveltyTable table : new NoveltyTable[] {width1, width2}) {
+			assertEquals(1, table.evaluate(a));
+			assertEquals(1, table.evaluate(b));
+			// No new atom, but a new pair (1,3)
+			// (novelty 2, which is also width+1 for width 1)
+			assertEquals(2, table.evaluate(c));
+			assertEquals(table.getWidth() + 1, table.evaluate(d));
+			assertEquals(table.getWidth() + 1, table.evaluate(a));
+		}
+
+		// The memory budget is shared by all tables of a search
+		assertTrue(NoveltyTable.fitsPairBitmap(20000));
+		assertTrue(NoveltyTable.fitsPairBitmaps(20000, 5));
+		assertFalse(NoveltyTable.fitsPairBitmaps(20000, 100));
+	}
+
+	private State stateOf(int... atomIds) {
+
+		List<Atom> atoms = new ArrayList<>();
+		for (int id : atomIds) {
+			atoms.add(new Atom(id, "a" + id, true));
+		}
+		return new State(atoms);
+	}
+
+	private State randomState(Random random, int numAtoms) {
+
+		List<Atom> atoms = new ArrayList<>();
+		for (int i = 0; i < numAtoms; i++) {
+			// Only few atoms are randomized in order to provoke duplicates
+			boolean value = (i % 25 == 0) ? random.nextBoolean() : (i % 3 == 0);
+			atoms.add(new Atom(i, "a" + i, value));
+		}
+		return new State(atoms);
+	}
+
+	private GroundNumericExpression randomExpression(Random random, 
+			List<NumericAtom> numericAtoms, int depth) {
+
+		int choice = random.nextInt(depth <= 0 ? 2 : 7);
+		if (choice == 0) {
+			return new GroundNumericExpression(random.nextInt(10) - 3);
+		} else if (choice == 1) {
+			return new GroundNumericExpression(numericAtoms.get(random.nextInt(numericAtoms.size())));
+		}
+		TermType type = TermType.values()[choice];
+		GroundNumericExpression exp = new GroundNumericExpression(type);
+		int numChildren = (type == TermType.negation ? 1 : 2 + random.nextInt(2));
+		for (int i = 0; i < numChildren; i++) {
+			exp.add(randomExpression(random, numericAtoms, depth-1));
+		}
+		return exp;
+	}
+
+	/**
+	 * Reference evaluation of a numeric expression by recursion over its tree.
+	 */
+	private float evaluate(GroundNumericExpression exp, State state) {
+
+		switch (exp.getType()) {
+		case constant:
+			return exp.getValue();
+		case function:
+			return state.get(exp.getAtom());
+		case negation:
+			return -evaluate(exp.getChildren().get(0), state);
+		default:
+			float value = evaluate(exp.getChildren().get(0), state);
+			for (int i = 1; i < exp.getChildren().size(); i++) {
+				float childValue = evaluate(exp.getChildren().get(i), state);
+				switch (exp.getType()) {
+				case addition: value += childValue; break;
+				case subtraction: value -= childValue; break;
+				case multiplication: value *= childValue; break;
+				default: value /= childValue;
+				}
+			}
+			return value;
+		}
+	}
+
+	private Precondition randomPrecondition(Random random, 
+			List<NumericAtom> numericAtoms, int depth) {
+
+		int choice = random.nextInt(depth <= 0 ? 2 : 6);
+		if (choice == 0) {
+			Precondition pre = new Precondition(PreconditionType.atom);
+			pre.setAtom(new Atom(random.nextInt(12), "a", random.nextBoolean()));
+			return pre;
+		} else if (choice == 1) {
+			// (fluent) <comparator> (constant)
+			Precondition pre = new Precondition(PreconditionType.numeric);
+			pre.setComparator(Comparator.values()[random.nextInt(Comparator.values().length)]);
+			pre.setExpLeft(new GroundNumericExpression(numericAtoms.get(random.nextInt(numericAtoms.size()))));
+			pre.setExpRight(new GroundNumericExpression(random.nextInt(6)));
+			return pre;
+		}
+		PreconditionType type = (choice == 2 ? PreconditionType.negation 
+				: choice == 3 ? PreconditionType.implication 
+				: choice == 4 ? PreconditionType.conjunction : PreconditionType.disjunction);
+		Precondition pre = new Precondition(type);
+		int numChildren = (type == PreconditionType.negation ? 1 
+				: type == PreconditionType.implication ? 2 : random.nextInt(4));
+		for (int i = 0; i < numChildren; i++) {
+			pre.add(randomPrecondition(random, numericAtoms, depth-1));
+		}
+		return pre;
+	}
+
+	/**
+	 * Reference evaluation of a precondition by recursion over its tree.
+	 */
+	private boolean holds(Precondition pre, State state, boolean relaxed) {
+
+		switch (pre.getType()) {
+		case atom:
+			return (relaxed && !pre.getAtom().getValue()) || state.holds(pre.getAtom());
+		case negation:
+			return relaxed || !holds(pre.getSingleChild(), state, relaxed);
+		case implication:
+			return relaxed || !holds(pre.getChildren().get(0), state, relaxed) 
+					|| holds(pre.getChildren().get(1), state, relaxed);
+		case conjunction:
+			for (Precondition child : pre.getChildren()) {
+				if (!holds(child, state, relaxed))
+					return false;
+			}
+			return true;
+		case disjunction:
+			for (Precondition child : pre.getChildren()) {
+				if (holds(child, state, relaxed))
+					return true;
+			}
+			return false;
+		default:
+			float left = evaluate(pre.getExpLeft(), state);
+			float right = evaluate(pre.getExpRight(), state);
+			switch (pre.getComparator()) {
+			case greater: return left > right;
+			case greaterEquals: return left >= right;
+			case equals: return relaxed ? left >= right : Math.abs(left - right) < 0.00001f;
+			case lower: return relaxed || left < right;
+			default: return relaxed || left <= right;
+			}
+		}
+	}
+
+	private Effect randomEffect(Random random, List<NumericAtom> numericAtoms, int depth) {
+
+		int choice = random.nextInt(depth <= 0 ? 2 : 4);
+		if (choice == 0) {
+			return new Effect(new Atom(random.nextInt(12), "a", random.nextBoolean()));
+		} else if (choice == 1) {
+			Effect effect = new Effect(EffectType.numeric);
+			effect.setFunction(numericAtoms.get(random.nextInt(numericAtoms.size())));
+			effect.setExpression(randomExpression(random, numericAtoms, 1));
+			return effect;
+		} else if (choice == 2) {
+			Effect effect = new Effect(EffectType.condition);
+			effect.setCondition(randomPrecondition(random, numericAtoms, 2));
+			effect.add(randomEffect(random, numericAtoms, depth-1));
+			return effect;
+		}
+		Effect effect = new Effect(EffectType.conjunction);
+		int numChildren = random.nextInt(4);
+		for (int i = 0; i < numChildren; i++) {
+			effect.add(randomEffect(random, numericAtoms, depth-1));
+		}
+		return effect;
+	}
+
+	/**
+	 * Reference application of an effect by recursion over its tree.
+	 */
+	private void apply(Effect effect, State oldState, State newState, boolean relaxed) {
+
+		switch (effect.getType()) {
+		case atom:
+			if (!relaxed || effect.getAtom().getValue())
+				newState.set(effect.getAtom());
+			break;
+		case condition:
+			if (holds(effect.getCondition(), oldState, relaxed))
+				apply(effect.getSingleChild(), oldState, newState, relaxed);
+			break;
+		case conjunction:
+			for (Effect child : effect.getChildren()) {
+				apply(child, oldState, newState, relaxed);
+			}
+			break;
+		case numeric:
+			float value = evaluate(effect.getExpression(), oldState);
+			if (!relaxed || value > oldState.get(effect.getFunction()))
+				newState.set(effect.getFunction(), value);
+			break;
+		}
+	}
+}